@@ -0,0 +1,43 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent card endpoint: building the card and serializing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AgentCardBenchmark {
+
+  private ObjectMapper objectMapper;
+  private A2aTypes.AgentCard card;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    card = A2aController.buildAgentCard(true, "localhost:9090");
+  }
+
+  @Benchmark
+  public byte[] serializeCard() throws IOException {
+    return objectMapper.writeValueAsBytes(card);
+  }
+
+  @Benchmark
+  public byte[] buildAndSerializeCard() throws IOException {
+    return objectMapper.writeValueAsBytes(A2aController.buildAgentCard(true, "localhost:9090"));
+  }
+}
@@ -0,0 +1,21 @@
+package fredlab.dev.samples.a2a;
+
+/**
+ * Markdown-like text with quotes, newlines and non-ASCII characters, so escaping and UTF-8 paths are exercised.
+ */
+final class BenchmarkData {
+
+  private static final String SAMPLE = "## HTTP streaming\n- Sends \"chunks\" as they are ready — no waiting.\n"
+      + "- Works over plain HTTP/1.1; see https://example.org/sse?x=1&y=2 for details.\n";
+
+  private BenchmarkData() {
+  }
+
+  static String text(int chars) {
+    var builder = new StringBuilder(chars + SAMPLE.length());
+    while (builder.length() < chars) {
+      builder.append(SAMPLE);
+    }
+    return builder.substring(0, chars);
+  }
+}
@@ -0,0 +1,104 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-parsing hot path: decoding a message/send body and getting the prompt and skill out of it.
+ * {@code mapTree*} is the former approach (params as nested Maps, walked with instanceof checks);
+ * {@code typed*} is the single-pass decoding into {@link A2aTypes.MessageSendParams} used by the controller.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonRpcRequestBenchmark {
+
+  @Param({"64", "4096", "65536"})
+  public int promptChars;
+
+  @Param({"1", "8"})
+  public int parts;
+
+  private ObjectMapper objectMapper;
+  private byte[] messageSend;
+  private A2aTypes.MessageSendParams params;
+
+  @Setup
+  public void setUp() throws IOException {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    List<Map<String, String>> textParts = new ArrayList<>();
+    for (int i = 0; i < parts; i++) {
+      textParts.add(Map.of("kind", "text", "text", BenchmarkData.text(promptChars / parts)));
+    }
+    String body = """
+        {"jsonrpc":"2.0","id":"req-42","method":"message/send","params":{"message":{"role":"user",\
+        "parts":%s,"messageId":"9f1c2d7e-5b1a-4c8e-9a77-1f0e2b3c4d5e","kind":"message"},\
+        "metadata":{"skillId":"openai.research"}}}""".formatted(objectMapper.writeValueAsString(textParts));
+    messageSend = body.getBytes(StandardCharsets.UTF_8);
+    params = objectMapper.readValue(messageSend, JsonRpc.Request.class).params(A2aTypes.MessageSendParams.class);
+  }
+
+  @Benchmark
+  public JsonRpc.Request typedDecode() throws IOException {
+    return objectMapper.readValue(messageSend, JsonRpc.Request.class);
+  }
+
+  @Benchmark
+  public void typedExtract(Blackhole blackhole) {
+    blackhole.consume(A2aController.extractUserText(params));
+    blackhole.consume(A2aController.extractSkillId(params));
+  }
+
+  @Benchmark
+  public void typedDecodeAndExtract(Blackhole blackhole) throws IOException {
+    var decoded = objectMapper.readValue(messageSend, JsonRpc.Request.class).params(A2aTypes.MessageSendParams.class);
+    blackhole.consume(A2aController.extractUserText(decoded));
+    blackhole.consume(A2aController.extractSkillId(decoded));
+  }
+
+  @Benchmark
+  public void mapTreeDecodeAndExtract(Blackhole blackhole) throws IOException {
+    Object decoded = objectMapper.readValue(messageSend, Map.class).get("params");
+    blackhole.consume(mapTreeUserText(decoded));
+    blackhole.consume(mapTreeSkillId(decoded));
+  }
+
+  // The former controller helpers, kept here as the baseline
+  private static String mapTreeUserText(Object paramsObj) {
+    if (!(paramsObj instanceof Map<?, ?> params)) return "";
+    Object messageObj = params.get("message");
+    if (!(messageObj instanceof Map<?, ?> msg)) return "";
+    Object partsObj = msg.get("parts");
+    if (!(partsObj instanceof List<?> parts) || parts.isEmpty()) return "";
+    Object first = parts.get(0);
+    if (!(first instanceof Map<?, ?> part)) return "";
+    Object text = part.get("text");
+    return text == null ? "" : text.toString();
+  }
+
+  private static String mapTreeSkillId(Object paramsObj) {
+    if (!(paramsObj instanceof Map<?, ?> params)) return null;
+    Object metadataObj = params.get("metadata");
+    if (!(metadataObj instanceof Map<?, ?> metadata)) return null;
+    Object skillId = metadata.get("skillId");
+    return skillId == null ? null : skillId.toString();
+  }
+}
@@ -0,0 +1,101 @@
+package fredlab.dev.samples.a2a;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auth cost per request: full signature verification against in-memory signing keys (what every request paid
+ * before the token cache) vs. a cached token. The keys are served by a local HTTP stand-in for the issuer's JWK set
+ * and loaded through {@link JwkSetCache}, like in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtDecodeBenchmark {
+
+  private static final String ISSUER = "http://localhost/realms/bench";
+
+  private DisposableServer jwksServer;
+  private JwkSetCache jwkSetCache;
+  private NimbusReactiveJwtDecoder verifying;
+  private CachingJwtDecoder caching;
+  private String token;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    RSAKey key = new RSAKeyGenerator(2048).keyID("bench").generate();
+    String jwks = new JWKSet(key.toPublicJWK()).toString();
+    jwksServer = HttpServer.create()
+        .host("127.0.0.1")
+        .port(0)
+        .route(routes -> routes.get("/jwks", (request, response) -> response.sendString(Mono.just(jwks))))
+        .bindNow();
+
+    var meterRegistry = new SimpleMeterRegistry();
+    jwkSetCache = new JwkSetCache(WebClient.create(), ISSUER, "http://127.0.0.1:" + jwksServer.port() + "/jwks", null,
+        Duration.ofMinutes(5), Duration.ofSeconds(30), true, meterRegistry);
+    jwkSetCache.start();
+
+    verifying = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::keys).build();
+    verifying.setJwtValidator(JwtValidators.createDefaultWithIssuer(ISSUER));
+    caching = new CachingJwtDecoder(verifying, 10_000, Duration.ofMinutes(5), meterRegistry);
+
+    var claims = new JWTClaimsSet.Builder()
+        .issuer(ISSUER)
+        .subject("bench-user")
+        .claim("preferred_username", "bench")
+        .issueTime(new Date())
+        .expirationTime(Date.from(Instant.now().plus(Duration.ofHours(1))))
+        .build();
+    var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("bench").build(), claims);
+    jwt.sign(new RSASSASigner(key));
+    token = jwt.serialize();
+
+    // Waits for the initial JWK load, then primes the token cache
+    caching.decode(token).block(Duration.ofSeconds(10));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    jwkSetCache.stop();
+    jwksServer.disposeNow();
+  }
+
+  @Benchmark
+  public Jwt verifyEveryRequest() {
+    return verifying.decode(token).block();
+  }
+
+  @Benchmark
+  public Jwt cachedToken() {
+    return caching.decode(token).block();
+  }
+}
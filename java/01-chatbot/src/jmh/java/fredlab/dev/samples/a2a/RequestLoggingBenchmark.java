@@ -0,0 +1,153 @@
+package fredlab.dev.samples.a2a;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent on the calling (event-loop) thread to log one message/send: the former synchronous INFO logging of the
+ * full request and response records vs. the structured {@link RequestLog} event through a bounded async appender,
+ * with and without payload sampling. Appenders write to a null stream, so only CPU cost is measured, not disk I/O
+ * (which the old path also paid on the caller thread).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestLoggingBenchmark {
+
+  @Param({"256", "4096"})
+  public int answerChars;
+
+  private LoggerContext loggerContext;
+  private org.slf4j.Logger legacy;
+  private RequestLog structured;
+  private RequestLog sampled;
+  private JsonRpc.Request request;
+  private JsonRpc.Response response;
+  private String prompt;
+  private String answer;
+
+  @Setup
+  public void setUp() throws Exception {
+    loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    loggerContext.reset();
+
+    var pattern = new PatternLayoutEncoder();
+    pattern.setContext(loggerContext);
+    pattern.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%15.15t] %-40.40logger{39} : %m%n");
+    pattern.start();
+    Logger legacyLogger = loggerContext.getLogger("bench.legacy");
+    legacyLogger.setAdditive(false);
+    legacyLogger.addAppender(nullAppender("LEGACY", pattern));
+    legacy = legacyLogger;
+
+    var layout = new JsonLineLayout();
+    layout.setContext(loggerContext);
+    layout.start();
+    var json = new LayoutWrappingEncoder<ILoggingEvent>();
+    json.setContext(loggerContext);
+    json.setLayout(layout);
+    json.start();
+    var async = new AsyncAppender();
+    async.setContext(loggerContext);
+    async.setName("ASYNC_REQUESTS");
+    async.setQueueSize(8192);
+    async.setDiscardingThreshold(0);
+    async.setNeverBlock(true);
+    async.addAppender(nullAppender("REQUESTS", json));
+    async.start();
+    for (String name : List.of("a2a.requests", "a2a.payloads")) {
+      Logger logger = loggerContext.getLogger(name);
+      logger.setAdditive(false);
+      logger.addAppender(async);
+    }
+
+    structured = new RequestLog(0, Set.of());
+    sampled = new RequestLog(1, Set.of());
+
+    prompt = BenchmarkData.text(200);
+    answer = BenchmarkData.text(answerChars);
+    var params = new ObjectMapper().readValue("""
+        {"message":{"role":"user","parts":[{"kind":"text","text":"%s"}],"messageId":"m1"},\
+        "metadata":{"skillId":"openai.research"}}""".formatted(prompt.replace("\n", "\\n").replace("\"", "\\\"")), A2aTypes.MessageSendParams.class);
+    request = new JsonRpc.Request("2.0", "req-42", "message/send", params);
+    var task = new A2aTypes.Task(
+        "task-1",
+        "ctx-1",
+        new A2aTypes.TaskStatus("completed"),
+        List.of(new A2aTypes.Artifact("artifact-1", "answer", List.of(new A2aTypes.TextPart("text", answer)))),
+        List.of(
+            new A2aTypes.Message("user", List.of(new A2aTypes.TextPart("text", prompt)), "m1", "task-1", "ctx-1"),
+            new A2aTypes.Message("agent", List.of(new A2aTypes.TextPart("text", answer)), "m2", "task-1", "ctx-1")),
+        A2aTypes.KIND_TASK,
+        Map.of("skillId", "openai.research"));
+    response = JsonRpc.Response.ok("req-42", task);
+  }
+
+  @TearDown
+  public void tearDown() {
+    loggerContext.stop();
+  }
+
+  /** What the controller used to do per message/send, all synchronously on the caller thread. */
+  @Benchmark
+  public void synchronousPayloads() {
+    legacy.info("[AUTH] Received call from user: {} (sub: {})", "bench", "sub-1");
+    legacy.info("[A2A-PROTOCOL] Received JSON-RPC request: {}", request);
+    legacy.info("[BUSINESS] message/send: id={} task={} ctx={} skill={} text='{}'", "req-42", "task-1", "ctx-1",
+        "openai.research", prompt);
+    legacy.info("[A2A-PROTOCOL] Sending JSON-RPC response: {}", response);
+  }
+
+  @Benchmark
+  public void structuredAsync() {
+    structured.start("message/send", "req-42", "sub-1")
+        .task("task-1", "openai.research")
+        .prompt(prompt)
+        .answer(answer)
+        .finish();
+  }
+
+  @Benchmark
+  public void structuredAsyncWithPayloads() {
+    sampled.start("message/send", "req-42", "sub-1")
+        .task("task-1", "openai.research")
+        .prompt(prompt)
+        .answer(answer)
+        .finish();
+  }
+
+  private OutputStreamAppender<ILoggingEvent> nullAppender(String name, Encoder<ILoggingEvent> encoder) {
+    var appender = new OutputStreamAppender<ILoggingEvent>();
+    appender.setContext(loggerContext);
+    appender.setName(name);
+    appender.setEncoder(encoder);
+    appender.setOutputStream(OutputStream.nullOutputStream());
+    appender.start();
+    return appender;
+  }
+}
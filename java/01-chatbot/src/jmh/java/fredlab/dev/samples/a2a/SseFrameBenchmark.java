@@ -0,0 +1,81 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-token SSE cost: one artifact-update frame built the Jackson way (record graph + reflective serialization)
+ * versus {@link SseFrameEncoder} writing the chunk into pre-encoded JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SseFrameBenchmark {
+
+  private static final byte[] DATA = "id:7\ndata:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+  @Param({"16", "128", "1024"})
+  public int chunkChars;
+
+  private ObjectMapper objectMapper;
+  private SseFrameEncoder.Frames frames;
+  private String taskId;
+  private String contextId;
+  private String artifactId;
+  private String chunk;
+  private TaskStore.Event event;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    taskId = UUID.randomUUID().toString();
+    contextId = UUID.randomUUID().toString();
+    artifactId = UUID.randomUUID().toString();
+    chunk = BenchmarkData.text(chunkChars);
+    frames = new SseFrameEncoder(objectMapper)
+        .frames(DefaultDataBufferFactory.sharedInstance, "req-42", taskId, contextId, artifactId);
+    event = new TaskStore.Event(7, new TaskStore.ArtifactChunk(chunk, true), null, null);
+  }
+
+  @Benchmark
+  public DataBuffer jacksonFrame() throws IOException {
+    var update = new A2aTypes.TaskArtifactUpdateEvent(
+        taskId,
+        contextId,
+        new A2aTypes.Artifact(artifactId, "answer", List.of(new A2aTypes.TextPart("text", chunk))),
+        Boolean.TRUE,
+        null,
+        null
+    );
+    byte[] json = objectMapper.writeValueAsBytes(JsonRpc.Response.ok("req-42", update));
+    DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(json.length + 16);
+    buffer.write(DATA);
+    buffer.write(json);
+    buffer.write(EVENT_END);
+    return buffer;
+  }
+
+  @Benchmark
+  public DataBuffer encoderFrame() {
+    return frames.encode(event);
+  }
+}
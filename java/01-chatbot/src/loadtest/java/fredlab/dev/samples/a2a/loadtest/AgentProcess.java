@@ -0,0 +1,126 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The agent under test, started as a separate JVM so its CPU and heap figures are not mixed with the load generator's.
+ */
+final class AgentProcess implements AutoCloseable {
+
+  private static final String MAIN_CLASS = "fredlab.dev.samples.a2a.A2aJavaSampleApplication";
+
+  private final Process process;
+  private final String baseUrl;
+  private final String grpcTarget;
+  private final Path logFile;
+  private final String bearerToken;
+  private Duration startupTime;
+
+  private AgentProcess(Process process, String baseUrl, String grpcTarget, Path logFile, String bearerToken) {
+    this.process = process;
+    this.baseUrl = baseUrl;
+    this.grpcTarget = grpcTarget;
+    this.logFile = logFile;
+    this.bearerToken = bearerToken;
+  }
+
+  static AgentProcess launch(String classpath, List<String> jvmArgs, List<String> appArgs, Path logFile,
+                             Duration startupTimeout) throws IOException, InterruptedException {
+    return launch(classpath, jvmArgs, appArgs, logFile, startupTimeout, null);
+  }
+
+  /**
+   * @param bearerToken sent with the health checks, for an agent started with security on; null if it is off
+   */
+  static AgentProcess launch(String classpath, List<String> jvmArgs, List<String> appArgs, Path logFile,
+                             Duration startupTimeout, String bearerToken) throws IOException, InterruptedException {
+    int port = freePort();
+    int grpcPort = freePort();
+    String java = ProcessHandle.current().info().command().orElse("java");
+
+    List<String> command = new ArrayList<>();
+    command.add(java);
+    command.addAll(jvmArgs);
+    command.addAll(List.of("-cp", classpath, MAIN_CLASS, "--server.port=" + port,
+        "--app.grpc.port=" + grpcPort));
+    command.addAll(appArgs);
+
+    Files.createDirectories(logFile.toAbsolutePath().getParent());
+    long launchNanos = System.nanoTime();
+    Process process = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(logFile.toFile())
+        .start();
+
+    var agent = new AgentProcess(process, "http://127.0.0.1:" + port, "127.0.0.1:" + grpcPort, logFile,
+        bearerToken);
+    agent.awaitHealthy(startupTimeout);
+    agent.startupTime = Duration.ofNanos(System.nanoTime() - launchNanos);
+    return agent;
+  }
+
+  String baseUrl() {
+    return baseUrl;
+  }
+
+  String grpcTarget() {
+    return grpcTarget;
+  }
+
+  /** From starting the JVM process to the first healthy response, to within the polling interval. */
+  Duration startupTime() {
+    return startupTime;
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    process.destroy();
+    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+    }
+  }
+
+  private void awaitHealthy(Duration timeout) throws InterruptedException {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health")).GET();
+    if (bearerToken != null) {
+      request.header("Authorization", "Bearer " + bearerToken);
+    }
+    HttpRequest health = request.build();
+    long deadline = System.nanoTime() + timeout.toNanos();
+
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        throw new IllegalStateException("Agent exited with code " + process.exitValue() + ", see " + logFile);
+      }
+      try {
+        if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException ex) {
+        // Not listening yet
+      }
+      // Short enough not to blur startup time measurements
+      Thread.sleep(20);
+    }
+    process.destroyForcibly();
+    throw new IllegalStateException("Agent not healthy after " + timeout + ", see " + logFile);
+  }
+
+  private static int freePort() throws IOException {
+    try (var socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenAI chat-completions endpoint.
+ * Streaming requests get {@code tokens} SSE chunks, the first after {@code firstTokenLatency} and then one every
+ * {@code tokenDelay}: prose, or the structured JSON answer cut into tokens when the prompt asks for it (brief skill).
+ * Non-streaming requests get that JSON answer in one piece, after the same total time. Nothing leaves the machine.
+ * With {@code https}, it serves TLS for "localhost" with a throwaway self-signed certificate, so the agent's pooled
+ * upstream client (handshakes, session reuse, warm-up) is exercised as against the real endpoint.
+ * {@link #withStalls} makes every n-th request wait longer for its first token, a slow tail to hedge against.
+ */
+final class FakeOpenAiServer implements AutoCloseable {
+
+  private static final String WORDS = "HTTP streaming lets the server send partial results as soon as they are ready "
+      + "instead of buffering the whole answer, which lowers time to first byte for long model outputs. ";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final int tokens;
+  private final Duration firstTokenLatency;
+  private final Duration tokenDelay;
+  private final boolean https;
+  private final AtomicLong requests = new AtomicLong();
+  private int stallEvery;
+  private Duration stall = Duration.ZERO;
+  private final List<String> vocabulary = List.of(WORDS.split("(?<= )"));
+  private SelfSignedCertificate certificate;
+  private DisposableServer server;
+
+  FakeOpenAiServer(int tokens, Duration firstTokenLatency, Duration tokenDelay, boolean https) {
+    this.tokens = tokens;
+    this.firstTokenLatency = firstTokenLatency;
+    this.tokenDelay = tokenDelay;
+    this.https = https;
+  }
+
+  /** Every {@code every}-th request gets {@code stall} added to its first-token latency; 0 disables stalls. */
+  FakeOpenAiServer withStalls(int every, Duration stall) {
+    this.stallEvery = every;
+    this.stall = stall;
+    return this;
+  }
+
+  FakeOpenAiServer start() throws Exception {
+    HttpServer http = HttpServer.create()
+        .host(https ? "localhost" : "127.0.0.1")
+        .port(0)
+        .route(routes -> routes
+            .post("/v1/chat/completions", this::completions)
+            // Target of the agent's connection warm-up probes
+            .head("/v1/models", (request, response) -> response.send()));
+    if (https) {
+      certificate = new SelfSignedCertificate("localhost");
+      http = http.secure(spec -> spec.sslContext(
+          Http11SslContextSpec.forServer(certificate.certificate(), certificate.privateKey())));
+    }
+    server = http.bindNow();
+    return this;
+  }
+
+  String baseUrl() {
+    return https ? "https://localhost:" + server.port() : "http://127.0.0.1:" + server.port();
+  }
+
+  /** Chat-completion requests received so far. */
+  long requests() {
+    return requests.get();
+  }
+
+  /** PEM of the self-signed certificate, for the agent's trust store; null over plain HTTP. */
+  Path certificatePem() {
+    return certificate == null ? null : certificate.certificate().toPath();
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.disposeNow();
+    }
+    if (certificate != null) {
+      certificate.delete();
+    }
+  }
+
+  private Publisher<Void> completions(HttpServerRequest request, HttpServerResponse response) {
+    return request.receive().aggregate().asString()
+        .flatMap(body -> {
+          JsonNode json = readTree(body);
+          String model = json.path("model").asText("gpt-4o-mini");
+          long n = requests.incrementAndGet();
+          Duration firstToken = stallEvery > 0 && n % stallEvery == 0
+              ? firstTokenLatency.plus(stall)
+              : firstTokenLatency;
+          if (json.path("stream").asBoolean(false)) {
+            // The brief skill's prompt carries the JSON schema of its answer
+            return stream(response, model, firstToken, body.contains("bulletPoints"));
+          }
+          return call(response, model, firstToken);
+        })
+        .onErrorResume(ex -> response.status(HttpResponseStatus.BAD_REQUEST).send().then());
+  }
+
+  private Mono<Void> stream(HttpServerResponse response, String model, Duration firstToken, boolean structured) {
+    List<String> pieces = structured ? split(answer().toString()) : null;
+    int count = structured ? pieces.size() : tokens;
+    Flux<String> events = Flux.range(0, count)
+        .delayUntil(i -> Mono.delay(i == 0 ? firstToken : tokenDelay))
+        .map(i -> structured ? pieces.get(i) : vocabulary.get(i % vocabulary.size()))
+        .map(token -> "data: " + chunk(model, token, null) + "\n\n")
+        .concatWith(Flux.just("data: " + chunk(model, null, "stop") + "\n\n", "data: [DONE]\n\n"));
+
+    return response
+        .header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+        .sendString(events)
+        .then();
+  }
+
+  private ObjectNode answer() {
+    ObjectNode answer = objectMapper.createObjectNode();
+    answer.put("title", "Load test answer");
+    var bullets = answer.putArray("bulletPoints");
+    for (int i = 0; i < 4; i++) {
+      bullets.add(WORDS.substring(0, 40 + 10 * i).trim());
+    }
+    return answer;
+  }
+
+  // About as many pieces as the configured token count, at least one character each
+  private List<String> split(String text) {
+    int size = Math.max(1, (text.length() + tokens - 1) / Math.max(1, tokens));
+    List<String> pieces = new ArrayList<>();
+    for (int i = 0; i < text.length(); i += size) {
+      pieces.add(text.substring(i, Math.min(text.length(), i + size)));
+    }
+    return pieces;
+  }
+
+  private Mono<Void> call(HttpServerResponse response, String model, Duration firstToken) {
+    ObjectNode answer = answer();
+
+    ObjectNode completion = objectMapper.createObjectNode();
+    completion.put("id", "chatcmpl-load-test");
+    completion.put("object", "chat.completion");
+    completion.put("created", System.currentTimeMillis() / 1000);
+    completion.put("model", model);
+    ObjectNode choice = completion.putArray("choices").addObject();
+    choice.put("index", 0);
+    choice.putObject("message").put("role", "assistant").put("content", answer.toString());
+    choice.put("finish_reason", "stop");
+    completion.putObject("usage")
+        .put("prompt_tokens", 32)
+        .put("completion_tokens", tokens)
+        .put("total_tokens", 32 + tokens);
+
+    Duration total = firstToken.plus(tokenDelay.multipliedBy(Math.max(0, tokens - 1)));
+    return Mono.delay(total)
+        .then(response
+            .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+            .sendString(Mono.just(completion.toString()))
+            .then());
+  }
+
+  private String chunk(String model, String content, String finishReason) {
+    ObjectNode chunk = objectMapper.createObjectNode();
+    chunk.put("id", "chatcmpl-load-test");
+    chunk.put("object", "chat.completion.chunk");
+    chunk.put("created", System.currentTimeMillis() / 1000);
+    chunk.put("model", model);
+    ObjectNode choice = chunk.putArray("choices").addObject();
+    choice.put("index", 0);
+    ObjectNode delta = choice.putObject("delta");
+    if (content != null) {
+      delta.put("role", "assistant");
+      delta.put("content", content);
+    }
+    if (finishReason != null) {
+      choice.put("finish_reason", finishReason);
+    } else {
+      choice.putNull("finish_reason");
+    }
+    return chunk.toString();
+  }
+
+  private JsonNode readTree(String body) {
+    try {
+      return objectMapper.readTree(body);
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Invalid chat-completions request", ex);
+    }
+  }
+}
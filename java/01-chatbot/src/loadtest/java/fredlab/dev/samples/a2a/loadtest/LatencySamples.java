@@ -0,0 +1,53 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in nanoseconds and reports nearest-rank percentiles.
+ */
+final class LatencySamples {
+
+  private long[] values = new long[1024];
+  private int count;
+
+  synchronized void record(Duration latency) {
+    if (count == values.length) {
+      values = Arrays.copyOf(values, count * 2);
+    }
+    values[count++] = latency.toNanos();
+  }
+
+  synchronized int count() {
+    return count;
+  }
+
+  synchronized Duration percentile(int percentile) {
+    if (count == 0) {
+      return Duration.ZERO;
+    }
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    return Duration.ofNanos(percentile(sorted, percentile));
+  }
+
+  synchronized String summary() {
+    if (count == 0) {
+      return "n=0";
+    }
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    return "n=%d p50=%s p90=%s p99=%s max=%s".formatted(
+        count, millis(percentile(sorted, 50)), millis(percentile(sorted, 90)),
+        millis(percentile(sorted, 99)), millis(sorted[count - 1]));
+  }
+
+  private static long percentile(long[] sorted, int percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)];
+  }
+
+  private static String millis(long nanos) {
+    return "%.1fms".formatted(nanos / 1e6);
+  }
+}
@@ -0,0 +1,804 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.grpc.A2AServiceGrpc;
+import fredlab.dev.samples.a2a.grpc.Message;
+import fredlab.dev.samples.a2a.grpc.Part;
+import fredlab.dev.samples.a2a.grpc.Role;
+import fredlab.dev.samples.a2a.grpc.SendMessageRequest;
+import fredlab.dev.samples.a2a.grpc.StreamResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import io.netty.channel.ChannelOption;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end load test: starts {@link FakeOpenAiServer} and the agent (pointed at it, security and cache off),
+ * then drives concurrent {@code message/stream} SSE clients and {@code message/send} callers in a closed loop.
+ * Reports throughput, time to first event, time to completion and the agent's CPU and heap.
+ * With {@code load.card-slow-sends} set, it finally checks that the agent card stays as fast with that many
+ * message/send calls waiting on a slow upstream as on an idle agent. With {@code load.slow-clients} set, it checks that
+ * no slow reader made the agent buffer more than its per-connection budget.
+ * <p>
+ * Settings are system properties (see {@code ./gradlew loadTest} / {@code make load-test}); with
+ * {@code load.target} set, an already running agent is used instead and nothing is started.
+ */
+public final class LoadTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  // The outbound budget is checked once an event is queued, so a connection's peak may pass it by that one event: an
+  // answer chunk (max-chars, escaped) or a small status update
+  private static final long SLOW_EVENT_ALLOWANCE = 16 * 1024;
+
+  private final WebClient client;
+  private final String skill;
+  private final WebhookReceiver webhook;
+  private final A2AServiceGrpc.A2AServiceStub grpc;
+  private WebClient slowClient;
+  private Duration slowReadDelay;
+  private WebClient cardClient;
+
+  private LoadTest(WebClient client, String skill, WebhookReceiver webhook, A2AServiceGrpc.A2AServiceStub grpc) {
+    this.client = client;
+    this.skill = skill;
+    this.webhook = webhook;
+    this.grpc = grpc;
+  }
+
+  /** Outcome counters and latencies of one phase. */
+  private static final class Stats {
+    final LatencySamples firstEvent = new LatencySamples();
+    final LatencySamples completion = new LatencySamples();
+    final AtomicLong ok = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+  }
+
+  /** CPU, heap and upstream pool usage of the agent, polled from its actuator metrics while the load runs. */
+  private static final class ServerSamples {
+    double cpuSum;
+    double cpuMax;
+    double heapMax;
+    double upstreamActiveMax;
+    double upstreamPendingMax;
+    int count;
+
+    synchronized void record(double cpu, double heap) {
+      cpuSum += cpu;
+      cpuMax = Math.max(cpuMax, cpu);
+      heapMax = Math.max(heapMax, heap);
+      count++;
+    }
+
+    synchronized void recordUpstream(double active, double pending) {
+      upstreamActiveMax = Math.max(upstreamActiveMax, active);
+      upstreamPendingMax = Math.max(upstreamPendingMax, pending);
+    }
+
+    synchronized String summary() {
+      if (count == 0) {
+        return "no samples";
+      }
+      return "cpu avg=%.0f%% max=%.0f%% heap max=%.0fMB (%d samples)".formatted(
+          100 * cpuSum / count, 100 * cpuMax, heapMax / (1024 * 1024), count);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int streamClients = Integer.getInteger("load.stream-clients", 50);
+    int sendClients = Integer.getInteger("load.send-clients", 10);
+    // Non-blocking message/send clients, told about completion by push notification
+    int pushClients = Integer.getInteger("load.push-clients", 0);
+    int batchSize = Integer.getInteger("load.batch-size", 0);
+    // Streaming clients on the gRPC transport, to compare with the SSE ones
+    int grpcClients = Integer.getInteger("load.grpc-clients", 0);
+    String grpcTarget = System.getProperty("load.grpc-target", "");
+    // SSE clients that read one small socket buffer per slow-read-delay, to exercise the agent's slow-consumer handling
+    int slowClients = Integer.getInteger("load.slow-clients", 0);
+    Duration slowReadDelay = Duration.ofMillis(Long.getLong("load.slow-read-delay-ms", 200));
+    // Outbound budget per connection given to the agent started here, and checked against its peak after the run
+    long slowMaxBuffered = 1024 * Long.getLong("load.slow-max-buffered-kb", 256);
+    // Agent card latency, idle and with this many message/send calls stuck on a slow upstream
+    int cardSlowSends = Integer.getInteger("load.card-slow-sends", 0);
+    int cardProbes = Integer.getInteger("load.card-probes", 500);
+    String cardSkill = System.getProperty("load.card-skill", "openai.brief");
+    Duration cardSendDelay = Duration.ofMillis(Long.getLong("load.card-send-delay-ms", 30_000));
+    double cardMaxRatio = Double.parseDouble(System.getProperty("load.card-max-p99-ratio", "0"));
+    int requests = Integer.getInteger("load.requests", 5);
+    int warmup = Integer.getInteger("load.warmup", 20);
+    String skill = System.getProperty("load.skill", "openai.research");
+    String target = System.getProperty("load.target", "");
+
+    int tokens = Integer.getInteger("fake.tokens", 200);
+    Duration firstTokenLatency = Duration.ofMillis(Long.getLong("fake.first-token-ms", 300));
+    Duration tokenDelay = Duration.ofMillis(Long.getLong("fake.token-delay-ms", 20));
+    boolean https = Boolean.getBoolean("fake.https");
+    int stallEvery = Integer.getInteger("fake.stall-every", 0);
+    Duration stall = Duration.ofMillis(Long.getLong("fake.stall-ms", 3000));
+    long hedgeAfterMs = Long.getLong("load.hedge-after-ms", 0);
+
+    FakeOpenAiServer fake = null;
+    FakeOpenAiServer hedgeFake = null;
+    FakeOpenAiServer cardFake = null;
+    WebhookReceiver webhook = null;
+    ManagedChannel channel = null;
+    AgentProcess agent = null;
+    try {
+      if (target.isBlank()) {
+        fake = new FakeOpenAiServer(tokens, firstTokenLatency, tokenDelay, https)
+            .withStalls(stallEvery, stall)
+            .start();
+        System.out.printf("Fake OpenAI at %s: %d tokens, first after %s, then every %s%n",
+            fake.baseUrl(), tokens, firstTokenLatency, tokenDelay);
+
+        int capacity = Integer.getInteger("load.capacity", 256);
+        List<String> appArgs = new ArrayList<>(List.of(
+            "--spring.ai.openai.base-url=" + fake.baseUrl(),
+            "--spring.ai.openai.api-key=load-test",
+            "--app.security.enabled=false",
+            // Every prompt is distinct anyway; keep the cache out of the numbers
+            "--app.cache.enabled=false",
+            // All load clients share one (anonymous) subject, so lift the per-subject cap to the global one
+            "--app.admission.global-capacity=" + capacity,
+            "--app.admission.per-subject-capacity=" + capacity,
+            "--app.llm.max-concurrency=" + capacity));
+        if (fake.certificatePem() != null) {
+          // Trust the fake's self-signed certificate through an SSL bundle, as one would a private CA
+          appArgs.add("--spring.ssl.bundle.pem.fake-openai.truststore.certificate=file:" + fake.certificatePem());
+          appArgs.add("--app.llm.http.ssl-bundle=fake-openai");
+        }
+        if (hedgeAfterMs > 0) {
+          // A second, stall-free stub as the hedge endpoint of the skill under test
+          hedgeFake = new FakeOpenAiServer(tokens, firstTokenLatency, tokenDelay, https).start();
+          System.out.printf("Hedge stub at %s, after %d ms%n", hedgeFake.baseUrl(), hedgeAfterMs);
+          String route = "--app.llm.routing.skills.[" + skill + "].hedge.";
+          appArgs.add(route + "after=" + hedgeAfterMs + "ms");
+          appArgs.add(route + "base-url=" + hedgeFake.baseUrl());
+        }
+        if (grpcClients > 0) {
+          appArgs.add("--app.grpc.enabled=true");
+        }
+        if (cardSlowSends > 0) {
+          if (cardSkill.equals(skill)) {
+            throw new IllegalArgumentException("load.card-skill must differ from load.skill, whose upstream it slows down");
+          }
+          // The card scenario's skill gets its own stub, which only answers after card-send-delay-ms
+          cardFake = new FakeOpenAiServer(tokens, cardSendDelay, tokenDelay, false).start();
+          System.out.printf("Slow stub for %s at %s, first token after %s%n", cardSkill, cardFake.baseUrl(), cardSendDelay);
+          appArgs.add("--app.llm.routing.skills.[" + cardSkill + "].base-url=" + cardFake.baseUrl());
+        }
+        if (slowClients > 0) {
+          appArgs.add("--app.stream.outbound.max-buffered-bytes=" + slowMaxBuffered + "B");
+        }
+        if (pushClients > 0) {
+          // The local webhook receiver is on loopback, which the agent refuses unless told otherwise
+          appArgs.add("--app.push.enabled=true");
+          appArgs.add("--app.push.allowed-hosts=127.0.0.1");
+          appArgs.add("--app.push.allow-private-addresses=true");
+        }
+        appArgs.addAll(split(System.getProperty("load.app-args", "")));
+
+        agent = AgentProcess.launch(
+            System.getProperty("load.app-classpath", System.getProperty("java.class.path")),
+            split(System.getProperty("load.app-jvm-args", "-Xmx512m")),
+            appArgs,
+            Path.of(System.getProperty("load.app-log", "build/loadtest/agent.log")),
+            Duration.ofSeconds(60));
+        target = agent.baseUrl();
+        grpcTarget = agent.grpcTarget();
+        System.out.printf("Agent at %s%n", target);
+      }
+
+      ConnectionProvider connections = ConnectionProvider.builder("load-test")
+          .maxConnections(streamClients + sendClients + 2)
+          .pendingAcquireMaxCount(-1)
+          .build();
+      WebClient webClient = WebClient.builder()
+          .baseUrl(target)
+          .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+          .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(4 * 1024 * 1024))
+          .build();
+
+      if (pushClients > 0) {
+        webhook = new WebhookReceiver().start();
+        System.out.printf("Webhook at %s%n", webhook.url());
+      }
+      if (grpcClients > 0) {
+        // One HTTP/2 connection multiplexes every gRPC stream, as between two agents in the cluster
+        channel = NettyChannelBuilder.forTarget(grpcTarget).usePlaintext().build();
+        System.out.printf("gRPC at %s%n", grpcTarget);
+      }
+      var loadTest = new LoadTest(webClient, skill, webhook, channel == null ? null : A2AServiceGrpc.newStub(channel));
+      if (slowClients > 0) {
+        // Own connections with a small receive buffer, so the agent sees a full socket soon
+        HttpClient slowHttp = HttpClient.create(ConnectionProvider.create("slow-readers", slowClients))
+            .option(ChannelOption.SO_RCVBUF, 4096);
+        loadTest.slowClient = WebClient.builder()
+            .baseUrl(target)
+            .clientConnector(new ReactorClientHttpConnector(slowHttp))
+            .build();
+        loadTest.slowReadDelay = slowReadDelay;
+        System.out.printf("Slow readers: %d, one read every %s%n", slowClients, slowReadDelay);
+      }
+      if (cardSlowSends > 0) {
+        // Own pool, one connection per slow call plus one for the probes, so nothing waits for a connection here
+        loadTest.cardClient = WebClient.builder()
+            .baseUrl(target)
+            .clientConnector(new ReactorClientHttpConnector(
+                HttpClient.create(ConnectionProvider.create("agent-card", cardSlowSends + 1))))
+            .build();
+      }
+      if (warmup > 0) {
+        // Let the agent JIT-compile both paths before anything is measured
+        System.out.printf("Warm-up: %d requests per method%n", warmup);
+        int clients = Math.min(warmup, 10);
+        loadTest.run(clients, clients, Math.max(1, warmup / clients), new Stats());
+        if (grpcClients > 0) {
+          loadTest.grpcStreams(clients, Math.max(1, warmup / clients), new Stats()).blockLast();
+        }
+      }
+
+      System.out.printf("Load: %d stream clients, %d send clients, %d push clients, %d gRPC clients, %d requests each, skill %s%n",
+          streamClients, sendClients, pushClients, grpcClients, requests, skill);
+      var serverSamples = new ServerSamples();
+      Disposable sampler = Flux.interval(Duration.ZERO, Duration.ofSeconds(1))
+          .concatMap(tick -> loadTest.sampleServer(serverSamples))
+          .subscribe();
+
+      var streamStats = new Stats();
+      var sendStats = new Stats();
+      var pushStats = new Stats();
+      var grpcStats = new Stats();
+      var slowStats = new Stats();
+      long started = System.nanoTime();
+      Flux.merge(
+          loadTest.streams(streamClients, requests, streamStats),
+          loadTest.sends(sendClients, requests, sendStats),
+          loadTest.pushes(pushClients, requests, pushStats),
+          loadTest.grpcStreams(grpcClients, requests, grpcStats),
+          loadTest.slowStreams(slowClients, slowStats)
+      ).blockLast();
+      double seconds = (System.nanoTime() - started) / 1e9;
+      sampler.dispose();
+
+      report("message/stream", streamStats, seconds);
+      System.out.println("  time to first event: " + streamStats.firstEvent.summary());
+      System.out.println("  time to completion:  " + streamStats.completion.summary());
+      report("message/send", sendStats, seconds);
+      System.out.println("  time to completion:  " + sendStats.completion.summary());
+      if (pushClients > 0) {
+        report("message/send (non-blocking, push)", pushStats, seconds);
+        System.out.println("  time to submitted:   " + pushStats.firstEvent.summary());
+        System.out.println("  time to final push:  " + pushStats.completion.summary());
+        System.out.printf("  webhook: %d notifications, %d with a wrong token%n",
+            webhook.notifications(), webhook.badToken());
+      }
+      if (grpcClients > 0) {
+        report("grpc SendStreamingMessage", grpcStats, seconds);
+        System.out.println("  time to first event: " + grpcStats.firstEvent.summary());
+        System.out.println("  time to completion:  " + grpcStats.completion.summary());
+      }
+      if (slowClients > 0) {
+        System.out.printf("slow SSE readers: completed=%d cut off=%d%n", slowStats.ok.get(), slowStats.failed.get());
+        System.out.println("  time to completion:  " + slowStats.completion.summary());
+        System.out.println("  agent: " + loadTest.slowConsumerSummary());
+        loadTest.checkSlowConsumers(slowMaxBuffered);
+      }
+      System.out.println("agent: " + serverSamples.summary());
+      System.out.println("upstream: " + loadTest.upstreamSummary(serverSamples));
+      if (hedgeAfterMs > 0) {
+        System.out.println("hedging: " + loadTest.hedgeSummary());
+      }
+      if (batchSize > 0) {
+        loadTest.compareBatch(batchSize);
+      }
+      if (cardSlowSends > 0) {
+        loadTest.compareAgentCard(cardProbes, cardSlowSends, cardSkill, cardFake, cardMaxRatio);
+      }
+      connections.disposeLater().block();
+    } finally {
+      if (agent != null) {
+        agent.close();
+      }
+      if (fake != null) {
+        fake.close();
+      }
+      if (hedgeFake != null) {
+        hedgeFake.close();
+      }
+      if (cardFake != null) {
+        cardFake.close();
+      }
+      if (webhook != null) {
+        webhook.close();
+      }
+      if (channel != null) {
+        channel.shutdownNow();
+      }
+    }
+  }
+
+  private void run(int streamClients, int sendClients, int requests, Stats stats) {
+    Flux.merge(streams(streamClients, requests, stats), sends(sendClients, requests, stats)).blockLast();
+  }
+
+  // Each client issues its requests one after another; clients run concurrently
+  private Flux<Void> streams(int clients, int requests, Stats stats) {
+    return Flux.range(0, clients)
+        .flatMap(c -> Flux.range(0, requests).concatMap(i -> streamOnce(c + "-" + i, stats)), Math.max(1, clients));
+  }
+
+  private Flux<Void> sends(int clients, int requests, Stats stats) {
+    return Flux.range(0, clients)
+        .flatMap(c -> Flux.range(0, requests).concatMap(i -> sendOnce(c + "-" + i, stats)), Math.max(1, clients));
+  }
+
+  private Flux<Void> pushes(int clients, int requests, Stats stats) {
+    return Flux.range(0, clients)
+        .flatMap(c -> Flux.range(0, requests).concatMap(i -> pushOnce(c + "-" + i, stats)), Math.max(1, clients));
+  }
+
+  private Flux<Void> grpcStreams(int clients, int requests, Stats stats) {
+    return Flux.range(0, clients)
+        .flatMap(c -> Flux.range(0, requests).concatMap(i -> grpcStreamOnce(c + "-" + i, stats)), Math.max(1, clients));
+  }
+
+  // One stream per slow client, run alongside the regular clients so their latencies show any effect of the slow ones
+  private Flux<Void> slowStreams(int clients, Stats stats) {
+    return Flux.range(0, clients).flatMap(c -> slowStreamOnce("slow-" + c, stats), Math.max(1, clients));
+  }
+
+  // Raw body, one buffer at a time with a pause after each: the agent sees a client that cannot keep up.
+  // An agent that cuts the client off closes the connection, which ends the body with an error
+  private Mono<Void> slowStreamOnce(String id, Stats stats) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return slowClient.post()
+          .uri("/message/stream")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.TEXT_EVENT_STREAM)
+          .bodyValue(request("message/stream", id))
+          .retrieve()
+          .bodyToFlux(DataBuffer.class)
+          .concatMap(buffer -> {
+            DataBufferUtils.release(buffer);
+            return Mono.delay(slowReadDelay);
+          }, 1)
+          .timeout(Duration.ofMinutes(10))
+          .then(Mono.fromRunnable(() -> {
+            stats.ok.incrementAndGet();
+            stats.completion.record(Duration.ofNanos(System.nanoTime() - start));
+          }))
+          .onErrorResume(ex -> {
+            stats.failed.incrementAndGet();
+            return Mono.empty();
+          })
+          .then();
+    });
+  }
+
+  private String slowConsumerSummary() {
+    var values = Mono.zip(
+            metric("agent.stream.chunks.merged").onErrorReturn(0.0),
+            metric("agent.stream.slow-consumers?tag=reason:overflow").onErrorReturn(0.0),
+            metric("agent.stream.slow-consumers?tag=reason:stalled").onErrorReturn(0.0),
+            statistic("agent.stream.buffered.bytes", "MAX").onErrorReturn(0.0))
+        .block();
+    return "chunks merged=%.0f, disconnected overflow=%.0f stalled=%.0f, peak buffered per connection=%.0fKB".formatted(
+        values.getT1(), values.getT2(), values.getT3(), values.getT4() / 1024);
+  }
+
+  /**
+   * Fails the run when a slow reader made the agent hold more than its outbound budget (plus one event), or when
+   * bytes are still counted as buffered once every stream has ended. Against an agent not started here, pass its
+   * budget as {@code load.slow-max-buffered-kb}.
+   */
+  private void checkSlowConsumers(long maxBufferedBytes) {
+    // Recorded when each connection ends; the max is kept for the last couple of minutes, which covers the slow
+    // streams since they finish last
+    double peak = statistic("agent.stream.buffered.bytes", "MAX").onErrorReturn(0.0).block();
+    if (peak == 0) {
+      System.out.println("  (no slow reader got behind: use longer, faster answers to fill the socket buffers)");
+    }
+    if (peak > maxBufferedBytes + SLOW_EVENT_ALLOWANCE) {
+      throw new IllegalStateException("A slow SSE reader made the agent buffer %.0fKB (budget %dKB)"
+          .formatted(peak / 1024, maxBufferedBytes / 1024));
+    }
+    // Connections are released asynchronously once their stream ends
+    Double left = Flux.interval(Duration.ZERO, Duration.ofMillis(100))
+        .concatMap(tick -> metric("agent.stream.buffered.total").onErrorReturn(0.0))
+        .takeUntil(bytes -> bytes == 0)
+        .take(Duration.ofSeconds(5))
+        .blockLast();
+    if (left != null && left > 0) {
+      throw new IllegalStateException("%.0f bytes still counted as buffered after all SSE streams ended"
+          .formatted(left));
+    }
+  }
+
+  // Same prompt and skill as streamOnce, over SendStreamingMessage
+  private Mono<Void> grpcStreamOnce(String id, Stats stats) {
+    return Mono.create(sink -> {
+      long start = System.nanoTime();
+      var sawFirst = new boolean[1];
+      var request = SendMessageRequest.newBuilder()
+          .setRequest(Message.newBuilder()
+              .setMessageId("g-" + id)
+              .setRole(Role.ROLE_USER)
+              .addContent(Part.newBuilder().setText(prompt("g-" + id))))
+          .putMetadata("skillId", skill)
+          .build();
+      grpc.sendStreamingMessage(request, new StreamObserver<>() {
+        @Override
+        public void onNext(StreamResponse response) {
+          if (!sawFirst[0]) {
+            sawFirst[0] = true;
+            stats.firstEvent.record(Duration.ofNanos(System.nanoTime() - start));
+          }
+        }
+
+        @Override
+        public void onError(Throwable ex) {
+          if (Status.fromThrowable(ex).getCode() == Status.Code.RESOURCE_EXHAUSTED) {
+            stats.rejected.incrementAndGet();
+          } else {
+            stats.failed.incrementAndGet();
+          }
+          sink.success();
+        }
+
+        @Override
+        public void onCompleted() {
+          stats.ok.incrementAndGet();
+          stats.completion.record(Duration.ofNanos(System.nanoTime() - start));
+          sink.success();
+        }
+      });
+    });
+  }
+
+  // The connection is released as soon as the submitted task comes back; completion arrives at the webhook
+  private Mono<Void> pushOnce(String id, Stats stats) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return client.post()
+          .uri("/")
+          .contentType(MediaType.APPLICATION_JSON)
+          .bodyValue(pushRequest("p-" + id))
+          .retrieve()
+          .bodyToMono(JsonNode.class)
+          .flatMap(response -> {
+            String submittedId = response.path("result").path("id").asText(null);
+            if (submittedId == null) {
+              stats.rejected.incrementAndGet();
+              return Mono.empty();
+            }
+            stats.firstEvent.record(Duration.ofNanos(System.nanoTime() - start));
+            return webhook.awaitFinal(submittedId)
+                .timeout(Duration.ofMinutes(2))
+                .doOnNext(state -> {
+                  if ("completed".equals(state)) {
+                    stats.ok.incrementAndGet();
+                    stats.completion.record(Duration.ofNanos(System.nanoTime() - start));
+                  } else {
+                    stats.failed.incrementAndGet();
+                  }
+                });
+          })
+          .onErrorResume(ex -> {
+            if (ex instanceof WebClientResponseException.TooManyRequests) {
+              stats.rejected.incrementAndGet();
+            } else {
+              stats.failed.incrementAndGet();
+            }
+            return Mono.empty();
+          })
+          .then();
+    });
+  }
+
+  private Mono<Void> streamOnce(String id, Stats stats) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      var sawFirst = new boolean[1];
+      var rejected = new boolean[1];
+      return client.post()
+          .uri("/message/stream")
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.TEXT_EVENT_STREAM)
+          .bodyValue(request("message/stream", "s-" + id))
+          .retrieve()
+          .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+          .doOnNext(event -> {
+            if (!sawFirst[0]) {
+              sawFirst[0] = true;
+              stats.firstEvent.record(Duration.ofNanos(System.nanoTime() - start));
+            }
+            if (event.data() != null && event.data().contains("\"error\":{")) {
+              rejected[0] = true;
+            }
+          })
+          .then(Mono.fromRunnable(() -> {
+            if (rejected[0]) {
+              stats.rejected.incrementAndGet();
+            } else {
+              stats.ok.incrementAndGet();
+              stats.completion.record(Duration.ofNanos(System.nanoTime() - start));
+            }
+          }))
+          .onErrorResume(ex -> {
+            if (ex instanceof WebClientResponseException.TooManyRequests) {
+              stats.rejected.incrementAndGet();
+            } else {
+              stats.failed.incrementAndGet();
+            }
+            return Mono.empty();
+          })
+          .then();
+    });
+  }
+
+  private Mono<Void> sendOnce(String id, Stats stats) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return client.post()
+          .uri("/")
+          .contentType(MediaType.APPLICATION_JSON)
+          .bodyValue(request("message/send", "m-" + id))
+          .exchangeToMono(response -> response.bodyToMono(String.class)
+              .defaultIfEmpty("")
+              .doOnNext(body -> {
+                if (response.statusCode().value() == 429 || body.contains("\"error\":{")) {
+                  stats.rejected.incrementAndGet();
+                } else if (response.statusCode().is2xxSuccessful()) {
+                  stats.ok.incrementAndGet();
+                  stats.completion.record(Duration.ofNanos(System.nanoTime() - start));
+                } else {
+                  stats.failed.incrementAndGet();
+                }
+              }))
+          .onErrorResume(ex -> {
+            stats.failed.incrementAndGet();
+            return Mono.empty();
+          })
+          .then();
+    });
+  }
+
+  // Same calls twice, on an otherwise idle agent: one after the other, then as one JSON-RPC batch
+  private void compareBatch(int size) {
+    var sequentialStats = new Stats();
+    long started = System.nanoTime();
+    Flux.range(0, size).concatMap(i -> sendOnce("seq-" + i, sequentialStats)).blockLast();
+    double sequential = (System.nanoTime() - started) / 1e9;
+
+    String batch = IntStream.range(0, size)
+        .mapToObj(i -> request("message/send", "b-" + i))
+        .collect(Collectors.joining(",", "[", "]"));
+    started = System.nanoTime();
+    JsonNode responses = client.post()
+        .uri("/")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(batch)
+        .retrieve()
+        .bodyToMono(JsonNode.class)
+        .block(Duration.ofMinutes(5));
+    double batched = (System.nanoTime() - started) / 1e9;
+    long ok = 0;
+    for (JsonNode response : responses) {
+      if (response.has("result")) {
+        ok++;
+      }
+    }
+
+    System.out.printf("batch comparison, %d message/send calls:%n", size);
+    System.out.printf("  sequential: ok=%d in %.2f s, %.1f calls/s%n", sequentialStats.ok.get(), sequential, size / sequential);
+    System.out.printf("  batch:      ok=%d in %.2f s, %.1f calls/s%n", ok, batched, size / batched);
+  }
+
+  // Agent card latency on an otherwise idle agent, then again while `sends` blocking message/send calls wait on a
+  // slow upstream. Serving the card needs nothing those calls hold, so its p99 should not move
+  private void compareAgentCard(int probes, int sends, String cardSkill, FakeOpenAiServer upstream, double maxRatio)
+      throws InterruptedException {
+    LatencySamples idle = probeAgentCard(probes);
+
+    AtomicLong finished = new AtomicLong();
+    Disposable inFlight = Flux.range(0, sends)
+        .flatMap(i -> cardClient.post()
+            .uri("/")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(request("message/send", "card-" + i, cardSkill, null))
+            .retrieve()
+            .toBodilessEntity()
+            .onErrorResume(ex -> Mono.empty())
+            .doFinally(signal -> finished.incrementAndGet()), sends)
+        .subscribe();
+    LatencySamples loaded;
+    try {
+      awaitUpstreamRequests(upstream, sends);
+      loaded = probeAgentCard(probes);
+    } finally {
+      inFlight.dispose();
+    }
+
+    Duration idleP99 = idle.percentile(99);
+    Duration loadedP99 = loaded.percentile(99);
+    System.out.printf("agent card, %d probes:%n", probes);
+    System.out.println("  idle:                       " + idle.summary());
+    System.out.printf("  %3d slow message/send open: %s%n", sends, loaded.summary());
+    System.out.printf("  p99 ratio: %.2f%n", (double) loadedP99.toNanos() / Math.max(1, idleP99.toNanos()));
+    if (finished.get() > 0) {
+      System.out.printf("  %d slow calls ended during the probes; raise load.card-send-delay-ms%n", finished.get());
+    }
+    // A little absolute slack, so sub-millisecond baselines do not fail on scheduler noise
+    Duration allowed = Duration.ofNanos((long) (idleP99.toNanos() * maxRatio)).plusMillis(2);
+    if (maxRatio > 0 && loadedP99.compareTo(allowed) > 0) {
+      throw new IllegalStateException("Agent card p99 went from %.1fms idle to %.1fms under load (allowed %.1fms)"
+          .formatted(idleP99.toNanos() / 1e6, loadedP99.toNanos() / 1e6, allowed.toNanos() / 1e6));
+    }
+  }
+
+  // One probe at a time, on one kept-alive connection: pure request latency, no connect
+  private LatencySamples probeAgentCard(int probes) {
+    var samples = new LatencySamples();
+    Flux.range(0, probes)
+        .concatMap(i -> Mono.defer(() -> {
+          long start = System.nanoTime();
+          return cardClient.get()
+              .uri("/.well-known/agent-card.json")
+              .retrieve()
+              .toBodilessEntity()
+              .doOnNext(response -> samples.record(Duration.ofNanos(System.nanoTime() - start)));
+        }))
+        .blockLast(Duration.ofMinutes(5));
+    return samples;
+  }
+
+  // The slow calls count as in flight once they reached the stub; against a running agent there is no stub to ask
+  private static void awaitUpstreamRequests(FakeOpenAiServer upstream, int sends) throws InterruptedException {
+    if (upstream == null) {
+      Thread.sleep(2_000);
+      return;
+    }
+    long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+    while (upstream.requests() < sends && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    if (upstream.requests() < sends) {
+      System.out.printf("  only %d of %d slow calls reached the upstream (admission capacity?)%n", upstream.requests(), sends);
+    }
+  }
+
+  private Mono<Void> sampleServer(ServerSamples samples) {
+    return Mono.zip(metric("process.cpu.usage"), metric("jvm.memory.used?tag=area:heap"))
+        .doOnNext(values -> samples.record(values.getT1(), values.getT2()))
+        .onErrorResume(ex -> Mono.empty())
+        .then(Mono.zip(upstreamMetric("reactor.netty.connection.provider.active.connections"),
+                upstreamMetric("reactor.netty.connection.provider.pending.connections"))
+            .doOnNext(values -> samples.recordUpstream(values.getT1(), values.getT2())))
+        .then();
+  }
+
+  // Few connections and TLS handshakes for many requests means the agent's upstream pool is reused
+  private String upstreamSummary(ServerSamples samples) {
+    var totals = Mono.zip(
+            upstreamMetric("reactor.netty.connection.provider.total.connections"),
+            metric("reactor.netty.http.client.connect.time").onErrorReturn(0.0),
+            metric("reactor.netty.http.client.tls.handshake.time").onErrorReturn(0.0))
+        .block();
+    synchronized (samples) {
+      return "pool total=%.0f active max=%.0f pending max=%.0f, connects=%.0f, tls handshakes=%.0f".formatted(
+          totals.getT1(), samples.upstreamActiveMax, samples.upstreamPendingMax, totals.getT2(), totals.getT3());
+    }
+  }
+
+  private String hedgeSummary() {
+    var counts = Mono.zip(
+            metric("agent.llm.hedge.fired").onErrorReturn(0.0),
+            metric("agent.llm.hedge.won?tag=winner:hedge").onErrorReturn(0.0),
+            metric("agent.llm.hedge.won?tag=winner:primary").onErrorReturn(0.0))
+        .block();
+    return "fired=%.0f, won by hedge=%.0f, won by primary=%.0f".formatted(counts.getT1(), counts.getT2(), counts.getT3());
+  }
+
+  // Pool gauges only exist once the pool has a connection; absent counts as zero
+  private Mono<Double> upstreamMetric(String name) {
+    return metric(name + "?tag=name:upstream").onErrorReturn(0.0);
+  }
+
+  private Mono<Double> metric(String path) {
+    return client.get()
+        .uri("/actuator/metrics/" + path)
+        .retrieve()
+        .bodyToMono(JsonNode.class)
+        .map(json -> json.path("measurements").path(0).path("value").asDouble());
+  }
+
+  private Mono<Double> statistic(String name, String statistic) {
+    return client.get()
+        .uri("/actuator/metrics/" + name)
+        .retrieve()
+        .bodyToMono(JsonNode.class)
+        .map(json -> {
+          for (JsonNode measurement : json.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+              return measurement.path("value").asDouble();
+            }
+          }
+          return 0.0;
+        });
+  }
+
+  /** Non-blocking message/send whose updates go to the webhook, with the token the receiver checks. */
+  private String pushRequest(String id) {
+    return request("message/send", id, Map.of(
+        "blocking", false,
+        "pushNotificationConfig", Map.of("url", webhook.url(), "token", webhook.token())));
+  }
+
+  // Every prompt is distinct so single-flight and the cache never collapse requests
+  private static String prompt(String id) {
+    return "Load test prompt " + id + ": explain HTTP streaming.";
+  }
+
+  private String request(String method, String id) {
+    return request(method, id, null);
+  }
+
+  private String request(String method, String id, Map<String, Object> configuration) {
+    return request(method, id, skill, configuration);
+  }
+
+  private String request(String method, String id, String skillId, Map<String, Object> configuration) {
+    Map<String, Object> message = Map.of(
+        "role", "user",
+        "parts", List.of(Map.of("kind", "text", "text", prompt(id))),
+        "messageId", id);
+    Map<String, Object> body = Map.of(
+        "jsonrpc", "2.0",
+        "id", id,
+        "method", method,
+        "params", configuration == null
+            ? Map.of("message", message, "metadata", Map.of("skillId", skillId))
+            : Map.of("message", message, "metadata", Map.of("skillId", skillId), "configuration", configuration));
+    try {
+      return MAPPER.writeValueAsString(body);
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static void report(String method, Stats stats, double seconds) {
+    System.out.printf("%s: ok=%d rejected=%d failed=%d, %.1f req/s%n",
+        method, stats.ok.get(), stats.rejected.get(), stats.failed.get(), stats.ok.get() / seconds);
+  }
+
+  private static List<String> split(String value) {
+    return value.isBlank() ? List.of() : Arrays.asList(value.trim().split("\\s+"));
+  }
+}
@@ -0,0 +1,162 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold-start benchmark: starts the agent {@code load.startup-runs} times (after {@code load.startup-warmup}
+ * discarded launches, which warm the OS file cache) and reports, per launch,
+ * <ul>
+ *   <li>time to healthy: from starting the JVM to the first 200 from /actuator/health, as an autoscaler sees it;</li>
+ *   <li>ready time: Spring's own application.ready.time, which leaves out JVM startup;</li>
+ *   <li>first and second message/send: the latency of the first user requests, which pay for whatever startup
+ *   deferred (model clients, signing keys, class loading and JIT of the request path).</li>
+ * </ul>
+ * The agent runs with security on, with a static JWK set written here, and against {@link FakeOpenAiServer}, so no
+ * issuer or LLM endpoint is needed and the fake's short latency is the only upstream cost. Compare
+ * {@code ./gradlew startupBench} with {@code ./gradlew startupBench -PfastStart} (Spring AOT and a CDS archive).
+ */
+public final class StartupBenchmark {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public static void main(String[] args) throws Exception {
+    int runs = Integer.getInteger("load.startup-runs", 5);
+    int warmup = Integer.getInteger("load.startup-warmup", 1);
+    String mode = System.getProperty("load.startup-mode", "default");
+    String skill = System.getProperty("load.skill", "openai.brief");
+    // Must match spring.security.oauth2.resourceserver.jwt.issuer-uri: tokens are checked against it
+    String issuer = System.getProperty("load.issuer", "http://app-keycloak:8080/realms/app");
+    Path workDir = Path.of(System.getProperty("load.startup-dir", "build/startup"));
+
+    int tokens = Integer.getInteger("fake.tokens", 20);
+    Duration firstTokenLatency = Duration.ofMillis(Long.getLong("fake.first-token-ms", 20));
+    Duration tokenDelay = Duration.ofMillis(Long.getLong("fake.token-delay-ms", 1));
+
+    Files.createDirectories(workDir);
+    RSAKey key = new RSAKeyGenerator(2048).keyID("startup-bench").generate();
+    Path jwks = workDir.resolve("jwks.json");
+    Files.writeString(jwks, new JWKSet(key.toPublicJWK()).toString());
+    String token = token(key, issuer);
+
+    var timeToHealthy = new LatencySamples();
+    var readyTime = new LatencySamples();
+    var firstSend = new LatencySamples();
+    var secondSend = new LatencySamples();
+    HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    try (var fake = new FakeOpenAiServer(tokens, firstTokenLatency, tokenDelay, false).start()) {
+      List<String> appArgs = new ArrayList<>(List.of(
+          "--spring.ai.openai.base-url=" + fake.baseUrl(),
+          "--spring.ai.openai.api-key=startup-bench",
+          "--app.security.jwt.jwk-set-location=file:" + jwks.toAbsolutePath(),
+          "--app.cache.enabled=false"));
+      appArgs.addAll(split(System.getProperty("load.app-args", "")));
+      List<String> jvmArgs = split(System.getProperty("load.app-jvm-args", "-Xmx512m"));
+      String classpath = System.getProperty("load.app-classpath", System.getProperty("java.class.path"));
+      System.out.printf("Startup benchmark (%s): %d runs after %d warm-up launches%n  jvm args: %s%n  app args: %s%n",
+          mode, runs, warmup, jvmArgs, appArgs);
+
+      for (int run = -warmup; run < runs; run++) {
+        Path log = workDir.resolve("agent-" + mode + "-" + (run < 0 ? "warmup" + (-run) : run) + ".log");
+        try (var agent = AgentProcess.launch(classpath, jvmArgs, appArgs, log, Duration.ofSeconds(120), token)) {
+          Duration startup = agent.startupTime();
+          Duration ready = readyTime(http, agent.baseUrl(), token);
+          Duration first = send(http, agent.baseUrl(), token, skill, "first-" + run);
+          Duration second = send(http, agent.baseUrl(), token, skill, "second-" + run);
+          if (run < 0) continue;
+          timeToHealthy.record(startup);
+          if (ready != null) readyTime.record(ready);
+          firstSend.record(first);
+          secondSend.record(second);
+          System.out.printf("  run %d: healthy after %d ms, ready.time %s, first send %d ms, second send %d ms%n",
+              run, startup.toMillis(), ready == null ? "n/a" : ready.toMillis() + " ms",
+              first.toMillis(), second.toMillis());
+        }
+      }
+    }
+
+    System.out.println("Startup (" + mode + "):");
+    System.out.println("  time to healthy:     " + timeToHealthy.summary());
+    System.out.println("  application ready:   " + readyTime.summary());
+    System.out.println("  first message/send:  " + firstSend.summary());
+    System.out.println("  second message/send: " + secondSend.summary());
+  }
+
+  private static Duration send(HttpClient http, String baseUrl, String token, String skill, String id)
+      throws Exception {
+    Map<String, Object> message = Map.of(
+        "role", "user",
+        "parts", List.of(Map.of("kind", "text", "text", "Startup benchmark prompt " + id)),
+        "messageId", id);
+    String body = MAPPER.writeValueAsString(Map.of(
+        "jsonrpc", "2.0",
+        "id", id,
+        "method", "message/send",
+        "params", Map.of("message", message, "metadata", Map.of("skillId", skill))));
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/"))
+        .header("Content-Type", "application/json")
+        .header("Authorization", "Bearer " + token)
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    long start = System.nanoTime();
+    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+    Duration latency = Duration.ofNanos(System.nanoTime() - start);
+    if (response.statusCode() != 200 || response.body().contains("\"error\":{")) {
+      throw new IllegalStateException("message/send failed with " + response.statusCode() + ": " + response.body());
+    }
+    return latency;
+  }
+
+  // Spring Boot's application.ready.time gauge, in seconds; null if metrics are not exposed
+  private static Duration readyTime(HttpClient http, String baseUrl, String token) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/application.ready.time"))
+        .header("Authorization", "Bearer " + token)
+        .GET()
+        .build();
+    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      return null;
+    }
+    JsonNode value = MAPPER.readTree(response.body()).path("measurements").path(0).path("value");
+    return value.isNumber() ? Duration.ofNanos((long) (value.asDouble() * 1e9)) : null;
+  }
+
+  private static String token(RSAKey key, String issuer) throws Exception {
+    var claims = new JWTClaimsSet.Builder()
+        .issuer(issuer)
+        .subject("startup-bench")
+        .issueTime(new Date())
+        .expirationTime(Date.from(Instant.now().plus(Duration.ofHours(1))))
+        .build();
+    var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+    jwt.sign(new RSASSASigner(key));
+    return jwt.serialize();
+  }
+
+  private static List<String> split(String value) {
+    return value.isBlank() ? List.of() : Arrays.asList(value.trim().split("\\s+"));
+  }
+}
@@ -0,0 +1,102 @@
+package fredlab.dev.samples.a2a.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local push-notification webhook: records every task the agent POSTs and completes {@link #awaitFinal} once a
+ * task reaches a final state. Counts notifications that do not carry the token the load test registered.
+ */
+final class WebhookReceiver implements AutoCloseable {
+
+  private static final Set<String> FINAL_STATES = Set.of("completed", "failed", "canceled", "rejected");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, Sinks.One<String>> finals = new ConcurrentHashMap<>();
+  private final AtomicLong notifications = new AtomicLong();
+  private final AtomicLong badToken = new AtomicLong();
+  private final String token = UUID.randomUUID().toString();
+  private DisposableServer server;
+
+  WebhookReceiver start() {
+    server = HttpServer.create()
+        .host("127.0.0.1")
+        .port(0)
+        .route(routes -> routes.post("/webhook", this::receive))
+        .bindNow();
+    return this;
+  }
+
+  String url() {
+    return "http://127.0.0.1:" + server.port() + "/webhook";
+  }
+
+  String token() {
+    return token;
+  }
+
+  /** Final state of the task, whenever its notification arrives (before or after this call). */
+  Mono<String> awaitFinal(String taskId) {
+    return sink(taskId).asMono().doFinally(signal -> finals.remove(taskId));
+  }
+
+  long notifications() {
+    return notifications.get();
+  }
+
+  long badToken() {
+    return badToken.get();
+  }
+
+  @Override
+  public void close() {
+    if (server != null) {
+      server.disposeNow();
+    }
+  }
+
+  private Publisher<Void> receive(HttpServerRequest request, HttpServerResponse response) {
+    String received = request.requestHeaders().get("X-A2A-Notification-Token");
+    return request.receive().aggregate().asString()
+        .flatMap(body -> {
+          notifications.incrementAndGet();
+          JsonNode task = readTree(body);
+          String taskId = task.path("id").asText();
+          if (!token.equals(received)) {
+            badToken.incrementAndGet();
+          }
+          String state = task.path("status").path("state").asText();
+          if (FINAL_STATES.contains(state)) {
+            sink(taskId).tryEmitValue(state);
+          }
+          return response.status(HttpResponseStatus.NO_CONTENT).send().then();
+        })
+        .onErrorResume(ex -> response.status(HttpResponseStatus.BAD_REQUEST).send().then());
+  }
+
+  private JsonNode readTree(String body) {
+    try {
+      return objectMapper.readTree(body);
+    } catch (Exception ex) {
+      throw new IllegalArgumentException("Invalid notification body", ex);
+    }
+  }
+
+  private Sinks.One<String> sink(String taskId) {
+    return finals.computeIfAbsent(taskId, id -> Sinks.one());
+  }
+}
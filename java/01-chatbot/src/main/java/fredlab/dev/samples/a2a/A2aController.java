@@ -1,35 +1,87 @@
 package fredlab.dev.samples.a2a;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import fredlab.dev.samples.a2a.model.A2aTypes;
 import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.lang.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 @RestController
 public class A2aController {
 
   private static final Logger log = LoggerFactory.getLogger(A2aController.class);
-
-  private final AgentService agentService;
-
-  public A2aController(AgentService agentService) {
-    this.agentService = agentService;
+  private static final JsonRpc.Request INVALID_REQUEST = new JsonRpc.Request(null, null, null, null);
+
+  private final AgentTasks agentTasks;
+  private final TaskStore taskStore;
+  private final AdmissionControl admissionControl;
+  private final AgentMetrics metrics;
+  private final SseFrameEncoder sseEncoder;
+  private final SlowConsumerGuard slowConsumerGuard;
+  private final RequestLog requestLog;
+  private final PushNotifier pushNotifier;
+  private final A2aGrpcServer grpcServer;
+  private final ObjectMapper objectMapper;
+  private final ObjectReader requestReader;
+  private final int maxBatchSize;
+  private final int batchConcurrency;
+
+  public A2aController(AgentTasks agentTasks, TaskStore taskStore, AdmissionControl admissionControl,
+                       AgentMetrics metrics, SseFrameEncoder sseEncoder, SlowConsumerGuard slowConsumerGuard,
+                       RequestLog requestLog, PushNotifier pushNotifier, A2aGrpcServer grpcServer,
+                       ObjectMapper objectMapper,
+                       @Value("${app.jsonrpc.batch.max-size:50}") int maxBatchSize,
+                       @Value("${app.jsonrpc.batch.concurrency:8}") int batchConcurrency) {
+    this.agentTasks = agentTasks;
+    this.taskStore = taskStore;
+    this.admissionControl = admissionControl;
+    this.metrics = metrics;
+    this.sseEncoder = sseEncoder;
+    this.slowConsumerGuard = slowConsumerGuard;
+    this.requestLog = requestLog;
+    this.pushNotifier = pushNotifier;
+    this.grpcServer = grpcServer;
+    this.objectMapper = objectMapper;
+    this.requestReader = objectMapper.readerFor(JsonRpc.Request.class);
+    this.maxBatchSize = maxBatchSize;
+    this.batchConcurrency = Math.max(1, batchConcurrency);
   }
 
   /**
@@ -38,166 +90,485 @@ public class A2aController {
    */
   @GetMapping(path = "/.well-known/agent-card.json", produces = MediaType.APPLICATION_JSON_VALUE)
   public A2aTypes.AgentCard agentCard() {
-    log.info("Serving agent card");
-    return buildAgentCard();
+    log.debug("Serving agent card");
+    return buildAgentCard(pushNotifier.enabled(), grpcServer.advertisedUrl());
   }
 
   /**
    * JSON-RPC endpoint for A2A methods.
    * Your client typically uses the AgentCard.url for the RPC endpoint.
+   * A JSON array is a JSON-RPC 2.0 batch: its calls run concurrently (see {@link #batchConcurrency}) and their
+   * responses come back as one array in request order, or, with {@code Accept: application/x-ndjson}, one line per
+   * response as each call completes. Notifications (calls without an id) run but get no response; a notification, or
+   * a batch of only notifications, answers 204 with no body.
    */
-  @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public Mono<JsonRpc.Response> jsonRpc(@RequestBody JsonRpc.Request req,
-                                        @AuthenticationPrincipal Jwt jwt) {
-    if (req == null || req.method() == null) {
-      return Mono.just(JsonRpc.Response.err(null, -32600, "Invalid Request"));
-    }
-
+  @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public Publisher<JsonRpc.Response> jsonRpc(@RequestBody byte[] body,
+                                             @AuthenticationPrincipal Jwt jwt,
+                                             ServerHttpRequest httpRequest,
+                                             ServerHttpResponse httpResponse) {
     String username = jwt != null ? jwt.getClaimAsString("preferred_username") : "anonymous";
     String subject = jwt != null ? jwt.getSubject() : "unknown";
-    log.info("[AUTH] Received call from user: {} (sub: {})", username, subject);
-    log.info("[A2A-PROTOCOL] Received JSON-RPC request: {}", req);
+    // Full requests and responses only at DEBUG: the structured RequestLog event covers normal operation
+    log.debug("[AUTH] Received call from user: {} (sub: {})", username, subject);
+
+    // Decoded in one pass straight from the body bytes: each request, and its params record, as the tokens arrive
+    List<JsonRpc.Request> batch = new ArrayList<>();
+    try (JsonParser parser = objectMapper.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        JsonRpc.Request req = readRequest(parser);
+        if (req.notification()) {
+          httpResponse.setStatusCode(HttpStatus.NO_CONTENT);
+          return dispatch(req, subject, null).then(Mono.<JsonRpc.Response>empty());
+        }
+        return dispatch(req, subject, httpResponse);
+      }
+      for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+        if (token == null) {
+          throw new JsonParseException(parser, "Unterminated batch");
+        }
+        if (batch.size() == maxBatchSize) {
+          metrics.recordError("batch", -32600);
+          return Mono.just(JsonRpc.Response.err(null, -32600, "Invalid Request: batch larger than " + maxBatchSize));
+        }
+        batch.add(readRequest(parser));
+      }
+    } catch (IOException ex) {
+      metrics.recordError("invalid", -32700);
+      return Mono.just(JsonRpc.Response.err(null, -32700, "Parse error"));
+    }
+    if (batch.isEmpty()) {
+      metrics.recordError("batch", -32600);
+      return Mono.just(JsonRpc.Response.err(null, -32600, "Invalid Request: empty batch"));
+    }
+
+    log.debug("[A2A-PROTOCOL] Received JSON-RPC batch of {} requests", batch.size());
+    metrics.recordBatch(batch.size());
+    boolean streamed = httpRequest.getHeaders().getAccept().stream()
+        .anyMatch(MediaType.APPLICATION_NDJSON::isCompatibleWith);
+    // No HTTP response passed down: one rejected call must not turn the whole batch into a 429
+    Function<JsonRpc.Request, Mono<JsonRpc.Response>> call = req -> dispatch(req, subject, null)
+        .onErrorResume(ex -> Mono.just(JsonRpc.Response.err(req.id(), -32603, "Internal error: " + ex.getMessage())))
+        .filter(res -> !req.notification());
+    if (batch.stream().allMatch(JsonRpc.Request::notification)) {
+      httpResponse.setStatusCode(HttpStatus.NO_CONTENT);
+      return Flux.fromIterable(batch).flatMap(call, batchConcurrency(batch)).then(Mono.<JsonRpc.Response>empty());
+    }
+    Flux<JsonRpc.Request> items = Flux.fromIterable(batch);
+    int concurrency = batchConcurrency(batch);
+    return streamed
+        ? items.flatMap(call, concurrency)
+        : items.flatMapSequential(call, concurrency);
+  }
+
+  /**
+   * Calls of a batch in flight at once: {@code app.jsonrpc.batch.concurrency}, but no more than the caller's admission
+   * capacity holds calls of the batch's heaviest skill. All calls of a batch are admitted for the same subject, so
+   * any beyond that would only wait in its admission queue behind the batch's own calls, and time out there.
+   */
+  private int batchConcurrency(List<JsonRpc.Request> batch) {
+    int concurrency = batchConcurrency;
+    for (JsonRpc.Request req : batch) {
+      if ("message/send".equals(req.method())) {
+        String skill = AgentTasks.resolvedSkill(extractSkillId(req.params(A2aTypes.MessageSendParams.class)));
+        concurrency = Math.min(concurrency, admissionControl.concurrentCalls(skill));
+      }
+    }
+    return concurrency;
+  }
+
+  /**
+   * One JSON-RPC call. {@code httpResponse} is null for calls inside a batch.
+   */
+  private Mono<JsonRpc.Response> dispatch(JsonRpc.Request req, String subject, @Nullable ServerHttpResponse httpResponse) {
+    if (req.method() == null) {
+      metrics.recordError("invalid", -32600);
+      return Mono.just(JsonRpc.Response.err(req.id(), -32600, "Invalid Request"));
+    }
 
-    JsonRpc.Response response = switch (req.method()) {
-      case "message/send" -> handleMessageSend(req);
+    log.debug("[A2A-PROTOCOL] Received JSON-RPC request: {}", req);
+    RequestLog.Entry entry = requestLog.start(req.method(), req.id(), subject);
+    if (req.params() instanceof JsonRpc.InvalidParams invalid) {
+      return Mono.just(invalidParams(req, invalid, entry));
+    }
+
+    Mono<JsonRpc.Response> response = switch (req.method()) {
+      case "message/send" -> handleMessageSend(req, subject, httpResponse, entry);
+      case "tasks/get" -> Mono.fromCallable(() -> handleTasksGet(req, subject));
+      case "tasks/cancel" -> Mono.fromCallable(() -> handleTasksCancel(req, subject));
+      case "tasks/pushNotificationConfig/set", "tasks/pushNotificationConfig/get",
+           "tasks/pushNotificationConfig/list", "tasks/pushNotificationConfig/delete" ->
+          // set resolves the webhook host (blocking DNS): off the event loop
+          Mono.fromCallable(() -> handlePushNotificationConfig(req, subject)).subscribeOn(Schedulers.boundedElastic());
       case "agent/getAuthenticatedExtendedCard" ->
-          JsonRpc.Response.err(req.id(), -32007, "AuthenticatedExtendedCardNotConfiguredError");
-      case "message/stream" ->
-          JsonRpc.Response.err(req.id(), -32601, "Streaming not supported on this endpoint. Use /message/stream.");
-      default -> JsonRpc.Response.err(req.id(), -32601, "Method not found: " + req.method());
+          Mono.just(JsonRpc.Response.err(req.id(), -32007, "AuthenticatedExtendedCardNotConfiguredError"));
+      case "message/stream", "tasks/resubscribe" ->
+          Mono.just(JsonRpc.Response.err(req.id(), -32601, "Streaming not supported on this endpoint. Use /message/stream."));
+      default -> Mono.just(JsonRpc.Response.err(req.id(), -32601, "Method not found: " + req.method()));
     };
 
-    log.info("[A2A-PROTOCOL] Sending JSON-RPC response: {}", response);
-    return Mono.just(response);
+    return response.doOnNext(res -> {
+      if (res.error() != null) {
+        metrics.recordError(req.method(), res.error().code());
+        entry.error(res.error().code());
+      }
+      entry.finish();
+      log.debug("[A2A-PROTOCOL] Sending JSON-RPC response: {}", res);
+    });
+  }
+
+  // Anything other than an object (a batch item like 1 or "x") is a request without method, answered with -32600
+  private JsonRpc.Request readRequest(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return INVALID_REQUEST;
+    }
+    return requestReader.readValue(parser);
+  }
+
+  private JsonRpc.Response invalidParams(JsonRpc.Request req, JsonRpc.InvalidParams invalid, RequestLog.Entry entry) {
+    metrics.recordError(req.method(), -32602);
+    entry.error(-32602).finish("error");
+    return JsonRpc.Response.err(req.id(), -32602, "Invalid params: " + invalid.message());
   }
 
   /**
-   * Streaming endpoint for message/stream (SSE).
+   * Streaming endpoint for message/stream and tasks/resubscribe (SSE).
+   * Each event carries its sequence number as SSE id, so a reconnecting client can send Last-Event-ID
+   * to tasks/resubscribe and only get the events it missed.
+   * Frames are written by {@link SseFrameEncoder} straight into the response buffers and flushed one by one,
+   * as fast as the client reads them: {@link SlowConsumerGuard} holds (and merges) what it has not taken yet.
    */
   @PostMapping(path = "/message/stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public Flux<ServerSentEvent<Object>> messageStream(@RequestBody(required = false) @Nullable JsonRpc.Request req,
-                                                     @AuthenticationPrincipal Jwt jwt) {
+  public Mono<Void> messageStream(@RequestBody(required = false) @Nullable JsonRpc.Request req,
+                                  @RequestHeader(name = "Last-Event-ID", required = false) @Nullable String lastEventId,
+                                  @AuthenticationPrincipal Jwt jwt,
+                                  ServerHttpResponse httpResponse) {
     String username = jwt != null ? jwt.getClaimAsString("preferred_username") : "anonymous";
     String subject = jwt != null ? jwt.getSubject() : "unknown";
-    log.info("[AUTH] Received streaming call from user: {} (sub: {})", username, subject);
-    log.info("[A2A-PROTOCOL] Received streaming request: {}", req);
+    log.debug("[AUTH] Received streaming call from user: {} (sub: {})", username, subject);
+    log.debug("[A2A-PROTOCOL] Received streaming request: {}", req);
+    RequestLog.Entry entry = requestLog.start(req == null ? "invalid" : req.method(), req == null ? null : req.id(), subject);
+
+    DataBufferFactory bufferFactory = httpResponse.bufferFactory();
+    if (req != null && req.params() instanceof JsonRpc.InvalidParams invalid) {
+      return writeEvents(httpResponse, Flux.just(sseEncoder.encode(bufferFactory, invalidParams(req, invalid, entry))));
+    }
+    if (req != null && "tasks/resubscribe".equals(req.method())) {
+      return writeEvents(httpResponse, finishOnTermination(handleResubscribe(req, subject, lastEventId, bufferFactory, entry), entry));
+    }
 
     if (req == null || !"message/stream".equals(req.method())) {
       Object requestId = req == null ? null : req.id();
-      return Flux.just(ServerSentEvent.<Object>builder(JsonRpc.Response.err(requestId, -32600, "Expected JSON-RPC method message/stream")).build());
+      metrics.recordError(req == null ? "invalid" : req.method(), -32600);
+      entry.error(-32600).finish("error");
+      return writeEvents(httpResponse, Flux.just(sseEncoder.encode(bufferFactory,
+          JsonRpc.Response.err(requestId, -32600, "Expected JSON-RPC method message/stream"))));
     }
+    var params = req.params(A2aTypes.MessageSendParams.class);
 
+    long startNanos = System.nanoTime();
     String taskId = UUID.randomUUID().toString();
-    String contextId = UUID.randomUUID().toString();
+    // A client continuing a conversation sends the contextId it got back; otherwise this starts a new one
+    String contextId = contextIdOrNew(params);
     Object requestId = req.id() != null ? req.id() : UUID.randomUUID().toString();
-    String userText = extractUserText(req.params());
-    String skillId = extractSkillId(req.params());
-    log.info("[BUSINESS] message/stream: id={} task={} ctx={} skill={} text='{}'", requestId, taskId, contextId, resolvedSkill(skillId), userText);
-
-    var userMessage = new A2aTypes.Message(
-        "user",
-        List.of(new A2aTypes.TextPart("text", userText)),
-        UUID.randomUUID().toString(),
-        taskId,
-        contextId
-    );
+    String userText = extractUserText(params);
+    String skillId = extractSkillId(params);
+    log.debug("[BUSINESS] message/stream: id={} task={} ctx={} skill={}", requestId, taskId, contextId, AgentTasks.resolvedSkill(skillId));
+    entry.task(taskId, AgentTasks.resolvedSkill(skillId)).prompt(userText);
+
+    // Queue fairly behind other users' calls; the permit is held until the generation ends
+    return writeEvents(httpResponse, finishOnTermination(admissionControl.acquire(subject, AgentTasks.resolvedSkill(skillId))
+        .flatMapMany(permit -> startStreamingTask(requestId, taskId, contextId, subject, userText, skillId, permit,
+            startNanos, bufferFactory, entry))
+        .onErrorResume(AdmissionControl.RejectedException.class, ex -> {
+          metrics.recordError("message/stream", -32029);
+          entry.error(-32029);
+          return Flux.just(sseEncoder.encode(bufferFactory, tooManyRequests(requestId, ex, httpResponse)));
+        }), entry));
+  }
 
-    var submittedTask = new A2aTypes.Task(
-        taskId,
-        contextId,
-        new A2aTypes.TaskStatus("submitted"),
-        null,
-        List.of(userMessage),
-        A2aTypes.KIND_TASK,
-        Map.of()
-    );
+  // One request event per SSE connection, logged when it ends: completed, failed or dropped by the client
+  private Flux<DataBuffer> finishOnTermination(Flux<DataBuffer> frames, RequestLog.Entry entry) {
+    return frames
+        .doOnError(SlowConsumerGuard.SlowConsumerException.class, ex -> entry.finish("slow-" + ex.reason()))
+        .doFinally(signal -> {
+          switch (signal) {
+            case ON_COMPLETE -> entry.finish();
+            case CANCEL -> entry.finish("disconnected");
+            default -> entry.finish("error");
+          }
+        });
+  }
 
-    var workingUpdate1 = new A2aTypes.TaskStatusUpdateEvent(
-        taskId,
-        contextId,
-        new A2aTypes.TaskStatus(
-            "working",
-            new A2aTypes.Message(
-                "agent",
-                List.of(new A2aTypes.TextPart("text", "Thinking about your request...")),
-                UUID.randomUUID().toString(),
-                taskId,
-                contextId
-            )
-        ),
-        false
-    );
+  private Mono<Void> writeEvents(ServerHttpResponse httpResponse, Flux<DataBuffer> frames) {
+    httpResponse.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+    // One flush per frame so every event reaches the client as soon as it is produced
+    return httpResponse.writeAndFlushWith(oneFrameAtATime(frames)
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release))
+        // A slow client is cut off, not sent an end of stream: closing also drops what its socket still holds
+        .onErrorResume(SlowConsumerGuard.SlowConsumerException.class, ex -> {
+          if (ServerHttpResponseDecorator.getNativeResponse(httpResponse) instanceof Connection connection) {
+            connection.dispose();
+          }
+          return Mono.empty();
+        });
+  }
 
-    var workingUpdate2 = new A2aTypes.TaskStatusUpdateEvent(
-        taskId,
-        contextId,
-        new A2aTypes.TaskStatus(
-            "working",
-            new A2aTypes.Message(
-                "agent",
-                List.of(new A2aTypes.TextPart("text", "Drafting the response in chunks...")),
-                UUID.randomUUID().toString(),
-                taskId,
-                contextId
-            )
-        ),
-        false
-    );
+  /**
+   * Each frame as its own flush group, handed over one at a time. reactor-netty prefetches 32 groups from
+   * writeAndFlushWith, whatever the socket does, which would pull up to 32 frames out of the {@link SlowConsumerGuard}
+   * and past its byte budget. Here the next frame is only requested once reactor-netty starts writing the previous one,
+   * that is once the frame before it reached the socket: beyond the guard's buffer, a connection holds at most the
+   * frame being written and the next one.
+   */
+  private static Flux<Mono<DataBuffer>> oneFrameAtATime(Flux<DataBuffer> frames) {
+    return frames.concatMap(frame -> {
+      // Taken either by the write or, if the response goes away first, by the release
+      var taken = new AtomicBoolean();
+      Sinks.Empty<Void> writing = Sinks.empty();
+      Mono<DataBuffer> group = Mono.defer(() -> {
+        if (!taken.compareAndSet(false, true)) {
+          return Mono.empty();
+        }
+        writing.tryEmitEmpty();
+        return Mono.just(frame);
+      });
+      return Mono.just(group)
+          .concatWith(writing.asMono().then(Mono.<Mono<DataBuffer>>empty()))
+          .doOnCancel(() -> {
+            if (taken.compareAndSet(false, true)) {
+              DataBufferUtils.release(frame);
+            }
+          });
+    }, 0);
+  }
 
-    String artifactId = UUID.randomUUID().toString();
-    var first = new AtomicBoolean(true);
-
-    Flux<ServerSentEvent<Object>> chunks = agentService.stream(userText, skillId)
-        .filter(chunk -> chunk != null && !chunk.isBlank())
-        .map(chunk -> {
-          Boolean append = first.getAndSet(false) ? null : Boolean.TRUE;
-          var artifactUpdate = new A2aTypes.TaskArtifactUpdateEvent(
-              taskId,
-              contextId,
-              new A2aTypes.Artifact(
-                  artifactId,
-                  "answer",
-                  List.of(new A2aTypes.TextPart("text", chunk))
-              ),
-              append,
-              null,
-              null
-          );
-          return ServerSentEvent.<Object>builder(JsonRpc.Response.ok(requestId, artifactUpdate)).build();
-        });
+  private Flux<DataBuffer> startStreamingTask(Object requestId, String taskId, String contextId, String subject,
+                                              String userText, String skillId, AdmissionControl.Permit permit,
+                                              long startNanos, DataBufferFactory bufferFactory, RequestLog.Entry entry) {
+    // The generation runs detached from this connection; the client just follows the task's events
+    TaskStore.TaskRecord task = agentTasks.startStreaming(taskId, contextId, subject, userText, skillId, permit,
+        "message/stream", startNanos);
+    entry.answerLength(task::answerLength);
+    return toFrames(bufferFactory, requestId, task, taskStore.follow(task, 0), entry);
+  }
 
-    var completedStatus = new A2aTypes.TaskStatusUpdateEvent(
-        taskId,
-        contextId,
-        new A2aTypes.TaskStatus("completed"),
-        true
-    );
+  private Flux<DataBuffer> handleResubscribe(JsonRpc.Request req, String subject, String lastEventId,
+                                             DataBufferFactory bufferFactory, RequestLog.Entry entry) {
+    Object requestId = req.id() != null ? req.id() : UUID.randomUUID().toString();
+    var params = req.params(A2aTypes.TaskIdParams.class);
+    // Another subject's task is reported exactly like an unknown one
+    TaskStore.TaskRecord task = taskStore.get(params == null ? null : params.id(), subject);
+    log.debug("[BUSINESS] tasks/resubscribe: id={} task={} lastEventId={}", requestId, params == null ? null : params.id(), lastEventId);
+
+    if (task == null) {
+      // Tasks reloaded from the spill file no longer have events; replay their final state
+      A2aTypes.Task archived = taskStore.snapshot(params == null ? null : params.id(), null, subject);
+      if (archived == null) {
+        entry.error(-32001);
+        return Flux.just(sseEncoder.encode(bufferFactory, JsonRpc.Response.err(requestId, -32001, "TaskNotFoundError")));
+      }
+      return Flux.just(sseEncoder.encode(bufferFactory, JsonRpc.Response.ok(requestId, archived)));
+    }
 
-    return Flux.concat(
-        Flux.just(ServerSentEvent.<Object>builder(JsonRpc.Response.ok(requestId, submittedTask)).build()),
-        Flux.just(ServerSentEvent.<Object>builder(JsonRpc.Response.ok(requestId, workingUpdate1)).build()),
-        Flux.just(ServerSentEvent.<Object>builder(JsonRpc.Response.ok(requestId, workingUpdate2)).build()),
-        chunks,
-        Flux.just(ServerSentEvent.<Object>builder(JsonRpc.Response.ok(requestId, completedStatus)).build())
-    ).onErrorResume(ex -> Flux.just(ServerSentEvent.<Object>builder(
-        JsonRpc.Response.err(requestId, -32000, "Streaming error: " + ex.getMessage())
-    ).build()));
+    long afterSeq = 0;
+    if (lastEventId != null && !lastEventId.isBlank()) {
+      try {
+        afterSeq = Long.parseLong(lastEventId.trim());
+      } catch (NumberFormatException ex) {
+        entry.error(-32602);
+        return Flux.just(sseEncoder.encode(bufferFactory, JsonRpc.Response.err(requestId, -32602, "Invalid Last-Event-ID")));
+      }
+    }
+    entry.task(task.taskId(), null);
+    return toFrames(bufferFactory, requestId, task, taskStore.follow(task, afterSeq), entry);
+  }
+
+  private JsonRpc.Response handleTasksCancel(JsonRpc.Request req, String subject) {
+    var params = req.params(A2aTypes.TaskIdParams.class);
+    TaskStore.TaskRecord task = taskStore.get(params == null ? null : params.id(), subject);
+    log.debug("[BUSINESS] tasks/cancel: id={} task={} found={}", req.id(), params == null ? null : params.id(), task != null);
+    if (task == null) {
+      return JsonRpc.Response.err(req.id(), -32001, "TaskNotFoundError");
+    }
+    if (!taskStore.cancel(task, "client")) {
+      return JsonRpc.Response.err(req.id(), -32002, "TaskNotCancelableError");
+    }
+    return JsonRpc.Response.ok(req.id(), taskStore.snapshot(task.taskId(), null, subject));
+  }
+
+  private Flux<DataBuffer> toFrames(DataBufferFactory bufferFactory, Object requestId, TaskStore.TaskRecord task,
+                                    Flux<TaskStore.Event> events, RequestLog.Entry entry) {
+    SseFrameEncoder.Frames frames = sseEncoder.frames(bufferFactory, requestId, task.taskId(), task.contextId(), task.artifactId());
+    return slowConsumerGuard.guard(events).map(event -> {
+      if (event.error() != null) {
+        metrics.recordError("message/stream", event.error().code());
+        entry.error(event.error().code());
+      }
+      return frames.encode(event);
+    });
+  }
+
+  private JsonRpc.Response handleTasksGet(JsonRpc.Request req, String subject) {
+    var params = req.params(A2aTypes.TaskQueryParams.class);
+    A2aTypes.Task task = taskStore.snapshot(params == null ? null : params.id(),
+        params == null ? null : params.historyLength(), subject);
+    log.debug("[BUSINESS] tasks/get: id={} task={} found={}", req.id(), params == null ? null : params.id(), task != null);
+    return task != null
+        ? JsonRpc.Response.ok(req.id(), task)
+        : JsonRpc.Response.err(req.id(), -32001, "TaskNotFoundError");
   }
 
-  private JsonRpc.Response handleMessageSend(JsonRpc.Request req) {
+  private Mono<JsonRpc.Response> handleMessageSend(JsonRpc.Request req, String subject, @Nullable ServerHttpResponse httpResponse,
+                                                   RequestLog.Entry entry) {
+    long startNanos = System.nanoTime();
     String taskId = UUID.randomUUID().toString();
-    String contextId = UUID.randomUUID().toString();
+    // A client continuing a conversation sends the contextId it got back; otherwise this starts a new one
+    var params = req.params(A2aTypes.MessageSendParams.class);
+    String contextId = contextIdOrNew(params);
     Object requestId = req.id() != null ? req.id() : UUID.randomUUID().toString();
-    String userText = extractUserText(req.params());
-    String skillId = extractSkillId(req.params());
+    String userText = extractUserText(params);
+    String skillId = extractSkillId(params);
+
+    log.debug("[BUSINESS] message/send: id={} task={} ctx={} skill={}", requestId, taskId, contextId, AgentTasks.resolvedSkill(skillId));
+    entry.task(taskId, AgentTasks.resolvedSkill(skillId)).prompt(userText);
+
+    A2aTypes.MessageSendConfiguration configuration = params == null ? null : params.configuration();
+    A2aTypes.PushNotificationConfig push = configuration == null ? null : configuration.pushNotificationConfig();
+    if (push != null && !pushNotifier.enabled()) {
+      return Mono.just(JsonRpc.Response.err(requestId, -32003, "PushNotificationNotSupportedError"));
+    }
+    Mono<JsonRpc.Response> accepted = configuration != null && Boolean.FALSE.equals(configuration.blocking())
+        ? Mono.fromCallable(() -> startDetachedTask(requestId, taskId, contextId, subject, userText, skillId, push,
+            startNanos, httpResponse))
+        : answerTask(requestId, taskId, contextId, subject, userText, skillId, push, startNanos, httpResponse, entry);
+    if (push == null) {
+      return accepted;
+    }
+    // The webhook host is resolved and checked before anything starts for it
+    return pushNotifier.check(push)
+        .then(Mono.<JsonRpc.Response>empty())
+        .onErrorResume(IllegalArgumentException.class,
+            ex -> Mono.just(JsonRpc.Response.err(requestId, -32602, "Invalid params: " + ex.getMessage())))
+        .switchIfEmpty(accepted);
+  }
+
+  private Mono<JsonRpc.Response> answerTask(Object requestId, String taskId, String contextId, String subject,
+                                            String userText, String skillId, A2aTypes.PushNotificationConfig push,
+                                            long startNanos, @Nullable ServerHttpResponse httpResponse,
+                                            RequestLog.Entry entry) {
+    return agentTasks.answer(subject, contextId, userText, skillId)
+        .doOnNext(entry::answer)
+        .map(answer -> AgentTasks.completedTask(taskId, contextId, userText, skillId, answer))
+        .doOnNext(task -> {
+          TaskStore.TaskRecord record = taskStore.save(task, AgentTasks.resolvedSkill(skillId), subject);
+          if (push != null) {
+            pushNotifier.register(record, push);
+          }
+        })
+        .map(task -> JsonRpc.Response.ok(requestId, task))
+        .onErrorResume(AdmissionControl.RejectedException.class, ex -> Mono.just(tooManyRequests(requestId, ex, httpResponse)))
+        .onErrorResume(ex -> Mono.just(JsonRpc.Response.err(requestId, -32000, "Agent error: " + ex.getMessage())))
+        .doOnNext(res -> metrics.recordLatency("message/send", AgentTasks.resolvedSkill(skillId), startNanos));
+  }
+
+  /**
+   * Non-blocking message/send: answers at once with the submitted task, which then queues for admission and
+   * generates in the background with nobody connected. The client follows it with push notifications,
+   * tasks/get or tasks/resubscribe.
+   */
+  private JsonRpc.Response startDetachedTask(Object requestId, String taskId, String contextId, String subject,
+                                             String userText, String skillId, A2aTypes.PushNotificationConfig push,
+                                             long startNanos, @Nullable ServerHttpResponse httpResponse) {
+    var userMessage = AgentTasks.userMessage(taskId, contextId, userText);
+    TaskStore.TaskRecord task = taskStore.createDetached(taskId, contextId, AgentTasks.resolvedSkill(skillId),
+        userMessage, subject);
+    if (task == null) {
+      return tooManyRequests(requestId,
+          new AdmissionControl.RejectedException("Too many background tasks", Duration.ofSeconds(5)), httpResponse);
+    }
+    if (push != null) {
+      // Registered before the generation starts, so the webhook sees every state
+      pushNotifier.register(task, push);
+    }
+    String conversation = AgentTasks.conversationKey(subject, contextId);
+    // Queued behind interactive callers for up to the task TTL; a rejection after that fails the task, which the
+    // webhook and tasks/get report
+    taskStore.start(task, admissionControl.acquireBackground(subject, AgentTasks.resolvedSkill(skillId))
+        .flatMapMany(permit -> agentTasks.taskEvents(userMessage, conversation, userText, skillId, "message/send", startNanos)
+            .doFinally(signal -> permit.release())));
+    return JsonRpc.Response.ok(requestId, taskStore.snapshot(taskId, null, subject));
+  }
+
+  /**
+   * tasks/pushNotificationConfig/set, get, list and delete, on tasks still held in memory and owned by the caller.
+   */
+  private JsonRpc.Response handlePushNotificationConfig(JsonRpc.Request req, String subject) {
+    if (!pushNotifier.enabled()) {
+      return JsonRpc.Response.err(req.id(), -32003, "PushNotificationNotSupportedError");
+    }
+    if (req.method().endsWith("/set")) {
+      var params = req.params(A2aTypes.TaskPushNotificationConfig.class);
+      TaskStore.TaskRecord task = taskStore.get(params == null ? null : params.taskId(), subject);
+      log.debug("[BUSINESS] {}: id={} task={} found={}", req.method(), req.id(), params == null ? null : params.taskId(), task != null);
+      if (task == null) {
+        return JsonRpc.Response.err(req.id(), -32001, "TaskNotFoundError");
+      }
+      try {
+        pushNotifier.validate(params.pushNotificationConfig());
+        var stored = pushNotifier.register(task, params.pushNotificationConfig());
+        return JsonRpc.Response.ok(req.id(), new A2aTypes.TaskPushNotificationConfig(task.taskId(), stored));
+      } catch (IllegalArgumentException ex) {
+        return JsonRpc.Response.err(req.id(), -32602, "Invalid params: " + ex.getMessage());
+      }
+    }
 
-    log.info("[BUSINESS] message/send: id={} task={} ctx={} skill={} text='{}'", requestId, taskId, contextId, resolvedSkill(skillId), userText);
+    var params = req.params(A2aTypes.TaskPushNotificationConfigParams.class);
+    TaskStore.TaskRecord task = taskStore.get(params == null ? null : params.id(), subject);
+    log.debug("[BUSINESS] {}: id={} task={} found={}", req.method(), req.id(), params == null ? null : params.id(), task != null);
+    if (task == null) {
+      return JsonRpc.Response.err(req.id(), -32001, "TaskNotFoundError");
+    }
+    List<A2aTypes.TaskPushNotificationConfig> configs = pushNotifier.configs(task).stream()
+        .map(config -> new A2aTypes.TaskPushNotificationConfig(task.taskId(), config))
+        .toList();
+    if (req.method().endsWith("/list")) {
+      return JsonRpc.Response.ok(req.id(), configs);
+    }
+    if (req.method().endsWith("/delete")) {
+      return pushNotifier.delete(task, params.pushNotificationConfigId())
+          ? JsonRpc.Response.ok(req.id(), null)
+          : JsonRpc.Response.err(req.id(), -32001, "PushNotificationConfigNotFound");
+    }
+    // get: the named config, or the first one when no id is given
+    return configs.stream()
+        .filter(config -> params.pushNotificationConfigId() == null
+            || params.pushNotificationConfigId().equals(config.pushNotificationConfig().id()))
+        .findFirst()
+        .map(config -> JsonRpc.Response.ok(req.id(), config))
+        .orElseGet(() -> JsonRpc.Response.err(req.id(), -32001, "PushNotificationConfigNotFound"));
+  }
 
-    var completedTask = buildCompletedTask(taskId, contextId, userText, skillId);
-    return JsonRpc.Response.ok(requestId, completedTask);
+  /**
+   * Admission rejection: HTTP 429 with Retry-After, plus a JSON-RPC error carrying the same hint.
+   */
+  private JsonRpc.Response tooManyRequests(Object requestId, AdmissionControl.RejectedException ex,
+                                           @Nullable ServerHttpResponse httpResponse) {
+    long retryAfterSeconds = Math.max(1, ex.retryAfter().toSeconds());
+    // Inside a batch the hint is only in the error data; the batch itself still answers 200
+    if (httpResponse != null) {
+      httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+      httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+    log.info("[ADMISSION] Rejected request {}: {}", requestId, ex.getMessage());
+    return JsonRpc.Response.err(requestId, -32029, "Too many requests: " + ex.getMessage(),
+        Map.of("retryAfterSeconds", retryAfterSeconds));
   }
 
-  private A2aTypes.AgentCard buildAgentCard() {
+  // Package-private and static so the JMH benchmarks (src/jmh) can exercise it
+  static A2aTypes.AgentCard buildAgentCard(boolean pushNotifications, @Nullable String grpcUrl) {
     var briefSkill = new A2aTypes.Skill(
         "openai.brief",
         "Quick bullets",
@@ -218,13 +589,20 @@ public class A2aController {
         List.of("text/markdown")
     );
 
+    String url = "http://localhost:9999/";
+    // The preferred transport is listed too, so clients picking from additionalInterfaces see every option
+    List<A2aTypes.AgentInterface> interfaces = grpcUrl == null
+        ? null
+        : List.of(new A2aTypes.AgentInterface(url, "JSONRPC"), new A2aTypes.AgentInterface(grpcUrl, "GRPC"));
+
     return new A2aTypes.AgentCard(
         "0.3.0",
         "Java A2A OpenAI Agent",
         "Minimal A2A server that forwards user prompts to OpenAI via Spring AI (streaming supported).",
-        "http://localhost:9999/",
+        url,
         "JSONRPC",
-        new A2aTypes.Capabilities(true, false, false),
+        interfaces,
+        new A2aTypes.Capabilities(true, pushNotifications, false),
         List.of("text/plain"),
         List.of("text/markdown"),
         List.of(briefSkill, researchSkill),
@@ -232,63 +610,35 @@ public class A2aController {
     );
   }
 
-  private A2aTypes.Task buildCompletedTask(String taskId, String contextId, String userText, String skillId) {
-    String answer = agentService.ask(userText, skillId);
-
-    var artifact = new A2aTypes.Artifact(
-        UUID.randomUUID().toString(),
-        "answer",
-        List.of(new A2aTypes.TextPart("text", answer))
-    );
-
-    var userMessage = new A2aTypes.Message(
-        "user",
-        List.of(new A2aTypes.TextPart("text", userText == null ? "" : userText)),
-        UUID.randomUUID().toString(),
-        taskId,
-        contextId
-    );
-
-    var assistantMessage = new A2aTypes.Message(
-        "agent",
-        List.of(new A2aTypes.TextPart("text", answer)),
-        UUID.randomUUID().toString(),
-        taskId,
-        contextId
-    );
-
-    return new A2aTypes.Task(
-        taskId,
-        contextId,
-        new A2aTypes.TaskStatus("completed"),
-        List.of(artifact),
-        List.of(userMessage, assistantMessage),
-        A2aTypes.KIND_TASK,
-        Map.of("skillId", resolvedSkill(skillId))
-    );
+  // Text of every text part, in order; a single part (the usual case) is returned as is
+  static String extractUserText(@Nullable A2aTypes.MessageSendParams params) {
+    if (params == null || params.message() == null || params.message().parts() == null) return "";
+    String first = null;
+    StringBuilder joined = null;
+    for (A2aTypes.Part part : params.message().parts()) {
+      if (!(part instanceof A2aTypes.TextPart textPart) || textPart.text() == null) continue;
+      if (first == null) {
+        first = textPart.text();
+      } else {
+        if (joined == null) joined = new StringBuilder(first);
+        joined.append('\n').append(textPart.text());
+      }
+    }
+    return joined != null ? joined.toString() : first != null ? first : "";
   }
 
-  private String extractUserText(Object paramsObj) {
-    if (!(paramsObj instanceof Map<?, ?> params)) return "";
-    Object messageObj = params.get("message");
-    if (!(messageObj instanceof Map<?, ?> msg)) return "";
-    Object partsObj = msg.get("parts");
-    if (!(partsObj instanceof List<?> parts) || parts.isEmpty()) return "";
-    Object first = parts.get(0);
-    if (!(first instanceof Map<?, ?> part)) return "";
-    Object text = part.get("text");
-    return text == null ? "" : text.toString();
+  static String extractContextId(@Nullable A2aTypes.MessageSendParams params) {
+    return params == null || params.message() == null ? null : params.message().contextId();
   }
 
-  private String extractSkillId(Object paramsObj) {
-    if (!(paramsObj instanceof Map<?, ?> params)) return null;
-    Object metadataObj = params.get("metadata");
-    if (!(metadataObj instanceof Map<?, ?> metadata)) return null;
-    Object skillId = metadata.get("skillId");
-    return skillId == null ? null : skillId.toString();
+  private static String contextIdOrNew(@Nullable A2aTypes.MessageSendParams params) {
+    String contextId = extractContextId(params);
+    return (contextId == null || contextId.isBlank()) ? UUID.randomUUID().toString() : contextId;
   }
 
-  private String resolvedSkill(String skillId) {
-    return (skillId == null || skillId.isBlank()) ? "openai.brief" : skillId;
+  static String extractSkillId(@Nullable A2aTypes.MessageSendParams params) {
+    if (params == null || params.metadata() == null) return null;
+    Object skillId = params.metadata().get("skillId");
+    return skillId == null ? null : skillId.toString();
   }
 }
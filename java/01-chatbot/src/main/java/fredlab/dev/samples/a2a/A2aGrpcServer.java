@@ -0,0 +1,103 @@
+package fredlab.dev.samples.a2a;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@link A2aGrpcService} on its own port (plaintext HTTP/2, meant for traffic inside the cluster), next to
+ * the WebFlux server. Calls run straight on the Netty event loop, like the WebFlux handlers: nothing in the
+ * service blocks.
+ * Calls carry bearer tokens and there is no TLS, so the transport is off by default and, once enabled, listens on
+ * loopback only unless {@code bind-address} says otherwise (behind a mesh sidecar or on a trusted network).
+ */
+@Component
+public class A2aGrpcServer implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(A2aGrpcServer.class);
+
+  /**
+   * @param bindAddress   interface to listen on; defaults to loopback
+   * @param advertisedUrl address put in the agent card; defaults to {@code localhost:<port>}
+   * @param maxConcurrentCallsPerConnection HTTP/2 streams a client may open on one connection
+   */
+  @ConfigurationProperties(prefix = "app.grpc")
+  public record Properties(Boolean enabled, Integer port, String bindAddress, String advertisedUrl, Integer maxConcurrentCallsPerConnection,
+                           Integer maxInboundMessageSize, Duration keepAliveTime, Duration shutdownGrace) {}
+
+  private final boolean enabled;
+  private final int port;
+  private final String advertisedUrl;
+  private final Duration shutdownGrace;
+  private final Server server;
+  private volatile boolean running;
+
+  public A2aGrpcServer(Properties properties, A2aGrpcService service, GrpcAuthentication authentication) {
+    this.enabled = properties.enabled() != null && properties.enabled();
+    this.port = properties.port() != null ? properties.port() : 9090;
+    String bindAddress = properties.bindAddress() != null && !properties.bindAddress().isBlank()
+        ? properties.bindAddress() : "127.0.0.1";
+    this.advertisedUrl = properties.advertisedUrl() != null && !properties.advertisedUrl().isBlank()
+        ? properties.advertisedUrl() : "localhost:" + port;
+    this.shutdownGrace = properties.shutdownGrace() != null ? properties.shutdownGrace() : Duration.ofSeconds(10);
+    this.server = NettyServerBuilder.forAddress(new InetSocketAddress(bindAddress, port))
+        .directExecutor()
+        .addService(ServerInterceptors.intercept(service, authentication))
+        .maxConcurrentCallsPerConnection(properties.maxConcurrentCallsPerConnection() != null
+            ? properties.maxConcurrentCallsPerConnection() : 1000)
+        .maxInboundMessageSize(properties.maxInboundMessageSize() != null
+            ? properties.maxInboundMessageSize() : 4 * 1024 * 1024)
+        .keepAliveTime((properties.keepAliveTime() != null ? properties.keepAliveTime() : Duration.ofMinutes(1)).toMillis(),
+            TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /** The gRPC address for the agent card, or null when the transport is off. */
+  public String advertisedUrl() {
+    return enabled ? advertisedUrl : null;
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) return;
+    try {
+      server.start();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Could not start the gRPC server on port " + port, ex);
+    }
+    running = true;
+    log.info("[A2A-PROTOCOL] gRPC transport listening on {}", server.getListenSockets());
+  }
+
+  @Override
+  public void stop() {
+    if (!running) return;
+    running = false;
+    // In-flight streams get the grace period to finish before they are cut
+    server.shutdown();
+    try {
+      if (!server.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS)) {
+        server.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      server.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
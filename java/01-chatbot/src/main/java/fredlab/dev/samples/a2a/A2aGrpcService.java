@@ -0,0 +1,217 @@
+package fredlab.dev.samples.a2a;
+
+import fredlab.dev.samples.a2a.grpc.A2AServiceGrpc;
+import fredlab.dev.samples.a2a.grpc.GetTaskRequest;
+import fredlab.dev.samples.a2a.grpc.SendMessageRequest;
+import fredlab.dev.samples.a2a.grpc.SendMessageResponse;
+import fredlab.dev.samples.a2a.grpc.StreamResponse;
+import fredlab.dev.samples.a2a.grpc.Task;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A2A over gRPC, for agent-to-agent traffic inside the cluster: the same tasks, admission control and task store
+ * as the JSON-RPC/SSE endpoints, with protobuf framing and the answer chunks sent as an HTTP/2 server stream.
+ * Streams follow HTTP/2 flow control: the next event is only taken from the task once the transport is ready.
+ */
+@Component
+public class A2aGrpcService extends A2AServiceGrpc.A2AServiceImplBase {
+
+  private static final Logger log = LoggerFactory.getLogger(A2aGrpcService.class);
+  private static final Metadata.Key<String> RETRY_AFTER = Metadata.Key.of("retry-after", Metadata.ASCII_STRING_MARSHALLER);
+
+  private final AgentTasks agentTasks;
+  private final TaskStore taskStore;
+  private final AdmissionControl admissionControl;
+  private final AgentMetrics metrics;
+  private final RequestLog requestLog;
+  private final GrpcAuthentication authentication;
+
+  public A2aGrpcService(AgentTasks agentTasks, TaskStore taskStore, AdmissionControl admissionControl,
+                        AgentMetrics metrics, RequestLog requestLog, GrpcAuthentication authentication) {
+    this.agentTasks = agentTasks;
+    this.taskStore = taskStore;
+    this.admissionControl = admissionControl;
+    this.metrics = metrics;
+    this.requestLog = requestLog;
+    this.authentication = authentication;
+  }
+
+  @Override
+  public void sendMessage(SendMessageRequest request, StreamObserver<SendMessageResponse> responseObserver) {
+    long startNanos = System.nanoTime();
+    String taskId = UUID.randomUUID().toString();
+    String contextId = contextIdOrNew(request);
+    String userText = GrpcMapper.userText(request.getRequest());
+    String skillId = request.getMetadataOrDefault("skillId", null);
+    String skill = AgentTasks.resolvedSkill(skillId);
+
+    Disposable.Swap call = Disposables.swap();
+    ((ServerCallStreamObserver<SendMessageResponse>) responseObserver).setOnCancelHandler(call::dispose);
+    call.update(authentication.subject()
+        .flatMap(subject -> {
+          log.debug("[BUSINESS] grpc SendMessage: task={} ctx={} skill={}", taskId, contextId, skill);
+          RequestLog.Entry entry = requestLog.start("grpc/SendMessage", request.getRequest().getMessageId(), subject)
+              .task(taskId, skill)
+              .prompt(userText);
+          return agentTasks.answer(subject, contextId, userText, skillId)
+              .doOnNext(entry::answer)
+              .map(answer -> AgentTasks.completedTask(taskId, contextId, userText, skillId, answer))
+              .doOnNext(task -> taskStore.save(task, skill, subject))
+              .doOnError(ex -> entry.error(errorCode(ex)))
+              .doFinally(signal -> entry.finish());
+        })
+        .subscribe(task -> {
+          metrics.recordLatency("grpc/SendMessage", skill, startNanos);
+          responseObserver.onNext(SendMessageResponse.newBuilder().setTask(GrpcMapper.toTask(task)).build());
+          responseObserver.onCompleted();
+        }, ex -> responseObserver.onError(toStatus("grpc/SendMessage", ex))));
+  }
+
+  @Override
+  public void sendStreamingMessage(SendMessageRequest request, StreamObserver<StreamResponse> responseObserver) {
+    long startNanos = System.nanoTime();
+    String taskId = UUID.randomUUID().toString();
+    String contextId = contextIdOrNew(request);
+    String userText = GrpcMapper.userText(request.getRequest());
+    String skillId = request.getMetadataOrDefault("skillId", null);
+    String skill = AgentTasks.resolvedSkill(skillId);
+
+    Flux<StreamResponse> responses = authentication.subject()
+        .flatMapMany(subject -> {
+          log.debug("[BUSINESS] grpc SendStreamingMessage: task={} ctx={} skill={}", taskId, contextId, skill);
+          RequestLog.Entry entry = requestLog.start("grpc/SendStreamingMessage", request.getRequest().getMessageId(), subject)
+              .task(taskId, skill)
+              .prompt(userText);
+          // Queue fairly behind other users' calls; the permit is held until the generation ends
+          return admissionControl.acquire(subject, skill)
+              .flatMapMany(permit -> {
+                TaskStore.TaskRecord task = agentTasks.startStreaming(taskId, contextId, subject, userText, skillId,
+                    permit, "grpc/SendStreamingMessage", startNanos);
+                entry.answerLength(task::answerLength);
+                return taskStore.follow(task, 0).<StreamResponse>handle((event, sink) -> {
+                  if (event.error() != null) {
+                    sink.error(Status.INTERNAL.withDescription(event.error().message()).asRuntimeException());
+                    return;
+                  }
+                  StreamResponse response = GrpcMapper.toStreamResponse(task, event.result());
+                  if (response != null) {
+                    sink.next(response);
+                  }
+                });
+              })
+              .doOnError(ex -> entry.error(errorCode(ex)))
+              // One request event per stream, logged when it ends: completed, failed or dropped by the client
+              .doFinally(signal -> {
+                switch (signal) {
+                  case ON_COMPLETE -> entry.finish();
+                  case CANCEL -> entry.finish("disconnected");
+                  default -> entry.finish("error");
+                }
+              });
+        });
+    streamTo(responses, (ServerCallStreamObserver<StreamResponse>) responseObserver, "grpc/SendStreamingMessage");
+  }
+
+  @Override
+  public void getTask(GetTaskRequest request, StreamObserver<Task> responseObserver) {
+    Disposable.Swap call = Disposables.swap();
+    ((ServerCallStreamObserver<Task>) responseObserver).setOnCancelHandler(call::dispose);
+    call.update(authentication.subject()
+        // Another subject's task is reported exactly like an unknown one
+        .flatMap(subject -> Mono.justOrEmpty(taskStore.snapshot(request.getId(),
+            request.getHistoryLength() > 0 ? request.getHistoryLength() : null, subject)))
+        .switchIfEmpty(Mono.error(() -> Status.NOT_FOUND.withDescription("TaskNotFoundError").asRuntimeException()))
+        .subscribe(task -> {
+          responseObserver.onNext(GrpcMapper.toTask(task));
+          responseObserver.onCompleted();
+        }, ex -> responseObserver.onError(toStatus("grpc/GetTask", ex))));
+  }
+
+  /**
+   * Writes the responses one at a time, requesting the next only when the call can take it, so a slow reader
+   * holds back the task's replay buffer instead of growing the transport's. At most one response is requested at a
+   * time: the onReady handler and hookOnNext both try, and only the one that finds nothing outstanding asks.
+   */
+  private <T> void streamTo(Flux<T> responses, ServerCallStreamObserver<T> observer, String method) {
+    var outstanding = new AtomicBoolean();
+    var subscriber = new BaseSubscriber<T>() {
+      @Override
+      protected void hookOnSubscribe(Subscription subscription) {
+        requestIfReady();
+      }
+
+      @Override
+      protected void hookOnNext(T value) {
+        observer.onNext(value);
+        // Only now, so a request from the onReady handler cannot deliver the next response during this onNext
+        outstanding.set(false);
+        requestIfReady();
+      }
+
+      void requestIfReady() {
+        if (observer.isReady() && outstanding.compareAndSet(false, true)) {
+          request(1);
+        }
+      }
+
+      @Override
+      protected void hookOnComplete() {
+        observer.onCompleted();
+      }
+
+      @Override
+      protected void hookOnError(Throwable throwable) {
+        observer.onError(toStatus(method, throwable));
+      }
+    };
+    // The call turning ready again after a write stalled on flow control; also the first request when the call
+    // was not ready yet at subscription
+    observer.setOnReadyHandler(subscriber::requestIfReady);
+    observer.setOnCancelHandler(subscriber::dispose);
+    responses.subscribe(subscriber);
+  }
+
+  private Throwable toStatus(String method, Throwable ex) {
+    if (ex instanceof AdmissionControl.RejectedException rejected) {
+      metrics.recordError(method, -32029);
+      long retryAfterSeconds = Math.max(1, rejected.retryAfter().toSeconds());
+      log.info("[ADMISSION] Rejected gRPC call: {}", rejected.getMessage());
+      var trailers = new Metadata();
+      trailers.put(RETRY_AFTER, Long.toString(retryAfterSeconds));
+      return Status.RESOURCE_EXHAUSTED.withDescription("Too many requests: " + rejected.getMessage())
+          .asRuntimeException(trailers);
+    }
+    if (ex instanceof StatusRuntimeException || ex instanceof StatusException) {
+      return ex;
+    }
+    metrics.recordError(method, -32000);
+    return Status.INTERNAL.withDescription("Agent error: " + ex.getMessage()).asRuntimeException();
+  }
+
+  private static int errorCode(Throwable ex) {
+    return ex instanceof AdmissionControl.RejectedException ? -32029 : -32000;
+  }
+
+  // A client continuing a conversation sends the contextId it got back; otherwise this starts a new one
+  private static String contextIdOrNew(SendMessageRequest request) {
+    String contextId = request.getRequest().getContextId();
+    return contextId.isBlank() ? UUID.randomUUID().toString() : contextId;
+  }
+}
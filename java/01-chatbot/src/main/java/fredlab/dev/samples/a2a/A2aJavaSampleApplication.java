@@ -2,8 +2,10 @@ package fredlab.dev.samples.a2a;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class A2aJavaSampleApplication {
   public static void main(String[] args) {
     SpringApplication.run(A2aJavaSampleApplication.class, args);
@@ -0,0 +1,209 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the raw token stream into display chunks.
+ * The first token is flushed immediately; after that the batch size follows the observed token rate
+ * (roughly what arrives within maxDelay), and chunks are cut on line or word boundaries so Markdown and URLs are not
+ * split mid-word. No chunk is longer than maxChars: text without a boundary within that is cut at maxChars.
+ */
+@Component
+public class AdaptiveChunker {
+
+  private final ChunkingProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+  private record Meters(Timer firstChunk, DistributionSummary chunkSize, DistributionSummary chunksPerStream,
+                        DistributionSummary tokensPerSecond) {}
+
+  public AdaptiveChunker(ChunkingProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public Flux<String> chunk(Flux<String> tokens, String skill) {
+    ChunkingProperties.Limits limits = properties.forSkill(skill);
+    Meters skillMeters = meters.computeIfAbsent(AgentMetrics.skillTag(skill), this::createMeters);
+
+    return Flux.create(sink -> {
+      var state = new ChunkState(limits, sink, skillMeters);
+      long tickMillis = Math.max(10, limits.maxDelay().toMillis() / 2);
+      Disposable timer = Schedulers.parallel().schedulePeriodically(state::onTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+      Disposable upstream = tokens.subscribe(state::onToken, state::onError, state::onComplete);
+      // Demand from a lagging client arrives here: flush what accumulated meanwhile, in maxChars chunks
+      sink.onRequest(n -> state.drain());
+      sink.onDispose(() -> {
+        timer.dispose();
+        upstream.dispose();
+      });
+    });
+  }
+
+  private Meters createMeters(String skill) {
+    return new Meters(
+        Timer.builder("agent.stream.first-chunk")
+            .description("Time from subscription to the first chunk sent to the client")
+            .tag("skill", skill)
+            .register(meterRegistry),
+        DistributionSummary.builder("agent.stream.chunk.size")
+            .description("Characters per streamed chunk")
+            .baseUnit("chars")
+            .tag("skill", skill)
+            .register(meterRegistry),
+        DistributionSummary.builder("agent.stream.chunks")
+            .description("Chunks sent per completed stream")
+            .tag("skill", skill)
+            .register(meterRegistry),
+        DistributionSummary.builder("agent.stream.tokens-per-second")
+            .description("Upstream token rate per completed stream")
+            .tag("skill", skill)
+            .register(meterRegistry)
+    );
+  }
+
+  private static final class ChunkState {
+
+    private final int minChars;
+    private final int maxChars;
+    private final long maxDelayNanos;
+    private final FluxSink<String> sink;
+    private final Meters meters;
+
+    private final StringBuilder pending = new StringBuilder();
+    private final long subscribedAt = System.nanoTime();
+    private long firstTokenAt;
+    private long pendingSince;
+    private long receivedChars;
+    private long receivedTokens;
+    private long emittedChunks;
+    private boolean first = true;
+    private boolean done;
+
+    ChunkState(ChunkingProperties.Limits limits, FluxSink<String> sink, Meters meters) {
+      this.minChars = limits.minChars();
+      this.maxChars = Math.max(limits.minChars(), limits.maxChars());
+      this.maxDelayNanos = limits.maxDelay().toNanos();
+      this.sink = sink;
+      this.meters = meters;
+    }
+
+    synchronized void onToken(String token) {
+      if (token == null || token.isEmpty()) return;
+      long now = System.nanoTime();
+      if (pending.isEmpty()) {
+        pendingSince = now;
+      }
+      if (receivedChars == 0) {
+        firstTokenAt = now;
+      }
+      pending.append(token);
+      receivedChars += token.length();
+      receivedTokens++;
+
+      if (first && sink.requestedFromDownstream() > 0) {
+        emit(pending.length() <= maxChars ? pending.length() : hardCut(maxChars));
+        if (pending.isEmpty()) return;
+      }
+      drain();
+    }
+
+    synchronized void onTick() {
+      if (done || pending.isEmpty() || sink.requestedFromDownstream() == 0) return;
+      if (System.nanoTime() - pendingSince >= maxDelayNanos) {
+        // Held long enough: prefer a boundary, but never hold text past the deadline
+        int limit = Math.min(pending.length(), maxChars);
+        int cut = boundary(limit);
+        emit(cut > 0 ? cut : hardCut(limit));
+      }
+    }
+
+    synchronized void drain() {
+      if (done || sink.requestedFromDownstream() == 0) return;
+      int target = targetChars();
+      while (pending.length() >= target && sink.requestedFromDownstream() > 0) {
+        // Only the text that fits in one chunk is searched, however much a lagging client left pending
+        int cut = boundary(Math.min(pending.length(), maxChars));
+        if (cut <= 0) {
+          if (pending.length() < maxChars) return;
+          cut = hardCut(maxChars);
+        }
+        emit(cut);
+      }
+    }
+
+    synchronized void onError(Throwable ex) {
+      done = true;
+      sink.error(ex);
+    }
+
+    synchronized void onComplete() {
+      done = true;
+      // Everything goes out now, still in chunks of at most maxChars
+      while (pending.length() > maxChars) {
+        int cut = boundary(maxChars);
+        emit(cut > 0 ? cut : hardCut(maxChars));
+      }
+      if (!pending.isEmpty()) {
+        emit(pending.length());
+      }
+      meters.chunksPerStream().record(emittedChunks);
+      long elapsed = System.nanoTime() - firstTokenAt;
+      if (receivedTokens > 1 && elapsed > 0) {
+        meters.tokensPerSecond().record(receivedTokens * 1e9 / elapsed);
+      }
+      sink.complete();
+    }
+
+    // Batch size grows with the token rate: about what arrives within maxDelay, clamped to [minChars, maxChars]
+    private int targetChars() {
+      long elapsed = System.nanoTime() - firstTokenAt;
+      if (elapsed <= 0) return minChars;
+      double charsPerNano = (double) receivedChars / elapsed;
+      long target = Math.round(charsPerNano * maxDelayNanos);
+      return (int) Math.max(minChars, Math.min(maxChars, target));
+    }
+
+    // Last line break, else last whitespace, within the first limit chars; 0 when there is none
+    private int boundary(int limit) {
+      for (int i = limit - 1; i >= minChars / 2; i--) {
+        if (pending.charAt(i) == '\n') return i + 1;
+      }
+      for (int i = limit - 1; i > 0; i--) {
+        if (Character.isWhitespace(pending.charAt(i))) return i + 1;
+      }
+      return 0;
+    }
+
+    // limit chars, one less if that would split a surrogate pair
+    private int hardCut(int limit) {
+      return limit > 1 && limit < pending.length() && Character.isHighSurrogate(pending.charAt(limit - 1))
+          ? limit - 1 : limit;
+    }
+
+    private void emit(int length) {
+      String chunk = pending.substring(0, length);
+      pending.delete(0, length);
+      pendingSince = System.nanoTime();
+      if (first) {
+        first = false;
+        meters.firstChunk().record(pendingSince - subscribedAt, TimeUnit.NANOSECONDS);
+      }
+      meters.chunkSize().record(chunk.length());
+      emittedChunks++;
+      sink.next(chunk);
+    }
+  }
+}
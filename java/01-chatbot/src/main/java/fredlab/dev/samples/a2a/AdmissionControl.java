@@ -0,0 +1,289 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking admission control for LLM calls.
+ * Capacity is counted in weight units (a research call costs more than a brief one), with a global cap and a
+ * per-subject cap. Callers over capacity wait in a per-subject queue served round-robin, so one user cannot
+ * starve the others; waits are bounded and rejected callers get a retry-after hint.
+ * <p>
+ * Background tasks (non-blocking message/send, which nobody waits on) queue separately: they only get capacity no
+ * interactive caller is waiting for, may wait up to {@code background-max-wait} (by default the task TTL) instead of
+ * {@code max-wait}, and do not count against {@code max-queue} (the task store bounds them).
+ */
+@Component
+public class AdmissionControl {
+
+  @ConfigurationProperties(prefix = "app.admission")
+  public record Properties(Integer globalCapacity, Integer perSubjectCapacity, Integer maxQueue,
+                           Duration maxWait, Duration backgroundMaxWait, Map<String, Integer> weights) {}
+
+  public static class RejectedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public RejectedException(String message, Duration retryAfter) {
+      super(message);
+      this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+      return retryAfter;
+    }
+  }
+
+  /** Capacity held by one admitted call; release is idempotent. */
+  public final class Permit {
+    private final String subject;
+    private final int weight;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(String subject, int weight) {
+      this.subject = subject;
+      this.weight = weight;
+    }
+
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        AdmissionControl.this.release(this);
+      }
+    }
+  }
+
+  private static final class Waiter {
+    final String subject;
+    final int weight;
+    final boolean background;
+    final MonoSink<Permit> sink;
+    volatile Disposable timeout;
+    volatile Permit permit;
+
+    Waiter(String subject, int weight, boolean background, MonoSink<Permit> sink) {
+      this.subject = subject;
+      this.weight = weight;
+      this.background = background;
+      this.sink = sink;
+    }
+  }
+
+  private final int globalCapacity;
+  private final int perSubjectCapacity;
+  private final int maxQueue;
+  private final Duration maxWait;
+  private final Duration backgroundMaxWait;
+  private final Map<String, Integer> weights;
+
+  private int globalInUse;
+  private int queued;
+  private int queuedBackground;
+  private final Map<String, Integer> inUseBySubject = new HashMap<>();
+  // Subjects with waiters, in round-robin order: a served subject moves to the back
+  private final LinkedHashMap<String, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+  // Same, for background tasks; served only with what the interactive waiters leave
+  private final LinkedHashMap<String, ArrayDeque<Waiter>> waitingBackground = new LinkedHashMap<>();
+
+  private final Counter rejected;
+
+  public AdmissionControl(Properties properties, MeterRegistry meterRegistry) {
+    this.globalCapacity = properties.globalCapacity() != null ? properties.globalCapacity() : 32;
+    this.perSubjectCapacity = properties.perSubjectCapacity() != null ? properties.perSubjectCapacity() : 8;
+    this.maxQueue = properties.maxQueue() != null ? properties.maxQueue() : 256;
+    this.maxWait = properties.maxWait() != null ? properties.maxWait() : Duration.ofSeconds(10);
+    this.backgroundMaxWait = properties.backgroundMaxWait() != null
+        ? properties.backgroundMaxWait() : Duration.ofMinutes(30);
+    this.weights = properties.weights() != null ? properties.weights() : Map.of();
+
+    this.rejected = Counter.builder("agent.admission.rejected").register(meterRegistry);
+    Gauge.builder("agent.admission.in-use", this, AdmissionControl::inUse).register(meterRegistry);
+    Gauge.builder("agent.admission.queued", this, AdmissionControl::queued).register(meterRegistry);
+  }
+
+  /**
+   * Emits a permit once the subject may run a call for this skill, or fails with {@link RejectedException}
+   * when the queue is full or the wait exceeds the configured maximum.
+   */
+  public Mono<Permit> acquire(String subject, String skill) {
+    return acquire(subject, skill, false, maxWait);
+  }
+
+  /**
+   * Like {@link #acquire}, for work nobody is waiting on: queued behind every interactive caller, for up to
+   * {@code background-max-wait}, and never rejected for a full queue.
+   */
+  public Mono<Permit> acquireBackground(String subject, String skill) {
+    return acquire(subject, skill, true, backgroundMaxWait);
+  }
+
+  private Mono<Permit> acquire(String subject, String skill, boolean background, Duration wait) {
+    int weight = weight(skill);
+    return Mono.create(sink -> {
+      var waiter = new Waiter(subject, weight, background, sink);
+      // Armed before the waiter becomes visible to dispatch(), which disposes it on grant
+      waiter.timeout = Schedulers.parallel().schedule(() -> {
+        if (dequeue(waiter)) {
+          reject(sink, "Timed out waiting for capacity");
+          dispatch();
+        }
+      }, wait.toMillis(), TimeUnit.MILLISECONDS);
+      sink.onCancel(() -> {
+        if (dequeue(waiter)) {
+          waiter.timeout.dispose();
+          dispatch();
+        } else if (waiter.permit != null) {
+          // Granted while the caller was going away
+          waiter.permit.release();
+        }
+      });
+
+      boolean immediate = false;
+      boolean full = false;
+      synchronized (this) {
+        // Interactive callers only wait for each other; background tasks also wait for them
+        if (waiting.isEmpty() && (!background || waitingBackground.isEmpty()) && fits(subject, weight)) {
+          waiter.permit = grant(subject, weight);
+          immediate = true;
+        } else if (!background && queued >= maxQueue) {
+          full = true;
+        } else if (background) {
+          waitingBackground.computeIfAbsent(subject, s -> new ArrayDeque<>()).addLast(waiter);
+          queuedBackground++;
+        } else {
+          waiting.computeIfAbsent(subject, s -> new ArrayDeque<>()).addLast(waiter);
+          queued++;
+        }
+      }
+
+      if (immediate) {
+        waiter.timeout.dispose();
+        sink.success(waiter.permit);
+      } else if (full) {
+        waiter.timeout.dispose();
+        reject(sink, "Too many queued requests");
+      } else {
+        // Capacity may have been released between the check and the enqueue
+        dispatch();
+      }
+    });
+  }
+
+  /** Capacity units one call of this skill holds while it runs. */
+  public int weight(String skill) {
+    return Math.min(weights.getOrDefault(skill, 1), Math.min(globalCapacity, perSubjectCapacity));
+  }
+
+  /** Calls of this skill one subject can run at once before the next one has to queue. */
+  public int concurrentCalls(String skill) {
+    return Math.max(1, perSubjectCapacity / weight(skill));
+  }
+
+  public synchronized int inUse() {
+    return globalInUse;
+  }
+
+  public synchronized int queued() {
+    return queued + queuedBackground;
+  }
+
+  private void reject(MonoSink<Permit> sink, String reason) {
+    rejected.increment();
+    sink.error(new RejectedException(reason, maxWait));
+  }
+
+  private boolean fits(String subject, int weight) {
+    return globalInUse + weight <= globalCapacity
+        && inUseBySubject.getOrDefault(subject, 0) + weight <= perSubjectCapacity;
+  }
+
+  private Permit grant(String subject, int weight) {
+    globalInUse += weight;
+    inUseBySubject.merge(subject, weight, Integer::sum);
+    return new Permit(subject, weight);
+  }
+
+  // A waiter leaving the head of its queue may unblock a lighter one behind it: callers dispatch() afterwards
+  private synchronized boolean dequeue(Waiter waiter) {
+    LinkedHashMap<String, ArrayDeque<Waiter>> queues = waiter.background ? waitingBackground : waiting;
+    ArrayDeque<Waiter> queue = queues.get(waiter.subject);
+    if (queue == null || !queue.remove(waiter)) {
+      return false;
+    }
+    countDequeued(waiter);
+    if (queue.isEmpty()) {
+      queues.remove(waiter.subject);
+    }
+    return true;
+  }
+
+  private void countDequeued(Waiter waiter) {
+    if (waiter.background) {
+      queuedBackground--;
+    } else {
+      queued--;
+    }
+  }
+
+  private void release(Permit permit) {
+    synchronized (this) {
+      globalInUse -= permit.weight;
+      inUseBySubject.computeIfPresent(permit.subject, (s, used) -> used - permit.weight <= 0 ? null : used - permit.weight);
+    }
+    dispatch();
+  }
+
+  // Grants permits round-robin across waiting subjects, interactive callers first; sinks are completed outside the lock
+  private void dispatch() {
+    List<Waiter> granted = new ArrayList<>();
+    synchronized (this) {
+      grantRoundRobin(waiting, granted);
+      // Granting only takes capacity: nothing interactive can fit after this that did not fit before
+      grantRoundRobin(waitingBackground, granted);
+    }
+    for (Waiter waiter : granted) {
+      waiter.timeout.dispose();
+      waiter.sink.success(waiter.permit);
+    }
+  }
+
+  private void grantRoundRobin(LinkedHashMap<String, ArrayDeque<Waiter>> queues, List<Waiter> granted) {
+    boolean progress = true;
+    while (progress) {
+      progress = false;
+      // One grant per subject per pass
+      for (String subject : List.copyOf(queues.keySet())) {
+        ArrayDeque<Waiter> queue = queues.get(subject);
+        Waiter head = queue.peekFirst();
+        if (!fits(head.subject, head.weight)) {
+          continue;
+        }
+        queue.pollFirst();
+        countDequeued(head);
+        head.permit = grant(head.subject, head.weight);
+        granted.add(head);
+        // Move the subject to the back of the rotation
+        queues.remove(subject);
+        if (!queue.isEmpty()) {
+          queues.put(subject, queue);
+        }
+        progress = true;
+      }
+    }
+  }
+}
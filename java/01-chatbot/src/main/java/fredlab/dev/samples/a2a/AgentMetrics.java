@@ -0,0 +1,76 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-level meters for the A2A endpoints, tagged by JSON-RPC method and resolved skill.
+ * Meters are created once per tag combination and cached, so recording costs a map lookup. Method and skill come
+ * from clients and are normalized before anything is looked up, so unknown values all share the "other" meters.
+ */
+@Component
+public class AgentMetrics {
+
+  // Skill ids come from clients; anything not on the agent card is tagged "other" to bound cardinality
+  private static final Set<String> KNOWN_SKILLS = Set.of("openai.brief", "openai.research");
+  private static final Set<String> KNOWN_METHODS = Set.of(
+      "message/send", "message/stream", "tasks/get", "tasks/cancel", "tasks/resubscribe",
+      "tasks/pushNotificationConfig/set", "tasks/pushNotificationConfig/get",
+      "tasks/pushNotificationConfig/list", "tasks/pushNotificationConfig/delete",
+      "agent/getAuthenticatedExtendedCard", "batch",
+      "grpc/SendMessage", "grpc/SendStreamingMessage", "grpc/GetTask");
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Timer> latency = new ConcurrentHashMap<>();
+  private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+  private final DistributionSummary batchSize;
+
+  public AgentMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.batchSize = DistributionSummary.builder("agent.jsonrpc.batch.size")
+        .description("Calls per JSON-RPC batch request")
+        .register(meterRegistry);
+  }
+
+  public static String skillTag(String skill) {
+    return KNOWN_SKILLS.contains(skill) ? skill : "other";
+  }
+
+  static String methodTag(String method) {
+    return KNOWN_METHODS.contains(method) ? method : "other";
+  }
+
+  /** Total time of a message/send or message/stream call, from receipt to the last event. */
+  public void recordLatency(String method, String skill, long startNanos) {
+    // Keyed on the tags, not the raw strings: the cache stays as small as the set of meters
+    String methodTag = methodTag(method);
+    String skillTag = skillTag(skill);
+    latency.computeIfAbsent(methodTag + '|' + skillTag, key -> Timer.builder("agent.request.latency")
+            .description("Time from request receipt to the final response or event")
+            .tag("method", methodTag)
+            .tag("skill", skillTag)
+            .register(meterRegistry))
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordBatch(int size) {
+    batchSize.record(size);
+  }
+
+  public void recordError(String method, int code) {
+    String methodTag = methodTag(method);
+    errors.computeIfAbsent(methodTag + '|' + code, key -> Counter.builder("agent.jsonrpc.errors")
+            .tag("method", methodTag)
+            .tag("code", Integer.toString(code))
+            .register(meterRegistry))
+        .increment();
+  }
+}
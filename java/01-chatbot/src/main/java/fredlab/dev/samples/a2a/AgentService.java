@@ -1,18 +1,39 @@
 package fredlab.dev.samples.a2a;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.time.Duration;
 
 @Service
 public class AgentService {
 
-    private final ChatClient chatClient;
+    private static final Logger log = LoggerFactory.getLogger(AgentService.class);
+
+    private final ModelRouter modelRouter;
+    private final Scheduler llmScheduler;
+    private final ResponseCache responseCache;
+    private final SingleFlight singleFlight;
+    private final AdaptiveChunker chunker;
+    private final ConversationStore conversations;
     private static final String BRIEF_SKILL = "openai.brief";
     private static final String RESEARCH_SKILL = "openai.research";
+    // JSON schema instructions for the brief skill, the same ones .entity(AgentResponse.class) would add
+    private static final String STRUCTURED_FORMAT = new BeanOutputConverter<>(AgentResponse.class).getFormat();
+    private static final String SUMMARY_INSTRUCTIONS = """
+            Summarize this conversation for your own later reference, in under 120 words.
+            Keep facts, decisions, names and open questions; drop pleasantries. Plain text, no headings.
+            """;
 
     // 1. Define the structure you want the AI to follow
     public record AgentResponse(String title, List<String> bulletPoints) {
@@ -24,49 +45,161 @@ public class AgentService {
         }
     }
 
-    public AgentService(ChatClient.Builder chatClientBuilder) {
-        this.chatClient = chatClientBuilder.build();
+    public AgentService(ModelRouter modelRouter, Scheduler llmScheduler,
+                        ResponseCache responseCache, SingleFlight singleFlight, AdaptiveChunker chunker,
+                        ConversationStore conversations) {
+        this.modelRouter = modelRouter;
+        this.llmScheduler = llmScheduler;
+        this.responseCache = responseCache;
+        this.singleFlight = singleFlight;
+        this.chunker = chunker;
+        this.conversations = conversations;
     }
 
-    public String ask(String userText, String skillId) {
+    /**
+     * Answers a prompt without blocking the caller: both skills are collected from the shared token stream
+     * (structured bullets parsed incrementally for the brief skill, plain Markdown for research).
+     * Earlier turns of the same contextId are part of the prompt (see {@link ConversationStore}).
+     */
+    public Mono<String> askAsync(String contextId, String userText, String skillId) {
         String skill = resolvedSkill(skillId);
 
-        // Brief skill: structured bullets; Research skill: richer narrative Markdown
-        if (RESEARCH_SKILL.equals(skill)) {
-            return this.chatClient.prompt()
-                    .system(getSystemInstructions(skill))
-                    .user(userText)
-                    .call()
-                    .content();
-        }
+        return Mono.defer(() -> {
+            ConversationStore.Window history = conversations.window(contextId);
+            String system = withSummary(getSystemInstructions(skill), history);
+            // The same question means something else in another conversation: the history is part of every key
+            ResponseCache.Key key = responseCache.key("call", skill, system + history.fingerprint(), userText);
+
+            String cached = responseCache.getAnswer(key);
+            if (cached != null) {
+                remember(contextId, userText, cached);
+                return Mono.just(cached);
+            }
+
+            // Same upstream requests as message/stream, so both methods join one token stream
+            Mono<String> answer = markdown(skill, system, history, userText)
+                    .collect(Collectors.joining())
+                    .filter(text -> !text.isEmpty());
+
+            return answer
+                    .doOnNext(text -> {
+                        responseCache.putAnswer(key, text);
+                        remember(contextId, userText, text);
+                    })
+                    .defaultIfEmpty("Error: No response");
+        });
+    }
 
-        AgentResponse response = this.chatClient.prompt()
-                .system(getSystemInstructions(skill))
-                .user(userText)
-                .call()
-                .entity(AgentResponse.class);
+    public Flux<String> stream(String contextId, String userText, String skillId) {
+        String skill = resolvedSkill(skillId);
+
+        return Flux.defer(() -> {
+            ConversationStore.Window history = conversations.window(contextId);
+            String system = withSummary(getSystemInstructions(skill), history);
+            ResponseCache.Key key = responseCache.key("stream", skill, system + history.fingerprint(), userText);
+
+            // Cache hit: replay the recorded chunk sequence as-is
+            List<String> cached = responseCache.getChunks(key);
+            if (cached != null) {
+                return Flux.fromIterable(cached)
+                        .doOnComplete(() -> remember(contextId, userText, String.join("", cached)));
+            }
 
-        return response != null ? response.toMarkdown() : "Error: No response";
+            List<String> recorded = new ArrayList<>();
+            // Research: the first token goes out immediately, then chunks grow with the token rate and end on
+            // word/line boundaries. Brief: the title and each bullet are one chunk, sent as soon as they are parsed.
+            Flux<String> chunks = RESEARCH_SKILL.equals(skill)
+                    ? chunker.chunk(tokens(skill, system, history, userText, null), skill)
+                    : markdown(skill, system, history, userText);
+            return chunks
+                    .doOnNext(recorded::add)
+                    // Only complete streams are cached and remembered; errors and cancellations are not
+                    .doOnComplete(() -> {
+                        responseCache.putChunks(key, recorded);
+                        remember(contextId, userText, String.join("", recorded));
+                    });
+        });
     }
 
-    public Flux<String> stream(String userText, String skillId) {
-        /* Note: .entity() doesn't support streaming directly in the same way.
-           For a demo, if you need streaming Markdown, it is best to use a 
-           standard String stream but keep the system prompt very strict.
-        */
-        return this.chatClient.prompt()
-                .system(getSystemInstructions(skillId))
-                .user(userText)
-                .stream()
-                .content()
-                // Buffer tokens to avoid mid-word/mid-URL chunks; larger batches for cleaner rendering
-                .bufferTimeout(
-                        RESEARCH_SKILL.equals(resolvedSkill(skillId)) ? 80 : 120,
-                        Duration.ofMillis(350)
-                )
-                .map(chunks -> String.join("", chunks));
+    /**
+     * Answer as Markdown pieces. Brief skill: structured bullets, parsed from the JSON token stream as each value
+     * completes (see {@link StructuredMarkdownStream}); research skill: the narrative Markdown tokens as-is.
+     */
+    private Flux<String> markdown(String skill, String system, ConversationStore.Window history, String userText) {
+        return RESEARCH_SKILL.equals(skill)
+                ? tokens(skill, system, history, userText, null)
+                : StructuredMarkdownStream.toMarkdown(tokens(skill, system, history, userText, STRUCTURED_FORMAT));
     }
 
+    /**
+     * Raw upstream token stream, shared between concurrent callers asking the same question.
+     *
+     * @param format output format instructions appended to the user message, or null
+     */
+    private Flux<String> tokens(String skill, String system, ConversationStore.Window history, String userText,
+                                String format) {
+        ResponseCache.Key key = responseCache.key("tokens", skill, system + history.fingerprint(), userText);
+        // Routed to the skill's model; a hedged route may race a second endpoint for the first token
+        return singleFlight.join(key, () -> modelRouter.execute(skill, prompt -> {
+            prompt.system(system).messages(toMessages(history));
+            if (format == null) {
+                prompt.user(userText);
+            } else {
+                // Both as template parameters: neither the schema's nor the user's braces are placeholders
+                prompt.user(user -> user.text("{text}\n{format}").param("text", userText).param("format", format));
+            }
+            return prompt.stream().content();
+        }));
+    }
+
+    private static List<Message> toMessages(ConversationStore.Window history) {
+        List<Message> messages = new ArrayList<>(history.turns().size());
+        for (ConversationStore.Turn turn : history.turns()) {
+            messages.add("user".equals(turn.role()) ? new UserMessage(turn.text()) : new AssistantMessage(turn.text()));
+        }
+        return messages;
+    }
+
+    private static String withSummary(String system, ConversationStore.Window history) {
+        return history.summary() == null
+                ? system
+                : system + "\nSummary of the earlier conversation (context only):\n" + history.summary() + "\n";
+    }
+
+    /**
+     * Records the exchange for the next turn of this context. Once the history outgrows the threshold,
+     * the oldest turns are folded into the summary in the background.
+     */
+    private void remember(String contextId, String userText, String answer) {
+        conversations.append(contextId, userText, answer);
+        ConversationStore.Overflow overflow = conversations.takeOverflow(contextId);
+        if (overflow == null) {
+            return;
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        if (overflow.summary() != null) {
+            transcript.append("Earlier summary:\n").append(overflow.summary()).append("\n\n");
+        }
+        for (ConversationStore.Turn turn : overflow.turns()) {
+            transcript.append(turn.role()).append(": ").append(turn.text()).append('\n');
+        }
+        modelRouter.defaultClient()
+                .publishOn(llmScheduler)
+                .map(client -> client.prompt()
+                        .system(SUMMARY_INSTRUCTIONS)
+                        .user(transcript.toString())
+                        .call()
+                        .content())
+                .subscribe(
+                        summary -> conversations.summarized(contextId, overflow, summary),
+                        ex -> {
+                            log.warn("[BUSINESS] Could not summarize context {}: {}", contextId, ex.getMessage());
+                            conversations.summarized(contextId, overflow, null);
+                        });
+    }
+
+
     private String getSystemInstructions(String skillId) {
         String skill = resolvedSkill(skillId);
         return switch (skill) {
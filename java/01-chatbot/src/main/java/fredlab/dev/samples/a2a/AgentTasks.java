@@ -0,0 +1,180 @@
+package fredlab.dev.samples.a2a;
+
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Running a prompt as an A2A task, shared by the transports (JSON-RPC/SSE in {@link A2aController}, gRPC in
+ * {@link A2aGrpcService}): admission, the task's events and its registration in the {@link TaskStore}.
+ */
+@Component
+public class AgentTasks {
+
+  private final AgentService agentService;
+  private final TaskStore taskStore;
+  private final AdmissionControl admissionControl;
+  private final AgentMetrics metrics;
+
+  public AgentTasks(AgentService agentService, TaskStore taskStore, AdmissionControl admissionControl,
+                    AgentMetrics metrics) {
+    this.agentService = agentService;
+    this.taskStore = taskStore;
+    this.admissionControl = admissionControl;
+    this.metrics = metrics;
+  }
+
+  /**
+   * The whole answer at once (message/send), generated under an admission permit.
+   */
+  Mono<String> answer(String subject, String contextId, String userText, String skillId) {
+    return admissionControl.acquire(subject, resolvedSkill(skillId))
+        .flatMap(permit -> agentService.askAsync(conversationKey(subject, contextId), userText, skillId)
+            .doFinally(signal -> permit.release()));
+  }
+
+  /**
+   * Creates a task and starts its generation detached from the caller, who follows it with
+   * {@link TaskStore#follow}. The permit is released when the generation ends.
+   */
+  TaskStore.TaskRecord startStreaming(String taskId, String contextId, String subject, String userText,
+                                      String skillId, AdmissionControl.Permit permit, String method, long startNanos) {
+    var userMessage = userMessage(taskId, contextId, userText);
+    TaskStore.TaskRecord task = taskStore.create(taskId, contextId, resolvedSkill(skillId), userMessage, subject);
+
+    // If every follower disconnects, TaskStore disposes the generation: the cancel travels through concat,
+    // the chunker and the single-flight share down to the Spring AI WebClient stream.
+    taskStore.start(task, taskEvents(userMessage, conversationKey(subject, contextId), userText, skillId, method, startNanos)
+        .doFinally(signal -> permit.release()));
+    return task;
+  }
+
+  /**
+   * Everything a task emits: submitted, working, the answer chunks and the final status.
+   */
+  Flux<Object> taskEvents(A2aTypes.Message userMessage, String conversation, String userText,
+                          String skillId, String method, long startNanos) {
+    String taskId = userMessage.taskId();
+    String contextId = userMessage.contextId();
+    var submittedTask = new A2aTypes.Task(
+        taskId,
+        contextId,
+        new A2aTypes.TaskStatus("submitted"),
+        null,
+        List.of(userMessage),
+        A2aTypes.KIND_TASK,
+        Map.of()
+    );
+
+    var workingUpdate1 = new A2aTypes.TaskStatusUpdateEvent(
+        taskId,
+        contextId,
+        new A2aTypes.TaskStatus(
+            "working",
+            new A2aTypes.Message(
+                "agent",
+                List.of(new A2aTypes.TextPart("text", "Thinking about your request...")),
+                UUID.randomUUID().toString(),
+                taskId,
+                contextId
+            )
+        ),
+        false
+    );
+
+    var workingUpdate2 = new A2aTypes.TaskStatusUpdateEvent(
+        taskId,
+        contextId,
+        new A2aTypes.TaskStatus(
+            "working",
+            new A2aTypes.Message(
+                "agent",
+                List.of(new A2aTypes.TextPart("text", "Drafting the response in chunks...")),
+                UUID.randomUUID().toString(),
+                taskId,
+                contextId
+            )
+        ),
+        false
+    );
+
+    var first = new AtomicBoolean(true);
+
+    // Only the text varies between artifact updates; SseFrameEncoder adds the invariant JSON around it
+    Flux<Object> chunks = agentService.stream(conversation, userText, skillId)
+        .filter(chunk -> chunk != null && !chunk.isBlank())
+        .<Object>map(chunk -> new TaskStore.ArtifactChunk(chunk, !first.getAndSet(false)));
+
+    var completedStatus = new A2aTypes.TaskStatusUpdateEvent(
+        taskId,
+        contextId,
+        new A2aTypes.TaskStatus("completed"),
+        true
+    );
+
+    return Flux.concat(
+        Flux.<Object>just(submittedTask, workingUpdate1, workingUpdate2),
+        chunks,
+        Flux.<Object>just(completedStatus)
+    ).doOnComplete(() -> metrics.recordLatency(method, resolvedSkill(skillId), startNanos));
+  }
+
+  static A2aTypes.Message userMessage(String taskId, String contextId, String userText) {
+    return new A2aTypes.Message(
+        "user",
+        List.of(new A2aTypes.TextPart("text", userText)),
+        UUID.randomUUID().toString(),
+        taskId,
+        contextId
+    );
+  }
+
+  static A2aTypes.Task completedTask(String taskId, String contextId, String userText, String skillId, String answer) {
+    var artifact = new A2aTypes.Artifact(
+        UUID.randomUUID().toString(),
+        "answer",
+        List.of(new A2aTypes.TextPart("text", answer))
+    );
+
+    var userMessage = new A2aTypes.Message(
+        "user",
+        List.of(new A2aTypes.TextPart("text", userText == null ? "" : userText)),
+        UUID.randomUUID().toString(),
+        taskId,
+        contextId
+    );
+
+    var assistantMessage = new A2aTypes.Message(
+        "agent",
+        List.of(new A2aTypes.TextPart("text", answer)),
+        UUID.randomUUID().toString(),
+        taskId,
+        contextId
+    );
+
+    return new A2aTypes.Task(
+        taskId,
+        contextId,
+        new A2aTypes.TaskStatus("completed"),
+        List.of(artifact),
+        List.of(userMessage, assistantMessage),
+        A2aTypes.KIND_TASK,
+        Map.of("skillId", resolvedSkill(skillId))
+    );
+  }
+
+  // History is scoped to the caller: knowing someone else's contextId does not give access to their conversation
+  static String conversationKey(String subject, String contextId) {
+    return subject + '/' + contextId;
+  }
+
+  static String resolvedSkill(String skillId) {
+    return (skillId == null || skillId.isBlank()) ? "openai.brief" : skillId;
+  }
+}
@@ -0,0 +1,104 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of validated tokens in front of a {@link ReactiveJwtDecoder}.
+ * Clients reuse one bearer token for many calls, so only its first use pays for signature verification.
+ * Entries are keyed by the SHA-256 of the token (the raw token is not kept) and expire at the token's
+ * {@code exp}, or after {@code maxTtl} if that comes first. Tokens that fail validation are never cached.
+ */
+public class CachingJwtDecoder implements ReactiveJwtDecoder {
+
+  private record Entry(Jwt jwt, Instant expiresAt) {}
+
+  private final ReactiveJwtDecoder delegate;
+  private final int maxEntries;
+  private final Duration maxTtl;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxEntries;
+    }
+  };
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public CachingJwtDecoder(ReactiveJwtDecoder delegate, int maxEntries, Duration maxTtl, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.maxEntries = maxEntries;
+    this.maxTtl = maxTtl;
+
+    FunctionCounter.builder("agent.jwt.cache.hits", hits, AtomicLong::get).register(meterRegistry);
+    FunctionCounter.builder("agent.jwt.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+    Gauge.builder("agent.jwt.cache.size", this, CachingJwtDecoder::size).register(meterRegistry);
+  }
+
+  @Override
+  public Mono<Jwt> decode(String token) {
+    if (maxEntries <= 0) {
+      return delegate.decode(token);
+    }
+    String key = hash(token);
+    Jwt cached = get(key);
+    if (cached != null) {
+      return Mono.just(cached);
+    }
+    return delegate.decode(token).doOnNext(jwt -> put(key, jwt));
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized Jwt get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    if (!Instant.now().isBefore(entry.expiresAt())) {
+      entries.remove(key);
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.jwt();
+  }
+
+  private void put(String key, Jwt jwt) {
+    Instant expiresAt = Instant.now().plus(maxTtl);
+    if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+      expiresAt = jwt.getExpiresAt();
+    }
+    synchronized (this) {
+      entries.put(key, new Entry(jwt, expiresAt));
+    }
+  }
+
+  private static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 not available", ex);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package fredlab.dev.samples.a2a;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Limits for {@link AdaptiveChunker}, with optional per-skill overrides
+ * (app.stream.chunking.skills.[openai.research].max-chars=600).
+ */
+@ConfigurationProperties(prefix = "app.stream.chunking")
+public record ChunkingProperties(Limits defaults, Map<String, Limits> skills) {
+
+  /**
+   * @param minChars smallest batch once the stream is flowing
+   * @param maxChars largest batch the adaptive target may grow to
+   * @param maxDelay longest time text is held back waiting for a boundary
+   */
+  public record Limits(Integer minChars, Integer maxChars, Duration maxDelay) {}
+
+  private static final Limits FALLBACK = new Limits(24, 400, Duration.ofMillis(150));
+
+  public Limits forSkill(String skill) {
+    Limits base = merge(defaults, FALLBACK);
+    Limits override = skills == null ? null : skills.get(skill);
+    return merge(override, base);
+  }
+
+  private static Limits merge(Limits override, Limits base) {
+    if (override == null) return base;
+    return new Limits(
+        override.minChars() != null ? override.minChars() : base.minChars(),
+        override.maxChars() != null ? override.maxChars() : base.maxChars(),
+        override.maxDelay() != null ? override.maxDelay() : base.maxDelay()
+    );
+  }
+}
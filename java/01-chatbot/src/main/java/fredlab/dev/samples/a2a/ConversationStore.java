@@ -0,0 +1,243 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-contextId conversation history, so multi-turn clients send only the new message.
+ * Bounded everywhere: number of conversations (LRU), idle TTL, turns per conversation and characters per turn.
+ * Prompts get a token-budgeted window of the most recent turns; optionally, turns that no longer fit are folded
+ * into a running summary (see {@link AgentService}), so prompt size stays flat over long conversations.
+ * Token counts are estimated at ~4 characters per token.
+ */
+@Component
+public class ConversationStore {
+
+  public record Turn(long seq, String role, String text) {
+    int tokens() {
+      return estimateTokens(text);
+    }
+  }
+
+  /** What goes into the prompt: the running summary (may be null) and the most recent turns, oldest first. */
+  public record Window(String summary, List<Turn> turns) {
+    static final Window EMPTY = new Window(null, List.of());
+
+    public boolean isEmpty() {
+      return summary == null && turns.isEmpty();
+    }
+
+    /** Stable digest of the window, used in cache and single-flight keys. */
+    public String fingerprint() {
+      if (isEmpty()) return "";
+      try {
+        var digest = MessageDigest.getInstance("SHA-256");
+        if (summary != null) digest.update(summary.getBytes(StandardCharsets.UTF_8));
+        for (Turn turn : turns) {
+          digest.update((byte) 0);
+          digest.update(turn.role().getBytes(StandardCharsets.UTF_8));
+          digest.update((byte) 0);
+          digest.update(turn.text().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IllegalStateException("SHA-256 not available", ex);
+      }
+    }
+  }
+
+  /** Oldest turns that fell out of the window, handed out once for summarization. */
+  public record Overflow(String summary, List<Turn> turns) {
+    long lastSeq() {
+      return turns.get(turns.size() - 1).seq();
+    }
+  }
+
+  private static final class Conversation {
+    final ArrayDeque<Turn> turns = new ArrayDeque<>();
+    String summary;
+    long nextSeq;
+    long lastAccess;
+    int tokens;
+    boolean summarizing;
+  }
+
+  private final boolean enabled;
+  private final int maxContexts;
+  private final long ttlMillis;
+  private final int maxTurns;
+  private final int maxTurnChars;
+  private final int historyTokens;
+  private final boolean summarize;
+  private final int summarizeAboveTokens;
+
+  private final LinkedHashMap<String, Conversation> conversations = new LinkedHashMap<>(256, 0.75f, true);
+  private final DistributionSummary windowTokens;
+
+  public ConversationStore(@Value("${app.conversation.enabled:true}") boolean enabled,
+                           @Value("${app.conversation.max-contexts:10000}") int maxContexts,
+                           @Value("${app.conversation.ttl:30m}") Duration ttl,
+                           @Value("${app.conversation.max-turns:40}") int maxTurns,
+                           @Value("${app.conversation.max-turn-chars:8000}") int maxTurnChars,
+                           @Value("${app.conversation.history-tokens:1500}") int historyTokens,
+                           @Value("${app.conversation.summarize:false}") boolean summarize,
+                           @Value("${app.conversation.summarize-above-tokens:3000}") int summarizeAboveTokens,
+                           MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.maxContexts = maxContexts;
+    this.ttlMillis = ttl.toMillis();
+    this.maxTurns = maxTurns;
+    this.maxTurnChars = maxTurnChars;
+    this.historyTokens = historyTokens;
+    this.summarize = summarize;
+    this.summarizeAboveTokens = Math.max(summarizeAboveTokens, historyTokens);
+
+    Gauge.builder("agent.conversations.active", this, ConversationStore::size).register(meterRegistry);
+    this.windowTokens = DistributionSummary.builder("agent.prompt.history-tokens")
+        .description("Estimated tokens of conversation history (summary and turns) added to a prompt")
+        .baseUnit("tokens")
+        .register(meterRegistry);
+  }
+
+  static int estimateTokens(String text) {
+    return text == null ? 0 : (text.length() + 3) / 4;
+  }
+
+  public synchronized int size() {
+    return conversations.size();
+  }
+
+  /**
+   * Summary plus the newest turns whose estimated tokens fit in the history budget.
+   */
+  public synchronized Window window(String contextId) {
+    Conversation conversation = live(contextId);
+    if (conversation == null) {
+      return Window.EMPTY;
+    }
+    int budget = historyTokens - estimateTokens(conversation.summary);
+    List<Turn> recent = new ArrayList<>();
+    for (Iterator<Turn> it = conversation.turns.descendingIterator(); it.hasNext(); ) {
+      Turn turn = it.next();
+      if (turn.tokens() > budget) break;
+      budget -= turn.tokens();
+      recent.add(turn);
+    }
+    Collections.reverse(recent);
+    var window = new Window(conversation.summary, List.copyOf(recent));
+    windowTokens.record(historyTokens - budget);
+    return window;
+  }
+
+  public synchronized void append(String contextId, String userText, String answer) {
+    if (!enabled || contextId == null) return;
+    Conversation conversation = live(contextId);
+    if (conversation == null) {
+      conversation = new Conversation();
+      conversation.lastAccess = System.currentTimeMillis();
+      conversations.put(contextId, conversation);
+      evict();
+    }
+    add(conversation, "user", userText);
+    add(conversation, "assistant", answer);
+    while (conversation.turns.size() > maxTurns) {
+      conversation.tokens -= conversation.turns.removeFirst().tokens();
+    }
+    conversation.lastAccess = System.currentTimeMillis();
+  }
+
+  /**
+   * When summarization is on and the history exceeds the threshold, hands out the turns that no longer fit in the
+   * window (at most one summarization per conversation at a time); null otherwise.
+   */
+  public synchronized Overflow takeOverflow(String contextId) {
+    if (!summarize) return null;
+    Conversation conversation = live(contextId);
+    if (conversation == null || conversation.summarizing
+        || conversation.tokens + estimateTokens(conversation.summary) <= summarizeAboveTokens) {
+      return null;
+    }
+    // Keep what the window would keep without a summary; everything older is folded in
+    List<Turn> older = new ArrayList<>();
+    int kept = 0;
+    int budget = historyTokens;
+    for (Iterator<Turn> it = conversation.turns.descendingIterator(); it.hasNext(); ) {
+      Turn turn = it.next();
+      if (turn.tokens() > budget) break;
+      budget -= turn.tokens();
+      kept++;
+    }
+    int index = 0;
+    for (Turn turn : conversation.turns) {
+      if (index++ >= conversation.turns.size() - kept) break;
+      older.add(turn);
+    }
+    if (older.isEmpty()) return null;
+    conversation.summarizing = true;
+    return new Overflow(conversation.summary, List.copyOf(older));
+  }
+
+  /**
+   * Replaces the summary and drops the summarized turns; with a null summary (failed call) the turns are kept.
+   */
+  public synchronized void summarized(String contextId, Overflow overflow, String summary) {
+    Conversation conversation = conversations.get(contextId);
+    if (conversation == null) return;
+    conversation.summarizing = false;
+    if (summary == null || summary.isBlank()) return;
+    conversation.summary = truncate(summary.strip());
+    while (!conversation.turns.isEmpty() && conversation.turns.peekFirst().seq() <= overflow.lastSeq()) {
+      conversation.tokens -= conversation.turns.removeFirst().tokens();
+    }
+  }
+
+  private void add(Conversation conversation, String role, String text) {
+    var turn = new Turn(conversation.nextSeq++, role, truncate(text == null ? "" : text));
+    conversation.turns.addLast(turn);
+    conversation.tokens += turn.tokens();
+  }
+
+  private String truncate(String text) {
+    return text.length() <= maxTurnChars ? text : text.substring(0, maxTurnChars);
+  }
+
+  private Conversation live(String contextId) {
+    if (!enabled || contextId == null) return null;
+    Conversation conversation = conversations.get(contextId);
+    if (conversation != null && conversation.lastAccess + ttlMillis < System.currentTimeMillis()) {
+      conversations.remove(contextId);
+      return null;
+    }
+    return conversation;
+  }
+
+  // Least recently used first: drop expired conversations, then enforce the count cap
+  private void evict() {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, Conversation>> it = conversations.entrySet().iterator();
+    while (it.hasNext()) {
+      Conversation eldest = it.next().getValue();
+      if (conversations.size() > maxContexts || eldest.lastAccess + ttlMillis < now) {
+        it.remove();
+      } else {
+        break;
+      }
+    }
+  }
+}
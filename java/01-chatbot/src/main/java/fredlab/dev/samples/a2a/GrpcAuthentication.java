@@ -0,0 +1,63 @@
+package fredlab.dev.samples.a2a;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * JWT bearer authentication for the gRPC transport, with the same (caching) decoder as the HTTP endpoints.
+ * The interceptor only picks the token from the {@code authorization} metadata; {@link #subject} validates it
+ * without blocking, as part of each call's reactive chain. With {@code app.security.enabled=false} there is no
+ * decoder and every call is accepted, as over HTTP.
+ */
+@Component
+public class GrpcAuthentication implements ServerInterceptor {
+
+  private static final Metadata.Key<String> AUTHORIZATION =
+      Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Context.Key<String> BEARER_TOKEN = Context.key("bearer-token");
+
+  private final ReactiveJwtDecoder jwtDecoder;
+
+  public GrpcAuthentication(ObjectProvider<ReactiveJwtDecoder> jwtDecoder) {
+    this.jwtDecoder = jwtDecoder.getIfAvailable();
+  }
+
+  @Override
+  public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+                                                     ServerCallHandler<Q, R> next) {
+    String authorization = headers.get(AUTHORIZATION);
+    String token = authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)
+        ? authorization.substring(7).trim()
+        : null;
+    return Contexts.interceptCall(Context.current().withValue(BEARER_TOKEN, token), call, headers, next);
+  }
+
+  /**
+   * The JWT subject of the current call. Must be called on the call's thread (it reads the gRPC context);
+   * the returned Mono fails with {@code UNAUTHENTICATED} for a missing or invalid token.
+   */
+  public Mono<String> subject() {
+    if (jwtDecoder == null) {
+      return Mono.just("unknown");
+    }
+    String token = BEARER_TOKEN.get();
+    if (token == null || token.isEmpty()) {
+      return Mono.error(Status.UNAUTHENTICATED.withDescription("Bearer token required").asRuntimeException());
+    }
+    return jwtDecoder.decode(token)
+        .map(Jwt::getSubject)
+        .onErrorMap(JwtException.class,
+            ex -> Status.UNAUTHENTICATED.withDescription("Invalid token").withCause(ex).asRuntimeException());
+  }
+}
@@ -0,0 +1,134 @@
+package fredlab.dev.samples.a2a;
+
+import fredlab.dev.samples.a2a.grpc.Artifact;
+import fredlab.dev.samples.a2a.grpc.Message;
+import fredlab.dev.samples.a2a.grpc.Part;
+import fredlab.dev.samples.a2a.grpc.Role;
+import fredlab.dev.samples.a2a.grpc.StreamResponse;
+import fredlab.dev.samples.a2a.grpc.Task;
+import fredlab.dev.samples.a2a.grpc.TaskArtifactUpdateEvent;
+import fredlab.dev.samples.a2a.grpc.TaskState;
+import fredlab.dev.samples.a2a.grpc.TaskStatus;
+import fredlab.dev.samples.a2a.grpc.TaskStatusUpdateEvent;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversions between {@link A2aTypes} and the protobuf messages of {@code a2a.proto}.
+ */
+final class GrpcMapper {
+
+  private GrpcMapper() {
+  }
+
+  // Text of every text part, in order, as for JSON-RPC params
+  static String userText(Message message) {
+    String first = null;
+    StringBuilder joined = null;
+    for (Part part : message.getContentList()) {
+      if (!part.hasText()) continue;
+      if (first == null) {
+        first = part.getText();
+      } else {
+        if (joined == null) joined = new StringBuilder(first);
+        joined.append('\n').append(part.getText());
+      }
+    }
+    return joined != null ? joined.toString() : first != null ? first : "";
+  }
+
+  /**
+   * One task event as a stream response; null for events that have no gRPC counterpart.
+   */
+  static StreamResponse toStreamResponse(TaskStore.TaskRecord task, Object result) {
+    if (result instanceof A2aTypes.Task snapshot) {
+      return StreamResponse.newBuilder().setTask(toTask(snapshot)).build();
+    }
+    if (result instanceof A2aTypes.TaskStatusUpdateEvent update) {
+      return StreamResponse.newBuilder().setStatusUpdate(TaskStatusUpdateEvent.newBuilder()
+              .setTaskId(update.taskId())
+              .setContextId(update.contextId())
+              .setStatus(toStatus(update.status()))
+              .setFinal(Boolean.TRUE.equals(update.isFinal())))
+          .build();
+    }
+    if (result instanceof TaskStore.ArtifactChunk chunk) {
+      // Same shape as the SSE artifact-update frame: one text part appended to the answer artifact
+      return StreamResponse.newBuilder().setArtifactUpdate(TaskArtifactUpdateEvent.newBuilder()
+              .setTaskId(task.taskId())
+              .setContextId(task.contextId())
+              .setArtifact(Artifact.newBuilder()
+                  .setArtifactId(task.artifactId())
+                  .setName("answer")
+                  .addParts(Part.newBuilder().setText(chunk.text())))
+              .setAppend(chunk.append()))
+          .build();
+    }
+    return null;
+  }
+
+  static Task toTask(A2aTypes.Task task) {
+    var builder = Task.newBuilder()
+        .setId(task.id())
+        .setContextId(task.contextId())
+        .setStatus(toStatus(task.status()));
+    if (task.artifacts() != null) {
+      for (A2aTypes.Artifact artifact : task.artifacts()) {
+        builder.addArtifacts(Artifact.newBuilder()
+            .setArtifactId(artifact.artifactId())
+            .setName(artifact.name() == null ? "" : artifact.name())
+            .addAllParts(toParts(artifact.parts())));
+      }
+    }
+    if (task.history() != null) {
+      task.history().forEach(message -> builder.addHistory(toMessage(message)));
+    }
+    if (task.metadata() != null) {
+      task.metadata().forEach((key, value) -> builder.putMetadata(key, String.valueOf(value)));
+    }
+    return builder.build();
+  }
+
+  private static TaskStatus toStatus(A2aTypes.TaskStatus status) {
+    var builder = TaskStatus.newBuilder().setState(toState(status.state()));
+    if (status.message() != null) {
+      builder.setUpdate(toMessage(status.message()));
+    }
+    return builder.build();
+  }
+
+  private static Message toMessage(A2aTypes.Message message) {
+    var builder = Message.newBuilder()
+        .setRole("agent".equals(message.role()) ? Role.ROLE_AGENT : Role.ROLE_USER)
+        .addAllContent(toParts(message.parts()));
+    if (message.messageId() != null) builder.setMessageId(message.messageId());
+    if (message.taskId() != null) builder.setTaskId(message.taskId());
+    if (message.contextId() != null) builder.setContextId(message.contextId());
+    return builder.build();
+  }
+
+  private static List<Part> toParts(List<A2aTypes.Part> parts) {
+    if (parts == null) {
+      return List.of();
+    }
+    return parts.stream()
+        .filter(part -> part instanceof A2aTypes.TextPart text && text.text() != null)
+        .map(part -> Part.newBuilder().setText(((A2aTypes.TextPart) part).text()).build())
+        .toList();
+  }
+
+  private static final Map<String, TaskState> STATES = Map.of(
+      "submitted", TaskState.TASK_STATE_SUBMITTED,
+      "working", TaskState.TASK_STATE_WORKING,
+      "completed", TaskState.TASK_STATE_COMPLETED,
+      "failed", TaskState.TASK_STATE_FAILED,
+      "canceled", TaskState.TASK_STATE_CANCELLED,
+      "input-required", TaskState.TASK_STATE_INPUT_REQUIRED,
+      "rejected", TaskState.TASK_STATE_REJECTED);
+
+  private static TaskState toState(String state) {
+    return STATES.getOrDefault(state, TaskState.TASK_STATE_UNSPECIFIED);
+  }
+}
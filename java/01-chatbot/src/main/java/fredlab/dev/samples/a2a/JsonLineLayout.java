@@ -0,0 +1,73 @@
+package fredlab.dev.samples.a2a;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+import org.slf4j.event.KeyValuePair;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Compact one-line JSON for {@link RequestLog} events: timestamp, logger, message and the event's key-value pairs
+ * as top-level fields. Numbers and booleans are written as JSON values, everything else as strings.
+ */
+public class JsonLineLayout extends LayoutBase<ILoggingEvent> {
+
+  @Override
+  public String doLayout(ILoggingEvent event) {
+    var json = new StringBuilder(256);
+    json.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.getTimeStamp())).append('"');
+    json.append(",\"logger\":");
+    quote(json, event.getLoggerName());
+    json.append(",\"event\":");
+    quote(json, event.getFormattedMessage());
+
+    List<KeyValuePair> pairs = event.getKeyValuePairs();
+    if (pairs != null) {
+      for (KeyValuePair pair : pairs) {
+        json.append(',');
+        quote(json, pair.key);
+        json.append(':');
+        Object value = pair.value;
+        if (value == null) {
+          json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+          json.append(value);
+        } else {
+          quote(json, value.toString());
+        }
+      }
+    }
+
+    IThrowableProxy throwable = event.getThrowableProxy();
+    if (throwable != null) {
+      json.append(",\"error\":");
+      quote(json, throwable.getClassName() + ": " + throwable.getMessage());
+    }
+    return json.append('}').append(CoreConstants.LINE_SEPARATOR).toString();
+  }
+
+  private static void quote(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> json.append("\\\"");
+        case '\\' -> json.append("\\\\");
+        case '\n' -> json.append("\\n");
+        case '\r' -> json.append("\\r");
+        case '\t' -> json.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+        }
+      }
+    }
+    json.append('"');
+  }
+}
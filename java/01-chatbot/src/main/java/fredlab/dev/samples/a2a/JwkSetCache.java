@@ -0,0 +1,171 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Signing keys of the token issuer, loaded at startup and refreshed in the background so that no request waits on
+ * the identity provider. A token signed with an unknown key id (key rotation) triggers one extra refresh, at most
+ * once per {@code minRefreshInterval}, so forged key ids cannot be used to hammer the issuer.
+ * <p>
+ * For fast starts the first load (and with it issuer discovery) can be deferred to the first token
+ * ({@code preload=false}), or the keys can be given as a static JWK set, which is never refreshed.
+ */
+public class JwkSetCache {
+
+  private static final Logger log = LoggerFactory.getLogger(JwkSetCache.class);
+
+  private final WebClient webClient;
+  private final String issuerUri;
+  private final Duration refreshInterval;
+  private final Duration minRefreshInterval;
+  private final boolean preload;
+  private final boolean pinned;
+
+  private volatile String jwkSetUri;
+  private volatile JWKSet jwkSet = new JWKSet();
+  private volatile long lastAttemptNanos;
+  // Concurrent refreshes share one fetch
+  private final AtomicReference<Mono<JWKSet>> inFlight = new AtomicReference<>();
+  private Disposable refresher;
+
+  private final Counter refreshed;
+  private final Counter refreshFailed;
+
+  /**
+   * @param staticKeys the issuer's keys, fixed (e.g. from a file); null to load them from the issuer
+   * @param preload load the keys at {@link #start} rather than for the first token
+   */
+  public JwkSetCache(WebClient webClient, String issuerUri, String jwkSetUri, JWKSet staticKeys,
+                     Duration refreshInterval, Duration minRefreshInterval, boolean preload,
+                     MeterRegistry meterRegistry) {
+    this.webClient = webClient;
+    this.issuerUri = issuerUri;
+    this.jwkSetUri = (jwkSetUri == null || jwkSetUri.isBlank()) ? null : jwkSetUri;
+    this.refreshInterval = refreshInterval;
+    this.minRefreshInterval = minRefreshInterval;
+    this.preload = preload;
+    this.pinned = staticKeys != null;
+    if (staticKeys != null) {
+      this.jwkSet = staticKeys;
+    }
+    this.refreshed = Counter.builder("agent.jwt.jwks.refresh").tag("result", "success").register(meterRegistry);
+    this.refreshFailed = Counter.builder("agent.jwt.jwks.refresh").tag("result", "failure").register(meterRegistry);
+  }
+
+  /**
+   * Starts the periodic refresh; with {@code preload} the first load runs immediately, otherwise the first token
+   * triggers it. Failures are logged and retried on the next tick.
+   */
+  public void start() {
+    if (pinned) {
+      log.info("[AUTH] Using {} static signing keys, not refreshed", jwkSet.getKeys().size());
+      return;
+    }
+    refresher = Flux.interval(preload ? Duration.ZERO : refreshInterval, refreshInterval)
+        .onBackpressureDrop()
+        .concatMap(tick -> refresh().onErrorResume(ex -> Mono.empty()))
+        .subscribe();
+  }
+
+  public void stop() {
+    if (refresher != null) {
+      refresher.dispose();
+    }
+  }
+
+  /**
+   * Key source for {@code NimbusReactiveJwtDecoder.withJwkSource}: keys matching the token header, from memory.
+   */
+  public Flux<JWK> keys(SignedJWT jwt) {
+    var selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+    List<JWK> keys = selector.select(jwkSet);
+    if (!keys.isEmpty() || pinned) {
+      return Flux.fromIterable(keys);
+    }
+    // Joining a load that is already running (e.g. the one at startup) is always fine; so is the first load
+    boolean loading = inFlight.get() != null;
+    if (!loading && lastAttemptNanos != 0 && System.nanoTime() - lastAttemptNanos < minRefreshInterval.toNanos()) {
+      return Flux.empty();
+    }
+    // Unknown key id: the issuer may have rotated its keys since the last refresh.
+    // A failed refresh leaves no key: the token is rejected (401) instead of failing the request
+    return refresh()
+        .onErrorResume(ex -> Mono.empty())
+        .flatMapIterable(selector::select);
+  }
+
+  private Mono<JWKSet> refresh() {
+    return Mono.defer(() -> {
+      Mono<JWKSet> current = inFlight.get();
+      if (current != null) {
+        return current;
+      }
+      Mono<JWKSet> fetch = resolveJwkSetUri()
+          .flatMap(uri -> webClient.get().uri(uri).retrieve().bodyToMono(String.class))
+          .map(this::parse)
+          .doOnNext(set -> {
+            jwkSet = set;
+            refreshed.increment();
+            log.debug("[AUTH] Loaded {} signing keys from {}", set.getKeys().size(), jwkSetUri);
+          })
+          .doOnError(ex -> {
+            refreshFailed.increment();
+            log.warn("[AUTH] Could not load signing keys for {}: {}", issuerUri, ex.toString());
+          })
+          .doFinally(signal -> inFlight.set(null))
+          .cache();
+      if (!inFlight.compareAndSet(null, fetch)) {
+        return refresh();
+      }
+      lastAttemptNanos = System.nanoTime();
+      return fetch;
+    });
+  }
+
+  // Issuer metadata is only read once: the JWK set location does not change with key rotation
+  private Mono<String> resolveJwkSetUri() {
+    if (jwkSetUri != null) {
+      return Mono.just(jwkSetUri);
+    }
+    String metadataUri = issuerUri.replaceAll("/$", "") + "/.well-known/openid-configuration";
+    return webClient.get().uri(metadataUri).retrieve().bodyToMono(JsonNode.class)
+        .map(metadata -> {
+          String issuer = metadata.path("issuer").asText();
+          if (!issuerUri.equals(issuer)) {
+            throw new IllegalStateException("Issuer " + issuer + " in metadata does not match " + issuerUri);
+          }
+          String uri = metadata.path("jwks_uri").asText(null);
+          if (uri == null) {
+            throw new IllegalStateException("No jwks_uri in metadata of " + issuerUri);
+          }
+          jwkSetUri = uri;
+          return uri;
+        });
+  }
+
+  private JWKSet parse(String body) {
+    try {
+      return JWKSet.parse(body);
+    } catch (ParseException ex) {
+      throw new IllegalStateException("Invalid JWK set", ex);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.autoconfigure.openai.OpenAiChatProperties;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Sends each skill's LLM calls to its configured model and endpoint ({@link ModelRoutingProperties}), e.g. a
+ * smaller, faster model for brief answers.
+ * A route may hedge: if the first value (first token of a stream, the answer of a blocking call) has not arrived
+ * within {@code hedge.after}, a second request goes to the hedge endpoint; whichever produces a value first is
+ * used and the other is cancelled. Hedging trades extra upstream calls for a shorter tail, so the deadline should
+ * sit around the p95 of agent.llm.first-token: agent.llm.hedge.fired / requests is the hedge rate and
+ * agent.llm.hedge.won{winner=hedge} / fired tells whether the hedges pay off.
+ * <p>
+ * Clients are built on first use, not at startup: the agent is ready before any model client exists, and
+ * {@link #prepare} builds them in the background right after that, ahead of the first request. The build runs on
+ * boundedElastic and callers chain onto its result, so a request that arrives first never blocks an event loop
+ * waiting for it.
+ */
+@Component
+public class ModelRouter {
+
+  private static final Logger log = LoggerFactory.getLogger(ModelRouter.class);
+
+  /** A chat client bound to one endpoint, and the model to ask it for (null: the client's default). */
+  private record Target(String description, ChatClient client, OpenAiChatOptions options) {
+    ChatClient.ChatClientRequestSpec prompt() {
+      ChatClient.ChatClientRequestSpec spec = client.prompt();
+      return options == null ? spec : spec.options(options);
+    }
+  }
+
+  private record Plan(Target primary, Target hedge, Duration after) {}
+
+  /** Every client and plan, built together on first use. */
+  private record Routes(ChatClient defaultClient, Plan defaultPlan, Map<String, Plan> plans) {}
+
+  private final OpenAiChatProperties chatProperties;
+  private final ModelRoutingProperties properties;
+  private final String defaultBaseUrl;
+  private final String defaultApiKey;
+  private final RestClient.Builder restClientBuilder;
+  private final WebClient.Builder webClientBuilder;
+  // Built once, on boundedElastic; a failed build is not cached, so the next caller tries again
+  private final Mono<Routes> routes;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final Map<String, Timer> firstValue = new ConcurrentHashMap<>();
+
+  public ModelRouter(OpenAiChatProperties chatProperties, ModelRoutingProperties properties,
+                     RestClientConfiguration.UpstreamClientBuilders upstreamClientBuilders,
+                     @Value("${spring.ai.openai.base-url:https://api.openai.com}") String defaultBaseUrl,
+                     @Value("${spring.ai.openai.api-key:}") String defaultApiKey,
+                     MeterRegistry meterRegistry) {
+    this.chatProperties = chatProperties;
+    this.properties = properties;
+    this.defaultBaseUrl = defaultBaseUrl;
+    this.defaultApiKey = defaultApiKey;
+    this.restClientBuilder = upstreamClientBuilders.restClientBuilder();
+    this.webClientBuilder = upstreamClientBuilders.webClientBuilder();
+    this.meterRegistry = meterRegistry;
+    this.routes = Mono.fromCallable(this::buildRoutes)
+        .subscribeOn(Schedulers.boundedElastic())
+        .cache(built -> Duration.ofMillis(Long.MAX_VALUE), ex -> Duration.ZERO, () -> Duration.ZERO);
+  }
+
+  /**
+   * Starts building the clients once the application is ready, off the startup path; a request arriving before
+   * the build finishes waits for the same build, without holding a thread.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void prepare() {
+    routes.subscribe(null, ex -> log.warn("[UPSTREAM] Could not build the model clients: {}", ex.toString()));
+  }
+
+  /** Client of the default model, for internal calls that belong to no skill (conversation summaries). */
+  public Mono<ChatClient> defaultClient() {
+    return routes.map(Routes::defaultClient);
+  }
+
+  private Routes buildRoutes() {
+    long startNanos = System.nanoTime();
+    // Same construction as the routed clients, with spring.ai.openai.chat.options as the default model and options
+    ChatClient defaultClient = ChatClient.builder(new OpenAiChatModel(
+        new OpenAiApi(defaultBaseUrl, defaultApiKey, restClientBuilder.clone(), webClientBuilder.clone()),
+        chatProperties.getOptions())).build();
+    Map<String, ChatClient> endpointClients = new HashMap<>();
+    Map<String, Plan> plans = new HashMap<>();
+    if (properties.skills() != null) {
+      properties.skills().forEach((skill, route) -> {
+        Target primary = new Target(describe(route.model(), route.baseUrl()),
+            clientFor(defaultClient, endpointClients, route.baseUrl(), route.apiKey()), options(route.model()));
+        Target hedge = null;
+        Duration after = null;
+        if (route.hedge() != null && route.hedge().after() != null) {
+          ModelRoutingProperties.Hedge h = route.hedge();
+          String model = h.model() != null ? h.model() : route.model();
+          String baseUrl = h.baseUrl() != null ? h.baseUrl() : route.baseUrl();
+          String apiKey = h.apiKey() != null ? h.apiKey() : route.apiKey();
+          hedge = new Target(describe(model, baseUrl), clientFor(defaultClient, endpointClients, baseUrl, apiKey),
+              options(model));
+          after = h.after();
+        }
+        plans.put(skill, new Plan(primary, hedge, after));
+        log.info("[UPSTREAM] Skill {} -> {}{}", skill, primary.description(),
+            hedge == null ? "" : ", hedged after " + after + " -> " + hedge.description());
+      });
+    }
+    log.info("[UPSTREAM] Model clients ready in {} ms", (System.nanoTime() - startNanos) / 1_000_000);
+    return new Routes(defaultClient, new Plan(new Target("default", defaultClient, null), null, null), plans);
+  }
+
+  /**
+   * Runs {@code call} against the skill's endpoint, hedged if the route says so.
+   *
+   * @param call completes the prompt (system, messages, user) and calls or streams it; invoked once per attempt
+   */
+  public <T> Flux<T> execute(String skill, Function<ChatClient.ChatClientRequestSpec, Flux<T>> call) {
+    // Once built, the cached routes are handed over on the subscribing thread, with no hop
+    return routes.flatMapMany(built -> {
+      Plan plan = built.plans().getOrDefault(skill, built.defaultPlan());
+      return plan.hedge() == null
+          ? attempt(skill, "primary", plan.primary(), call)
+          : hedged(skill, plan, call);
+    });
+  }
+
+  private <T> Flux<T> hedged(String skill, Plan plan, Function<ChatClient.ChatClientRequestSpec, Flux<T>> call) {
+    return Flux.defer(() -> {
+      AtomicBoolean fired = new AtomicBoolean();
+      AtomicReference<String> winner = new AtomicReference<>();
+      Flux<T> primary = attempt(skill, "primary", plan.primary(), call)
+          .doOnNext(value -> claim(skill, "primary", winner, fired));
+      Flux<T> hedge = Mono.delay(plan.after())
+          .doOnNext(tick -> {
+            fired.set(true);
+            counter("agent.llm.hedge.fired", skill, null).increment();
+          })
+          .thenMany(attempt(skill, "hedge", plan.hedge(), call))
+          .doOnNext(value -> claim(skill, "hedge", winner, fired));
+      // The first source to emit wins; the other is cancelled (before it fires, if the primary is on time)
+      return Flux.firstWithValue(primary, hedge);
+    });
+  }
+
+  private void claim(String skill, String source, AtomicReference<String> winner, AtomicBoolean fired) {
+    if (winner.compareAndSet(null, source) && fired.get()) {
+      counter("agent.llm.hedge.won", skill, source).increment();
+    }
+  }
+
+  // Time to the first value of one upstream attempt, per skill and role (primary or hedge)
+  private <T> Flux<T> attempt(String skill, String role, Target target,
+                              Function<ChatClient.ChatClientRequestSpec, Flux<T>> call) {
+    return Flux.defer(() -> {
+      long startNanos = System.nanoTime();
+      AtomicBoolean first = new AtomicBoolean(true);
+      return call.apply(target.prompt())
+          .doOnNext(value -> {
+            if (first.compareAndSet(true, false)) {
+              firstValueTimer(skill, role).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+          });
+    });
+  }
+
+  private Timer firstValueTimer(String skill, String role) {
+    String skillTag = AgentMetrics.skillTag(skill);
+    return firstValue.computeIfAbsent(skillTag + '|' + role, key -> Timer.builder("agent.llm.first-token")
+        .description("Time from sending an upstream request to its first token (or answer, for blocking calls)")
+        .tag("skill", skillTag)
+        .tag("endpoint", role)
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry));
+  }
+
+  private Counter counter(String name, String skill, String winner) {
+    String skillTag = AgentMetrics.skillTag(skill);
+    return counters.computeIfAbsent(name + '|' + skillTag + '|' + winner, key -> {
+      Counter.Builder builder = Counter.builder(name).tag("skill", skillTag);
+      return (winner == null ? builder : builder.tag("winner", winner)).register(meterRegistry);
+    });
+  }
+
+  // One client per distinct endpoint; all of them share the pooled upstream HTTP client
+  private ChatClient clientFor(ChatClient defaultClient, Map<String, ChatClient> endpointClients,
+                               String baseUrl, String apiKey) {
+    String url = baseUrl != null ? baseUrl : defaultBaseUrl;
+    String key = apiKey != null ? apiKey : defaultApiKey;
+    if (url.equals(defaultBaseUrl) && key.equals(defaultApiKey)) {
+      return defaultClient;
+    }
+    // Builders are cloned: OpenAiApi sets its base URL and auth header on the builder it is given
+    return endpointClients.computeIfAbsent(url + '|' + key, endpoint -> ChatClient.builder(new OpenAiChatModel(
+        new OpenAiApi(url, key, restClientBuilder.clone(), webClientBuilder.clone()))).build());
+  }
+
+  private static OpenAiChatOptions options(String model) {
+    return model == null ? null : OpenAiChatOptions.builder().withModel(model).build();
+  }
+
+  private String describe(String model, String baseUrl) {
+    return (model != null ? model : "default model") + " at " + (baseUrl != null ? baseUrl : defaultBaseUrl);
+  }
+}
@@ -0,0 +1,57 @@
+package fredlab.dev.samples.a2a;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Model and endpoint per skill, for {@link ModelRouter}
+ * (app.llm.routing.skills.[openai.brief].model=gpt-4o-mini). Unset base-url and api-key fall back to
+ * spring.ai.openai.*; skills without a route use the default Spring AI chat model.
+ */
+@ConfigurationProperties(prefix = "app.llm.routing")
+public record ModelRoutingProperties(Map<String, Route> skills) {
+
+  /**
+   * @param model   model name sent with every request of the skill
+   * @param baseUrl OpenAI-compatible endpoint
+   * @param apiKey  key for that endpoint
+   * @param hedge   optional second request when the first one is slow
+   */
+  public record Route(String model, String baseUrl, String apiKey, Hedge hedge) {}
+
+  /**
+   * @param after   deadline for the first token (or the whole answer, for blocking calls) before hedging
+   * @param model   model of the hedge request; defaults to the route's
+   * @param baseUrl endpoint of the hedge request; defaults to the route's
+   * @param apiKey  key of the hedge endpoint; defaults to the route's
+   */
+  public record Hedge(Duration after, String model, String baseUrl, String apiKey) {}
+
+  public Route forSkill(String skill) {
+    return skills == null ? null : skills.get(skill);
+  }
+
+  /** Every distinct endpoint a call may go to: the default one, then those of the routes and their hedges. */
+  public Set<String> baseUrls(String defaultBaseUrl) {
+    Set<String> urls = new LinkedHashSet<>();
+    urls.add(normalize(defaultBaseUrl));
+    if (skills != null) {
+      for (Route route : skills.values()) {
+        String routeUrl = route.baseUrl() != null ? route.baseUrl() : defaultBaseUrl;
+        urls.add(normalize(routeUrl));
+        if (route.hedge() != null && route.hedge().baseUrl() != null) {
+          urls.add(normalize(route.hedge().baseUrl()));
+        }
+      }
+    }
+    return urls;
+  }
+
+  private static String normalize(String baseUrl) {
+    return baseUrl.replaceAll("/+$", "");
+  }
+}
@@ -0,0 +1,295 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers task updates to client webhooks (A2A push notifications), so clients of non-blocking message/send do
+ * not have to hold a connection or poll.
+ * Each registered config follows the task's events; events within {@code batch-window} (or {@code max-batch} of
+ * them) collapse into one POST of the task as it is at that moment, and a slow webhook only ever gets the latest
+ * state. Failed POSTs (connection errors, 429, 5xx) are retried with exponential backoff. Webhooks share a
+ * dedicated connection pool, separate from the upstream LLM one.
+ * Off unless enabled, and only to the hosts in {@code allowed-hosts}. Webhook hosts must also resolve to public
+ * addresses: loopback, link-local (cloud metadata), private and wildcard addresses are refused when the config is
+ * validated and again on every connection, against the address actually connected to, so a DNS answer that changes
+ * in between cannot point a webhook into the agent's network.
+ */
+@Component
+public class PushNotifier {
+
+  private static final Logger log = LoggerFactory.getLogger(PushNotifier.class);
+  private static final String TOKEN_HEADER = "X-A2A-Notification-Token";
+
+  /**
+   * @param progress                also notify on answer chunks, not only on status changes
+   * @param allowedHosts            webhook hosts that may be called; empty allows none, {@code *} any public host
+   * @param allowPrivateAddresses   also call webhooks on loopback and private addresses (local testing only)
+   */
+  @ConfigurationProperties(prefix = "app.push")
+  public record Properties(Boolean enabled, Integer maxConnections, Duration connectTimeout, Duration timeout,
+                           Duration batchWindow, Integer maxBatch, Integer maxAttempts, Duration retryBackoff,
+                           Boolean progress, List<String> allowedHosts, Integer maxConfigsPerTask,
+                           Boolean allowPrivateAddresses) {}
+
+  /** A webhook address the agent will not connect to. */
+  static final class BlockedAddressException extends ConnectException {
+    BlockedAddressException(String message) {
+      super(message);
+    }
+  }
+
+  private final boolean enabled;
+  private final Duration batchWindow;
+  private final int maxBatch;
+  private final int maxAttempts;
+  private final Duration retryBackoff;
+  private final boolean progress;
+  private final List<String> allowedHosts;
+  private final boolean allowPrivateAddresses;
+  private final int maxConfigsPerTask;
+  private final ObjectMapper objectMapper;
+  private final ConnectionProvider connections;
+  private final WebClient webClient;
+  private final AtomicInteger activeDeliveries = new AtomicInteger();
+  private final Counter delivered;
+  private final Counter retried;
+  private final Counter failed;
+
+  public PushNotifier(Properties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+    this.enabled = properties.enabled() != null && properties.enabled();
+    this.batchWindow = properties.batchWindow() != null ? properties.batchWindow() : Duration.ofMillis(500);
+    this.maxBatch = properties.maxBatch() != null ? properties.maxBatch() : 64;
+    this.maxAttempts = properties.maxAttempts() != null ? properties.maxAttempts() : 5;
+    this.retryBackoff = properties.retryBackoff() != null ? properties.retryBackoff() : Duration.ofMillis(500);
+    this.progress = properties.progress() != null && properties.progress();
+    this.allowedHosts = properties.allowedHosts() != null ? properties.allowedHosts() : List.of();
+    this.allowPrivateAddresses = properties.allowPrivateAddresses() != null && properties.allowPrivateAddresses();
+    this.maxConfigsPerTask = properties.maxConfigsPerTask() != null ? properties.maxConfigsPerTask() : 4;
+    this.objectMapper = objectMapper;
+
+    Duration connectTimeout = properties.connectTimeout() != null ? properties.connectTimeout() : Duration.ofSeconds(3);
+    this.connections = ConnectionProvider.builder("push")
+        .maxConnections(properties.maxConnections() != null ? properties.maxConnections() : 32)
+        .pendingAcquireMaxCount(-1)
+        .maxIdleTime(Duration.ofSeconds(30))
+        .metrics(true)
+        .build();
+    HttpClient httpClient = HttpClient.create(connections)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+        .responseTimeout(properties.timeout() != null ? properties.timeout() : Duration.ofSeconds(10))
+        // Checked on the connect itself, with the address the host resolved to this time
+        .doOnChannelInit((observer, channel, remoteAddress) ->
+            channel.pipeline().addFirst("push-address-check", new AddressCheck()));
+    this.webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+
+    this.delivered = Counter.builder("agent.push.deliveries").tag("result", "ok").register(meterRegistry);
+    this.failed = Counter.builder("agent.push.deliveries").tag("result", "failed").register(meterRegistry);
+    this.retried = Counter.builder("agent.push.retries").register(meterRegistry);
+    Gauge.builder("agent.push.active", activeDeliveries, AtomicInteger::get)
+        .description("Webhook configs currently following a task")
+        .register(meterRegistry);
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * Checks a config from a client before anything is started for it. Resolves the webhook host, which blocks: call
+   * it off the event loop ({@link #check}).
+   *
+   * @throws IllegalArgumentException with a message for the client
+   */
+  public void validate(A2aTypes.PushNotificationConfig config) {
+    if (config == null || config.url() == null || config.url().isBlank()) {
+      throw new IllegalArgumentException("pushNotificationConfig.url is required");
+    }
+    URI uri;
+    try {
+      uri = URI.create(config.url());
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("pushNotificationConfig.url is not a valid URL");
+    }
+    boolean web = "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+    if (!web || uri.getHost() == null) {
+      throw new IllegalArgumentException("pushNotificationConfig.url must be an http(s) URL");
+    }
+    if (!allowedHosts.contains("*") && allowedHosts.stream().noneMatch(uri.getHost()::equalsIgnoreCase)) {
+      throw new IllegalArgumentException("Webhook host not allowed: " + uri.getHost());
+    }
+    InetAddress[] addresses;
+    try {
+      addresses = InetAddress.getAllByName(uri.getHost());
+    } catch (UnknownHostException ex) {
+      throw new IllegalArgumentException("Webhook host does not resolve: " + uri.getHost());
+    }
+    for (InetAddress address : addresses) {
+      if (blocked(address)) {
+        throw new IllegalArgumentException("Webhook host not allowed: " + uri.getHost());
+      }
+    }
+  }
+
+  /**
+   * {@link #validate} on a blocking-capable thread; fails with its IllegalArgumentException.
+   */
+  public Mono<Void> check(A2aTypes.PushNotificationConfig config) {
+    return Mono.<Void>fromRunnable(() -> validate(config)).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private boolean blocked(InetAddress address) {
+    if (allowPrivateAddresses) {
+      return false;
+    }
+    return address.isLoopbackAddress() || address.isLinkLocalAddress() || address.isSiteLocalAddress()
+        || address.isAnyLocalAddress() || address.isMulticastAddress()
+        // IPv6 unique local addresses (fc00::/7), the IPv6 counterpart of the private IPv4 ranges
+        || (address instanceof Inet6Address && (address.getAddress()[0] & 0xfe) == 0xfc);
+  }
+
+  // Fails the connect of a channel whose resolved address is not allowed; one per channel
+  private final class AddressCheck extends ChannelOutboundHandlerAdapter {
+    @Override
+    public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress,
+                        ChannelPromise promise) throws Exception {
+      if (remoteAddress instanceof InetSocketAddress inet && inet.getAddress() != null && blocked(inet.getAddress())) {
+        promise.setFailure(new BlockedAddressException("Webhook address not allowed: " + inet.getAddress().getHostAddress()));
+        return;
+      }
+      super.connect(ctx, remoteAddress, localAddress, promise);
+    }
+  }
+
+  /**
+   * Assigns the config an id if it has none and starts delivering the task's updates to it. The config must have
+   * passed {@link #validate}.
+   *
+   * @return the stored config
+   * @throws IllegalArgumentException for too many configs on the task
+   */
+  public A2aTypes.PushNotificationConfig register(TaskStore.TaskRecord task, A2aTypes.PushNotificationConfig config) {
+    var stored = config.id() != null && !config.id().isBlank()
+        ? config
+        : new A2aTypes.PushNotificationConfig(UUID.randomUUID().toString(), config.url(), config.token(), config.authentication());
+    // Stored before the delivery starts, so a rejected config never sends anything
+    Disposable.Swap delivery = Disposables.swap();
+    if (!task.putPushConfig(stored, delivery, maxConfigsPerTask)) {
+      throw new IllegalArgumentException("At most " + maxConfigsPerTask + " push notification configs per task");
+    }
+    delivery.update(deliver(task, stored));
+    log.debug("[PUSH] Registered webhook {} for task {}", stored.url(), task.taskId());
+    return stored;
+  }
+
+  public List<A2aTypes.PushNotificationConfig> configs(TaskStore.TaskRecord task) {
+    return task.pushConfigs();
+  }
+
+  public boolean delete(TaskStore.TaskRecord task, String configId) {
+    return configId != null && task.removePushConfig(configId);
+  }
+
+  private Disposable deliver(TaskStore.TaskRecord task, A2aTypes.PushNotificationConfig config) {
+    return task.events(0)
+        .filter(event -> progress || !(event.result() instanceof TaskStore.ArtifactChunk))
+        .bufferTimeout(maxBatch, batchWindow)
+        // Every POST carries the current task, so batches that queue up behind a slow webhook can be dropped
+        .onBackpressureLatest()
+        .concatMap(batch -> post(task, config), 1)
+        .doOnSubscribe(subscription -> activeDeliveries.incrementAndGet())
+        .doFinally(signal -> activeDeliveries.decrementAndGet())
+        .subscribe();
+  }
+
+  private Mono<Void> post(TaskStore.TaskRecord task, A2aTypes.PushNotificationConfig config) {
+    return Mono.defer(() -> webClient.post()
+            .uri(config.url())
+            .contentType(MediaType.APPLICATION_JSON)
+            .headers(headers -> authenticate(headers, config))
+            // Taken at send time (and again on retry), so the webhook gets the freshest state
+            .bodyValue(toJson(task.toTask()))
+            .retrieve()
+            .toBodilessEntity())
+        .retryWhen(Retry.backoff(Math.max(0, maxAttempts - 1), retryBackoff)
+            .filter(PushNotifier::retryable)
+            .doBeforeRetry(signal -> retried.increment())
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+        .doOnSuccess(response -> delivered.increment())
+        .onErrorResume(ex -> {
+          failed.increment();
+          log.warn("[PUSH] Could not notify {} about task {}: {}", config.url(), task.taskId(), ex.getMessage());
+          return Mono.empty();
+        })
+        .then();
+  }
+
+  private static void authenticate(HttpHeaders headers, A2aTypes.PushNotificationConfig config) {
+    if (config.token() != null) {
+      headers.set(TOKEN_HEADER, config.token());
+    }
+    var authentication = config.authentication();
+    if (authentication != null && authentication.credentials() != null && authentication.schemes() != null
+        && authentication.schemes().stream().anyMatch("Bearer"::equalsIgnoreCase)) {
+      headers.setBearerAuth(authentication.credentials());
+    }
+  }
+
+  private static boolean retryable(Throwable ex) {
+    if (ex instanceof WebClientRequestException request) {
+      return !(request.getCause() instanceof BlockedAddressException);
+    }
+    return ex instanceof WebClientResponseException response
+        && (response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429);
+  }
+
+  private byte[] toJson(A2aTypes.Task task) {
+    try {
+      return objectMapper.writeValueAsBytes(task);
+    } catch (Exception ex) {
+      throw new IllegalStateException("Could not serialize task " + task.id(), ex);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    connections.dispose();
+  }
+}
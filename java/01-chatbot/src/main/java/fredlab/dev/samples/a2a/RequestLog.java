@@ -0,0 +1,140 @@
+package fredlab.dev.samples.a2a;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * One structured event per A2A request: ids, skill, sizes, latency and outcome as key-value pairs, no payloads.
+ * The {@code a2a.requests} and {@code a2a.payloads} loggers go through a bounded async appender (logback-spring.xml),
+ * so the calling event-loop thread only enqueues the event; formatting and I/O happen on the appender thread.
+ * Prompts and answers are logged for a sampled fraction of requests ({@code app.logging.payload.sample-rate}) and
+ * for every request of the subjects listed in {@code app.logging.payload.subjects}.
+ */
+@Component
+public class RequestLog {
+
+  private static final Logger requests = LoggerFactory.getLogger("a2a.requests");
+  private static final Logger payloads = LoggerFactory.getLogger("a2a.payloads");
+
+  private final double payloadSampleRate;
+  private final Set<String> payloadSubjects;
+
+  public RequestLog(@Value("${app.logging.payload.sample-rate:0}") double payloadSampleRate,
+                    @Value("${app.logging.payload.subjects:}") Set<String> payloadSubjects) {
+    this.payloadSampleRate = payloadSampleRate;
+    this.payloadSubjects = payloadSubjects;
+  }
+
+  public Entry start(String method, Object requestId, String subject) {
+    boolean payload = payloads.isInfoEnabled()
+        && (payloadSubjects.contains(subject)
+            || (payloadSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < payloadSampleRate));
+    return new Entry(method, requestId, subject, payload);
+  }
+
+  /**
+   * Fields of one request, filled in as it is handled and logged once by {@link #finish}.
+   * Handed from thread to thread along the reactive chain, never shared concurrently.
+   */
+  public static final class Entry {
+
+    private final String method;
+    private final Object requestId;
+    private final String subject;
+    private final boolean payload;
+    private final long startNanos = System.nanoTime();
+    private String taskId;
+    private String skill;
+    private int promptChars = -1;
+    private int answerChars = -1;
+    private IntSupplier answerLength;
+    private Integer errorCode;
+    private boolean finished;
+
+    private Entry(String method, Object requestId, String subject, boolean payload) {
+      this.method = method;
+      this.requestId = requestId;
+      this.subject = subject;
+      this.payload = payload;
+    }
+
+    public Entry task(String taskId, String skill) {
+      this.taskId = taskId;
+      this.skill = skill;
+      return this;
+    }
+
+    public Entry prompt(String text) {
+      promptChars = text == null ? 0 : text.length();
+      if (payload) {
+        payloads.atInfo()
+            .addKeyValue("requestId", String.valueOf(requestId))
+            .addKeyValue("taskId", taskId)
+            .addKeyValue("sub", subject)
+            .addKeyValue("prompt", text)
+            .log(method);
+      }
+      return this;
+    }
+
+    public Entry answer(String text) {
+      answerChars = text == null ? 0 : text.length();
+      if (payload) {
+        payloads.atInfo()
+            .addKeyValue("requestId", String.valueOf(requestId))
+            .addKeyValue("taskId", taskId)
+            .addKeyValue("sub", subject)
+            .addKeyValue("answer", text)
+            .log(method);
+      }
+      return this;
+    }
+
+    /** For streams: the answer length is read from the task when the request is logged. */
+    public Entry answerLength(IntSupplier length) {
+      answerLength = length;
+      return this;
+    }
+
+    public Entry error(int code) {
+      errorCode = code;
+      return this;
+    }
+
+    /** Logs the request with an outcome derived from the recorded error code, if any. */
+    public void finish() {
+      finish(errorCode == null ? "ok" : errorCode == -32029 ? "rejected" : "error");
+    }
+
+    /**
+     * Logs the request once; later calls are ignored.
+     *
+     * @param outcome ok, error, rejected, disconnected...
+     */
+    public void finish(String outcome) {
+      if (finished) return;
+      finished = true;
+      if (!requests.isInfoEnabled()) return;
+      // Values are immutable (strings, boxed numbers): safe to format later on the appender thread
+      var event = requests.atInfo()
+          .addKeyValue("method", method)
+          .addKeyValue("requestId", String.valueOf(requestId))
+          .addKeyValue("sub", subject)
+          .addKeyValue("outcome", outcome)
+          .addKeyValue("latencyMs", (System.nanoTime() - startNanos) / 1_000_000);
+      if (taskId != null) event = event.addKeyValue("taskId", taskId);
+      if (skill != null) event = event.addKeyValue("skill", skill);
+      if (promptChars >= 0) event = event.addKeyValue("promptChars", promptChars);
+      if (answerLength != null) answerChars = answerLength.getAsInt();
+      if (answerChars >= 0) event = event.addKeyValue("answerChars", answerChars);
+      if (errorCode != null) event = event.addKeyValue("errorCode", errorCode);
+      event.log("request");
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory LRU cache for LLM answers, keyed by skill, system instructions and normalized user text.
+ * Holds either a full answer (message/send) or the chunk sequence of a stream (message/stream)
+ * so that a streaming hit can be replayed as the same artifact updates.
+ */
+@Component
+public class ResponseCache {
+
+  public record Key(String mode, String skill, String system, String text) {}
+
+  private record Entry(Object value, long bytes, long expiresAt) {}
+
+  // Rough per-entry overhead (map node, key record, list/strings headers) used for the memory cap
+  private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+  private final boolean enabled;
+  private final Set<String> skills;
+  private final long ttlMillis;
+  private final int maxEntries;
+  private final long maxBytes;
+
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long currentBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ResponseCache(@Value("${app.cache.enabled:true}") boolean enabled,
+                       @Value("${app.cache.skills:openai.brief,openai.research}") Set<String> skills,
+                       @Value("${app.cache.ttl:10m}") Duration ttl,
+                       @Value("${app.cache.max-entries:1000}") int maxEntries,
+                       @Value("${app.cache.max-size:16MB}") DataSize maxSize,
+                       MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.skills = skills;
+    this.ttlMillis = ttl.toMillis();
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxSize.toBytes();
+
+    FunctionCounter.builder("agent.cache.hits", hits, AtomicLong::get).register(meterRegistry);
+    FunctionCounter.builder("agent.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+    FunctionCounter.builder("agent.cache.evictions", evictions, AtomicLong::get).register(meterRegistry);
+    Gauge.builder("agent.cache.size", this, ResponseCache::size).register(meterRegistry);
+    Gauge.builder("agent.cache.bytes", this, ResponseCache::bytes).baseUnit("bytes").register(meterRegistry);
+  }
+
+  public Key key(String mode, String skill, String system, String userText) {
+    String normalized = userText == null ? "" : userText.strip().replaceAll("\\s+", " ");
+    return new Key(mode, skill, system, normalized);
+  }
+
+  public boolean enabledFor(String skill) {
+    return enabled && skills.contains(skill);
+  }
+
+  public String getAnswer(Key key) {
+    return (String) get(key);
+  }
+
+  public void putAnswer(Key key, String answer) {
+    if (answer != null) {
+      put(key, answer, 2L * answer.length());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<String> getChunks(Key key) {
+    return (List<String>) get(key);
+  }
+
+  public void putChunks(Key key, List<String> chunks) {
+    long bytes = 0;
+    for (String chunk : chunks) {
+      bytes += 2L * chunk.length() + 24;
+    }
+    put(key, List.copyOf(chunks), bytes);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long bytes() {
+    return currentBytes;
+  }
+
+  private synchronized Object get(Key key) {
+    if (!enabledFor(key.skill())) return null;
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    if (entry.expiresAt() < System.currentTimeMillis()) {
+      remove(key);
+      evictions.incrementAndGet();
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.value();
+  }
+
+  private synchronized void put(Key key, Object value, long valueBytes) {
+    if (!enabledFor(key.skill())) return;
+    long bytes = valueBytes + 2L * (key.system().length() + key.text().length()) + ENTRY_OVERHEAD_BYTES;
+    // An entry bigger than the whole cache would only flush everything else
+    if (bytes > maxBytes) return;
+
+    remove(key);
+    entries.put(key, new Entry(value, bytes, System.currentTimeMillis() + ttlMillis));
+    currentBytes += bytes;
+
+    // Evict least recently used entries until both caps hold
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || currentBytes > maxBytes) && it.hasNext()) {
+      Map.Entry<Key, Entry> eldest = it.next();
+      currentBytes -= eldest.getValue().bytes();
+      it.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  private void remove(Key key) {
+    Entry previous = entries.remove(key);
+    if (previous != null) {
+      currentBytes -= previous.bytes();
+    }
+  }
+}
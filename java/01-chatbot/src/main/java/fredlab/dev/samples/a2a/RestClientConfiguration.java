@@ -1,14 +1,96 @@
 package fredlab.dev.samples.a2a;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContextBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ssl.SslBundle;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * One pooled Reactor Netty client behind both Spring AI paths: the blocking {@link RestClient} (summaries) and
+ * the streaming WebClient (message/send and message/stream), so they share warm keep-alive connections and TLS sessions.
+ * Pool and client metrics are published as reactor.netty.connection.provider.* and reactor.netty.http.client.*.
+ * <p>
+ * Only {@link ModelRouter} uses it, through {@link UpstreamClientBuilders}: Boot's own {@code WebClient.Builder} and
+ * {@code RestClient.Builder} stay on their defaults, so other clients (the issuer's JWKS, for one) keep the JDK trust
+ * store and neither take connections from the LLM pool nor show up in its metrics.
+ */
 @Configuration
 public class RestClientConfiguration {
 
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider upstreamConnectionProvider(UpstreamHttpProperties properties) {
+    return ConnectionProvider.builder("upstream")
+        .maxConnections(properties.maxConnections())
+        .pendingAcquireMaxCount(properties.maxPending())
+        .pendingAcquireTimeout(properties.pendingAcquireTimeout())
+        .maxIdleTime(properties.maxIdleTime())
+        .maxLifeTime(properties.maxLifeTime())
+        // Most recently used first, so a few connections stay hot instead of all of them going lukewarm
+        .lifo()
+        .evictInBackground(Duration.ofSeconds(30))
+        .metrics(true)
+        .build();
+  }
+
+  @Bean
+  public HttpClient upstreamHttpClient(ConnectionProvider upstreamConnectionProvider, UpstreamHttpProperties properties,
+                                       ObjectProvider<SslBundles> sslBundles) {
+    boolean h2 = properties.protocols().stream().anyMatch("H2"::equalsIgnoreCase);
+    HttpProtocol[] protocols = properties.protocols().stream()
+        .map(name -> HttpProtocol.valueOf(name.toUpperCase()))
+        .toArray(HttpProtocol[]::new);
+
+    // Trust material from an SSL bundle if configured, JDK defaults otherwise; one SslContext means TLS session reuse
+    Consumer<SslContextBuilder> trust = builder -> {};
+    if (properties.sslBundle() != null && !properties.sslBundle().isBlank()) {
+      SslBundle bundle = sslBundles.getObject().getBundle(properties.sslBundle());
+      trust = builder -> builder.trustManager(bundle.getManagers().getTrustManagerFactory());
+    }
+    Consumer<SslContextBuilder> sslConfigurer = trust;
+
+    return HttpClient.create(upstreamConnectionProvider)
+        .protocol(protocols)
+        .secure(spec -> spec.sslContext(h2
+            ? Http2SslContextSpec.forClient().configure(sslConfigurer)
+            : Http11SslContextSpec.forClient().configure(sslConfigurer)))
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.connectTimeout().toMillis())
+        .option(ChannelOption.SO_KEEPALIVE, true)
+        .responseTimeout(properties.readTimeout())
+        .keepAlive(true)
+        // One URI tag: the upstream paths are few, and this keeps the metric cardinality fixed
+        .metrics(true, uri -> "upstream");
+  }
+
+  /**
+   * Builders for the Spring AI clients, on the upstream pool. Not builder beans themselves: those would replace Boot's
+   * for every client in the application.
+   */
+  public record UpstreamClientBuilders(RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {}
+
+  /** Boot's builders are prototypes: these two instances (with Boot's codecs and customizers) are ours alone. */
   @Bean
-  public RestClient.Builder restClientBuilder() {
-    return RestClient.builder();
+  public UpstreamClientBuilders upstreamClientBuilders(RestClient.Builder restClientBuilder,
+                                                       WebClient.Builder webClientBuilder,
+                                                       HttpClient upstreamHttpClient, UpstreamHttpProperties properties) {
+    var requestFactory = new ReactorNettyClientRequestFactory(upstreamHttpClient);
+    requestFactory.setReadTimeout(properties.readTimeout());
+    requestFactory.setExchangeTimeout(properties.callTimeout());
+    return new UpstreamClientBuilders(restClientBuilder.requestFactory(requestFactory),
+        webClientBuilder.clientConnector(new ReactorClientHttpConnector(upstreamHttpClient)));
   }
 }
@@ -0,0 +1,27 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class SchedulerConfiguration {
+
+  /**
+   * Bounded pool for the blocking Spring AI calls (chatClient...call()).
+   * Keeps them off the reactor-netty event loop; tasks beyond the queue size are rejected
+   * instead of piling up. Exposes agent.llm.scheduler.* metrics (active, pending, completed).
+   */
+  @Bean(destroyMethod = "dispose")
+  public Scheduler llmScheduler(@Value("${app.llm.max-concurrency:32}") int maxConcurrency,
+                                @Value("${app.llm.queue-size:256}") int queueSize,
+                                MeterRegistry meterRegistry) {
+    Scheduler scheduler = Schedulers.newBoundedElastic(maxConcurrency, queueSize, "llm-call");
+    return Micrometer.timedScheduler(scheduler, meterRegistry, "agent.llm.scheduler", Tags.empty());
+  }
+}
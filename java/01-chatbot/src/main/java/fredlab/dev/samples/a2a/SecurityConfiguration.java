@@ -1,11 +1,35 @@
 package fredlab.dev.samples.a2a;
 
+import com.nimbusds.jose.jwk.JWKSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
 @EnableWebFluxSecurity
@@ -38,4 +62,61 @@ public class SecurityConfiguration {
 
         return http.build();
     }
+
+    /**
+     * Signing keys are loaded at startup and refreshed in the background, so no request waits on the issuer.
+     * A fast-starting instance can defer that load (and issuer discovery) to the first token with
+     * {@code app.security.jwt.jwks-preload=false}, or skip the issuer entirely with a static JWK set file
+     * ({@code app.security.jwt.jwk-set-location}).
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "app.security.enabled", havingValue = "true", matchIfMissing = true)
+    public JwkSetCache jwkSetCache(WebClient.Builder webClientBuilder,
+                                   OAuth2ResourceServerProperties resourceServerProperties,
+                                   @Value("${app.security.jwt.jwks-refresh:5m}") Duration refreshInterval,
+                                   @Value("${app.security.jwt.jwks-min-refresh:30s}") Duration minRefreshInterval,
+                                   @Value("${app.security.jwt.jwks-preload:true}") boolean preload,
+                                   @Value("${app.security.jwt.jwk-set-location:}") String jwkSetLocation,
+                                   ResourceLoader resourceLoader,
+                                   MeterRegistry meterRegistry) throws IOException, ParseException {
+        OAuth2ResourceServerProperties.Jwt jwt = resourceServerProperties.getJwt();
+        JWKSet staticKeys = null;
+        if (!jwkSetLocation.isBlank()) {
+            try (InputStream in = resourceLoader.getResource(jwkSetLocation).getInputStream()) {
+                staticKeys = JWKSet.load(in);
+            }
+        }
+        return new JwkSetCache(webClientBuilder.build(), jwt.getIssuerUri(), jwt.getJwkSetUri(), staticKeys,
+                refreshInterval, minRefreshInterval, preload, meterRegistry);
+    }
+
+    /**
+     * Same validation as the Boot default decoder (signature, timestamps, issuer, audiences), with validated
+     * tokens cached until they expire.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.security.enabled", havingValue = "true", matchIfMissing = true)
+    public ReactiveJwtDecoder jwtDecoder(JwkSetCache jwkSetCache,
+                                         OAuth2ResourceServerProperties resourceServerProperties,
+                                         @Value("${app.security.jwt.cache-max-entries:10000}") int cacheMaxEntries,
+                                         @Value("${app.security.jwt.cache-max-ttl:5m}") Duration cacheMaxTtl,
+                                         MeterRegistry meterRegistry) {
+        OAuth2ResourceServerProperties.Jwt jwt = resourceServerProperties.getJwt();
+        var builder = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::keys);
+        jwt.getJwsAlgorithms().forEach(name -> builder.jwsAlgorithm(SignatureAlgorithm.from(name)));
+        NimbusReactiveJwtDecoder nimbus = builder.build();
+
+        List<OAuth2TokenValidator<Jwt>> validators = new ArrayList<>();
+        validators.add(jwt.getIssuerUri() != null
+                ? JwtValidators.createDefaultWithIssuer(jwt.getIssuerUri())
+                : JwtValidators.createDefault());
+        List<String> audiences = jwt.getAudiences();
+        if (!audiences.isEmpty()) {
+            validators.add(new JwtClaimValidator<Collection<String>>(JwtClaimNames.AUD,
+                    aud -> aud != null && !Collections.disjoint(aud, audiences)));
+        }
+        nimbus.setJwtValidator(new DelegatingOAuth2TokenValidator<>(validators));
+
+        return new CachingJwtDecoder(nimbus, cacheMaxEntries, cacheMaxTtl, meterRegistry);
+    }
 }
@@ -0,0 +1,57 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical in-flight upstream calls: concurrent callers with the same key share one
+ * upstream subscription. Late joiners get the already emitted elements replayed, and the upstream
+ * is cancelled only when the last subscriber leaves.
+ */
+@Component
+public class SingleFlight {
+
+  private final ConcurrentMap<Object, Flux<?>> inFlight = new ConcurrentHashMap<>();
+  private final Counter started;
+  private final Counter joined;
+
+  public SingleFlight(MeterRegistry meterRegistry) {
+    this.started = Counter.builder("agent.singleflight.started").register(meterRegistry);
+    this.joined = Counter.builder("agent.singleflight.joined").register(meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> Flux<T> join(Object key, Supplier<Flux<T>> upstream) {
+    return Flux.defer(() -> {
+      var created = new AtomicBoolean();
+      Flux<T> shared = (Flux<T>) inFlight.computeIfAbsent(key, k -> {
+        created.set(true);
+        return share(k, upstream.get());
+      });
+      (created.get() ? started : joined).increment();
+      return shared;
+    });
+  }
+
+  private <T> Flux<T> share(Object key, Flux<T> upstream) {
+    var self = new AtomicReference<Flux<T>>();
+    // Drop the entry once the upstream terminates or is cancelled, so the next caller starts fresh
+    self.set(upstream
+        .doFinally(signal -> inFlight.remove(key, self.get()))
+        .replay()
+        .refCount(1));
+    return self.get();
+  }
+
+  public int size() {
+    return inFlight.size();
+  }
+}
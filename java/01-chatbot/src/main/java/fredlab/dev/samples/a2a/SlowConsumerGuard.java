@@ -0,0 +1,307 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection outbound buffer between a task's events and an SSE response. The response asks for the next frame
+ * only once the previous one reached the socket (it never prefetches, see {@code A2aController#oneFrameAtATime}), so
+ * events a slow client has not taken yet wait here, counted in encoded bytes (the UTF-8 JSON of the event, escapes
+ * included, plus a fixed allowance for its envelope and SSE framing):
+ * <ul>
+ *   <li>answer chunks that queue up back to back are merged into one larger chunk (with the sequence number of the
+ *   last one, so Last-Event-ID still resumes at the right place) instead of many small frames;</li>
+ *   <li>above {@code max-buffered-bytes}, or with events waiting and no progress for {@code stall-timeout}, the
+ *   client is disconnected ({@link SlowConsumerException}). The task keeps running: the client can come back with
+ *   tasks/resubscribe within the detach grace.</li>
+ * </ul>
+ * A client that keeps up never has anything queued, so its chunks go out as they come.
+ */
+@Component
+public class SlowConsumerGuard {
+
+  private static final Logger log = LoggerFactory.getLogger(SlowConsumerGuard.class);
+  // Allowance for the envelope, ids and SSE framing around each event's payload
+  private static final int FRAME_OVERHEAD = 256;
+
+  /**
+   * @param maxBufferedBytes events a connection may have waiting before its client is disconnected
+   * @param stallTimeout     how long events may wait without the client reading anything
+   */
+  @ConfigurationProperties(prefix = "app.stream.outbound")
+  public record Properties(DataSize maxBufferedBytes, Duration stallTimeout) {}
+
+  /** Ends the stream of a client that stopped reading or fell too far behind. */
+  public static final class SlowConsumerException extends RuntimeException {
+    private final String reason;
+
+    SlowConsumerException(String reason, String message) {
+      super(message, null, false, false);
+      this.reason = reason;
+    }
+
+    /** "overflow" or "stalled" */
+    public String reason() {
+      return reason;
+    }
+  }
+
+  private final long maxBufferedBytes;
+  private final long stallTimeoutNanos;
+  private final long checkPeriodMillis;
+  private final AtomicLong bufferedTotal = new AtomicLong();
+  private final DistributionSummary bufferedPeak;
+  private final Counter merged;
+  private final Counter overflowed;
+  private final Counter stalled;
+
+  public SlowConsumerGuard(Properties properties, MeterRegistry meterRegistry) {
+    this.maxBufferedBytes = (properties.maxBufferedBytes() != null
+        ? properties.maxBufferedBytes() : DataSize.ofKilobytes(256)).toBytes();
+    Duration stallTimeout = properties.stallTimeout() != null ? properties.stallTimeout() : Duration.ofSeconds(30);
+    this.stallTimeoutNanos = stallTimeout.toNanos();
+    this.checkPeriodMillis = Math.max(100, stallTimeout.toMillis() / 4);
+    this.bufferedPeak = DistributionSummary.builder("agent.stream.buffered.bytes")
+        .description("Peak encoded bytes waiting for a slow SSE client, per connection")
+        .baseUnit("bytes")
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry);
+    Gauge.builder("agent.stream.buffered.total", bufferedTotal, AtomicLong::get)
+        .description("Encoded bytes waiting for slow SSE clients, all connections")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    this.merged = Counter.builder("agent.stream.chunks.merged")
+        .description("Answer chunks merged into the previous one while the client lagged")
+        .register(meterRegistry);
+    this.overflowed = Counter.builder("agent.stream.slow-consumers").tag("reason", "overflow").register(meterRegistry);
+    this.stalled = Counter.builder("agent.stream.slow-consumers").tag("reason", "stalled").register(meterRegistry);
+  }
+
+  /**
+   * The events, paced by the subscriber's demand; fails with {@link SlowConsumerException} for a slow client.
+   */
+  public Flux<TaskStore.Event> guard(Flux<TaskStore.Event> events) {
+    return Flux.create(sink -> events.subscribe(new Outbound(sink)));
+  }
+
+  /** Chunks merged while waiting; materialized as one event when the client takes it. */
+  private static final class PendingChunk {
+    final StringBuilder text;
+    final boolean append;
+    long seq;
+    // Counted as buffered: escaped text plus one frame overhead
+    long bytes;
+
+    PendingChunk(TaskStore.Event event, TaskStore.ArtifactChunk chunk, long textBytes) {
+      this.text = new StringBuilder(chunk.text());
+      this.append = chunk.append();
+      this.seq = event.seq();
+      this.bytes = textBytes + FRAME_OVERHEAD;
+    }
+
+    TaskStore.Event toEvent() {
+      return new TaskStore.Event(seq, new TaskStore.ArtifactChunk(text.toString(), append), null, null);
+    }
+  }
+
+  private final class Outbound extends BaseSubscriber<TaskStore.Event> {
+
+    private final FluxSink<TaskStore.Event> sink;
+    // TaskStore.Event or PendingChunk, guarded by this
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private long buffered;
+    private long peak;
+    private long lastProgressNanos = System.nanoTime();
+    private boolean upstreamDone;
+    private Throwable upstreamError;
+    private boolean terminated;
+    // One thread emits at a time; the others leave their work to it
+    private boolean draining;
+    private boolean missed;
+    private Disposable stallCheck;
+
+    Outbound(FluxSink<TaskStore.Event> sink) {
+      this.sink = sink;
+      sink.onRequest(n -> {
+        synchronized (this) {
+          lastProgressNanos = System.nanoTime();
+        }
+        drain();
+      });
+      sink.onDispose(this::release);
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      stallCheck = Schedulers.parallel().schedulePeriodically(this::checkStall, checkPeriodMillis, checkPeriodMillis,
+          TimeUnit.MILLISECONDS);
+      requestUnbounded();
+    }
+
+    @Override
+    protected void hookOnNext(TaskStore.Event event) {
+      long size;
+      synchronized (this) {
+        if (terminated) return;
+        size = enqueue(event);
+      }
+      if (size > maxBufferedBytes) {
+        fail(overflowed, "overflow", "SSE client more than " + maxBufferedBytes + " bytes behind");
+        return;
+      }
+      drain();
+    }
+
+    @Override
+    protected void hookOnComplete() {
+      synchronized (this) {
+        upstreamDone = true;
+      }
+      drain();
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+      synchronized (this) {
+        upstreamDone = true;
+        upstreamError = throwable;
+      }
+      drain();
+    }
+
+    // Returns the bytes now buffered
+    private long enqueue(TaskStore.Event event) {
+      long added;
+      Object tail = queue.peekLast();
+      if (event.result() instanceof TaskStore.ArtifactChunk chunk) {
+        long textBytes = SseFrameEncoder.escapedLength(chunk.text());
+        if (tail instanceof PendingChunk pending) {
+          pending.text.append(chunk.text());
+          pending.seq = event.seq();
+          pending.bytes += textBytes;
+          merged.increment();
+          added = textBytes;
+        } else {
+          var pending = new PendingChunk(event, chunk, textBytes);
+          queue.add(pending);
+          added = pending.bytes;
+        }
+      } else {
+        queue.add(event);
+        added = size(event);
+      }
+      buffered += added;
+      peak = Math.max(peak, buffered);
+      bufferedTotal.addAndGet(added);
+      return buffered;
+    }
+
+    private void drain() {
+      synchronized (this) {
+        if (draining) {
+          missed = true;
+          return;
+        }
+        draining = true;
+      }
+      for (;;) {
+        TaskStore.Event next = null;
+        Throwable error = null;
+        boolean complete = false;
+        synchronized (this) {
+          if (!terminated && !queue.isEmpty() && sink.requestedFromDownstream() > 0) {
+            Object head = queue.poll();
+            long removed = head instanceof PendingChunk pending ? pending.bytes : size((TaskStore.Event) head);
+            buffered -= removed;
+            bufferedTotal.addAndGet(-removed);
+            lastProgressNanos = System.nanoTime();
+            next = head instanceof PendingChunk pending ? pending.toEvent() : (TaskStore.Event) head;
+          } else if (!terminated && queue.isEmpty() && upstreamDone) {
+            terminated = true;
+            error = upstreamError;
+            complete = error == null;
+          } else if (missed) {
+            missed = false;
+            continue;
+          } else {
+            draining = false;
+            return;
+          }
+        }
+        if (next != null) {
+          sink.next(next);
+        } else if (error != null) {
+          sink.error(error);
+        } else if (complete) {
+          sink.complete();
+        }
+      }
+    }
+
+    private void checkStall() {
+      long waitingNanos;
+      synchronized (this) {
+        if (terminated || queue.isEmpty()) return;
+        waitingNanos = System.nanoTime() - lastProgressNanos;
+      }
+      if (waitingNanos > stallTimeoutNanos) {
+        fail(stalled, "stalled", "SSE client read nothing for " + Duration.ofNanos(waitingNanos).toSeconds() + "s");
+      }
+    }
+
+    private void fail(Counter counter, String reason, String message) {
+      long dropped;
+      synchronized (this) {
+        if (terminated) return;
+        terminated = true;
+        dropped = buffered;
+      }
+      counter.increment();
+      log.info("[A2A-PROTOCOL] Disconnecting slow client: {} ({} bytes buffered)", message, dropped);
+      dispose();
+      sink.error(new SlowConsumerException(reason, message));
+    }
+
+    // Runs once, however the stream ends (completed, failed, cancelled by the response)
+    private void release() {
+      dispose();
+      if (stallCheck != null) {
+        stallCheck.dispose();
+      }
+      long left;
+      long max;
+      synchronized (this) {
+        terminated = true;
+        left = buffered;
+        max = peak;
+        buffered = 0;
+        queue.clear();
+      }
+      bufferedTotal.addAndGet(-left);
+      bufferedPeak.record(max);
+    }
+  }
+
+  // Events other than chunks carry their UTF-8 JSON; the rest (errors) are small
+  private static long size(TaskStore.Event event) {
+    return (event.json() != null ? event.json().length : FRAME_OVERHEAD) + FRAME_OVERHEAD;
+  }
+}
@@ -0,0 +1,281 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes A2A task events as SSE frames straight into {@link DataBuffer}s.
+ * Only the chunk text changes between artifact updates, so the JSON around it (JSON-RPC envelope with the request id,
+ * taskId, contextId, artifactId, kind) is encoded once per connection and the chunk is escaped directly into the
+ * buffer. Other events are serialized once when published (see {@link TaskStore.Event#json()}).
+ */
+@Component
+public class SseFrameEncoder {
+
+  private static final String RESULT_MARKER = "@@A2A_RESULT@@";
+  private static final String CHUNK_MARKER = "@@A2A_CHUNK@@";
+  private static final byte[] ID = "id:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DATA = "\ndata:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DATA_ONLY = "data:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+  // Upper case, as in Jackson's escapes
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+  // Escaped chunk text is staged in blocks of this size, each written to the frame buffer in one call
+  static final int SCRATCH_SIZE = 512;
+
+  private final ObjectMapper objectMapper;
+
+  public SseFrameEncoder(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Frame writer for one SSE connection following one task.
+   */
+  public Frames frames(DataBufferFactory bufferFactory, Object requestId, String taskId, String contextId, String artifactId) {
+    // Let Jackson lay out the invariant JSON, then split it around a marker, so the frames match its output exactly
+    byte[][] envelope = split(JsonRpc.Response.ok(requestId, RESULT_MARKER), RESULT_MARKER);
+    byte[][] firstChunk = split(chunkTemplate(taskId, contextId, artifactId, null), CHUNK_MARKER);
+    byte[][] nextChunk = split(chunkTemplate(taskId, contextId, artifactId, Boolean.TRUE), CHUNK_MARKER);
+    return new Frames(bufferFactory, requestId, envelope, firstChunk, nextChunk);
+  }
+
+  /**
+   * Single frame without an event id, for responses that are not part of a task stream (errors, rejections).
+   */
+  public DataBuffer encode(DataBufferFactory bufferFactory, JsonRpc.Response response) {
+    byte[] json = toJson(response);
+    DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 8);
+    buffer.write(DATA_ONLY);
+    buffer.write(json);
+    buffer.write(EVENT_END);
+    return buffer;
+  }
+
+  public final class Frames {
+
+    private final DataBufferFactory bufferFactory;
+    private final Object requestId;
+    private final byte[] envelopePrefix;
+    private final byte[] envelopeSuffix;
+    private final byte[] firstChunkPrefix;
+    private final byte[] firstChunkSuffix;
+    private final byte[] nextChunkPrefix;
+    private final byte[] nextChunkSuffix;
+    private final byte[] digits = new byte[20];
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+    private Frames(DataBufferFactory bufferFactory, Object requestId, byte[][] envelope, byte[][] firstChunk, byte[][] nextChunk) {
+      this.bufferFactory = bufferFactory;
+      this.requestId = requestId;
+      this.envelopePrefix = envelope[0];
+      this.envelopeSuffix = envelope[1];
+      this.firstChunkPrefix = firstChunk[0];
+      this.firstChunkSuffix = firstChunk[1];
+      this.nextChunkPrefix = nextChunk[0];
+      this.nextChunkSuffix = nextChunk[1];
+    }
+
+    public DataBuffer encode(TaskStore.Event event) {
+      if (event.error() != null) {
+        byte[] json = toJson(new JsonRpc.Response("2.0", requestId, null, event.error()));
+        DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 32);
+        writeId(buffer, event.seq());
+        buffer.write(json);
+        buffer.write(EVENT_END);
+        return buffer;
+      }
+
+      if (event.result() instanceof TaskStore.ArtifactChunk chunk) {
+        byte[] prefix = chunk.append() ? nextChunkPrefix : firstChunkPrefix;
+        byte[] suffix = chunk.append() ? nextChunkSuffix : firstChunkSuffix;
+        // Exact: a 3 bytes per char estimate over-allocates ASCII text threefold, and falls short of control characters
+        DataBuffer buffer = bufferFactory.allocateBuffer(Math.toIntExact(envelopePrefix.length + prefix.length
+            + escapedLength(chunk.text()) + suffix.length + envelopeSuffix.length + 32));
+        writeId(buffer, event.seq());
+        buffer.write(envelopePrefix);
+        buffer.write(prefix);
+        writeEscaped(buffer, chunk.text(), scratch);
+        buffer.write(suffix);
+        buffer.write(envelopeSuffix);
+        buffer.write(EVENT_END);
+        return buffer;
+      }
+
+      byte[] json = event.json() != null ? event.json() : toJson(event.result());
+      DataBuffer buffer = bufferFactory.allocateBuffer(envelopePrefix.length + json.length + envelopeSuffix.length + 32);
+      writeId(buffer, event.seq());
+      buffer.write(envelopePrefix);
+      buffer.write(json);
+      buffer.write(envelopeSuffix);
+      buffer.write(EVENT_END);
+      return buffer;
+    }
+
+    private void writeId(DataBuffer buffer, long seq) {
+      buffer.write(ID);
+      int pos = digits.length;
+      do {
+        digits[--pos] = (byte) ('0' + (seq % 10));
+        seq /= 10;
+      } while (seq > 0);
+      buffer.write(digits, pos, digits.length - pos);
+      buffer.write(DATA);
+    }
+  }
+
+  /**
+   * JSON string escaping (RFC 8259) and UTF-8 encoding in one pass, without an intermediate String. The bytes are
+   * staged in {@code scratch} and written to the buffer a block at a time rather than byte by byte.
+   * Byte for byte what Jackson's UTF-8 generator writes for the same string, so chunk frames and the events Jackson
+   * serializes agree: surrogates (supplementary characters, and lone ones) go out escaped, one six-character escape
+   * per UTF-16 unit, and U+2028/U+2029 as raw UTF-8.
+   */
+  static void writeEscaped(DataBuffer buffer, String text, byte[] scratch) {
+    // Room for the longest encoding of one char, a six byte escape
+    int limit = scratch.length - 6;
+    int pos = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      if (pos > limit) {
+        buffer.write(scratch, 0, pos);
+        pos = 0;
+      }
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' || c == '\\') {
+          scratch[pos++] = '\\';
+          scratch[pos++] = (byte) c;
+        } else if (c < 0x20) {
+          pos = writeControl(scratch, pos, c);
+        } else {
+          scratch[pos++] = (byte) c;
+        }
+      } else if (c < 0x800) {
+        scratch[pos++] = (byte) (0xC0 | (c >> 6));
+        scratch[pos++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        pos = writeUnicodeEscape(scratch, pos, c);
+      } else {
+        scratch[pos++] = (byte) (0xE0 | (c >> 12));
+        scratch[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        scratch[pos++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    buffer.write(scratch, 0, pos);
+  }
+
+  /**
+   * Bytes {@link #writeEscaped} writes for {@code text}. Each char's encoding has a fixed length whatever its
+   * neighbours, so lengths of concatenated texts add up.
+   */
+  static long escapedLength(CharSequence text) {
+    long bytes = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' || c == '\\') {
+          bytes += 2;
+        } else if (c < 0x20) {
+          bytes += c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f' ? 2 : 6;
+        } else {
+          bytes++;
+        }
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isSurrogate(c)) {
+        bytes += 6;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  private static int writeControl(byte[] out, int pos, char c) {
+    out[pos++] = '\\';
+    switch (c) {
+      case '\n' -> out[pos++] = 'n';
+      case '\r' -> out[pos++] = 'r';
+      case '\t' -> out[pos++] = 't';
+      case '\b' -> out[pos++] = 'b';
+      case '\f' -> out[pos++] = 'f';
+      default -> {
+        out[pos++] = 'u';
+        out[pos++] = '0';
+        out[pos++] = '0';
+        out[pos++] = HEX[c >> 4];
+        out[pos++] = HEX[c & 0xF];
+      }
+    }
+    return pos;
+  }
+
+  private static int writeUnicodeEscape(byte[] out, int pos, char c) {
+    out[pos++] = '\\';
+    out[pos++] = 'u';
+    out[pos++] = HEX[(c >> 12) & 0xF];
+    out[pos++] = HEX[(c >> 8) & 0xF];
+    out[pos++] = HEX[(c >> 4) & 0xF];
+    out[pos++] = HEX[c & 0xF];
+    return pos;
+  }
+
+  private A2aTypes.TaskArtifactUpdateEvent chunkTemplate(String taskId, String contextId, String artifactId, Boolean append) {
+    return new A2aTypes.TaskArtifactUpdateEvent(
+        taskId,
+        contextId,
+        new A2aTypes.Artifact(artifactId, "answer", List.of(new A2aTypes.TextPart("text", CHUNK_MARKER))),
+        append,
+        null,
+        null
+    );
+  }
+
+  // Serialized value split around the quoted marker: [before, after]
+  private byte[][] split(Object value, String marker) {
+    byte[] json = toJson(value);
+    byte[] quoted = ("\"" + marker + "\"").getBytes(StandardCharsets.UTF_8);
+    int at = lastIndexOf(json, quoted);
+    if (value instanceof A2aTypes.TaskArtifactUpdateEvent) {
+      // Keep the quotes of the text value: only the chunk content is spliced in
+      return new byte[][] {
+          Arrays.copyOfRange(json, 0, at + 1),
+          Arrays.copyOfRange(json, at + quoted.length - 1, json.length)
+      };
+    }
+    return new byte[][] {
+        Arrays.copyOfRange(json, 0, at),
+        Arrays.copyOfRange(json, at + quoted.length, json.length)
+    };
+  }
+
+  private static int lastIndexOf(byte[] haystack, byte[] needle) {
+    outer:
+    for (int i = haystack.length - needle.length; i >= 0; i--) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) continue outer;
+      }
+      return i;
+    }
+    throw new IllegalStateException("Marker not found in serialized template");
+  }
+
+  private byte[] toJson(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Could not serialize A2A event", ex);
+    }
+  }
+}
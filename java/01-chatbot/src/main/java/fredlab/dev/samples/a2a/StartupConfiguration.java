@@ -0,0 +1,26 @@
+package fredlab.dev.samples.a2a;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfiguration {
+
+  /**
+   * Spring AI's OpenAI auto-configuration creates a model (and its OpenAiApi clients) for chat, embeddings,
+   * images and audio at startup. None of them is used: {@link ModelRouter} builds its own chat clients, on the
+   * upstream pool, after startup. Marking the model beans lazy keeps all of them from ever being created. With
+   * Spring AOT the flag is part of the generated bean definitions.
+   */
+  @Bean
+  public static BeanFactoryPostProcessor lazyOpenAiModels() {
+    return beanFactory -> {
+      for (String name : beanFactory.getBeanDefinitionNames()) {
+        if (name.startsWith("openAi") && name.endsWith("Model")) {
+          beanFactory.getBeanDefinition(name).setLazyInit(true);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,113 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the token stream of a structured answer ({@code {"title": "...", "bulletPoints": ["...", ...]}}) into
+ * Markdown as it arrives: the title as soon as its string is closed, then each bullet point the same way.
+ * Tokens are fed to Jackson's non-blocking parser, so nothing is re-parsed and only the current value is buffered.
+ * The concatenated output equals {@link AgentService.AgentResponse#toMarkdown()} of the complete answer.
+ * Text around the JSON object (a code fence, a preamble) is ignored; an answer without any object is passed
+ * through as-is at the end, since the model then ignored the format and answered in plain Markdown.
+ */
+final class StructuredMarkdownStream {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final StringBuilder outside = new StringBuilder();
+  private boolean started;
+  private boolean done;
+  private boolean emitted;
+
+  private StructuredMarkdownStream() {
+    try {
+      parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  static Flux<String> toMarkdown(Flux<String> tokens) {
+    return Flux.defer(() -> {
+      var stream = new StructuredMarkdownStream();
+      return tokens.concatMapIterable(stream::feed)
+          .concatWith(Flux.defer(() -> Flux.fromIterable(stream.finish())));
+    });
+  }
+
+  /** Markdown pieces completed by this token, usually none. */
+  List<String> feed(String token) {
+    if (done || token.isEmpty()) return List.of();
+    String json = token;
+    if (!started) {
+      int brace = token.indexOf('{');
+      if (brace < 0) {
+        outside.append(token);
+        return List.of();
+      }
+      started = true;
+      json = token.substring(brace);
+    }
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    try {
+      feeder.feedInput(bytes, 0, bytes.length);
+      return drain();
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Malformed structured answer", ex);
+    }
+  }
+
+  /** Whatever is left once the tokens are complete. */
+  List<String> finish() {
+    if (!started) {
+      String text = outside.toString().strip();
+      return text.isEmpty() ? List.of() : List.of(text);
+    }
+    if (!done) {
+      throw new IllegalStateException("Structured answer ended before its JSON object was complete");
+    }
+    return List.of();
+  }
+
+  private List<String> drain() throws IOException {
+    List<String> pieces = new ArrayList<>(1);
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+      JsonStreamContext context = parser.getParsingContext();
+      if (token == JsonToken.END_OBJECT && context.inRoot()) {
+        // Anything after the object (closing code fence...) is not part of the answer
+        done = true;
+        feeder.endOfInput();
+        break;
+      }
+      if (token != JsonToken.VALUE_STRING) continue;
+      if (context.inObject() && context.getParent().inRoot() && "title".equals(context.getCurrentName())) {
+        pieces.add(piece("## " + parser.getText()));
+      } else if (context.inArray() && context.getParent().inObject() && context.getParent().getParent().inRoot()
+          && "bulletPoints".equals(context.getParent().getCurrentName())) {
+        pieces.add(piece("- " + parser.getText().trim()));
+      }
+    }
+    return pieces;
+  }
+
+  private String piece(String line) {
+    String text = emitted ? "\n" + line : line;
+    emitted = true;
+    return text;
+  }
+}
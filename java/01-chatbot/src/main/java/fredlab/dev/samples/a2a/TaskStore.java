@@ -0,0 +1,605 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of A2A tasks backing tasks/get and tasks/resubscribe.
+ * Each task keeps its current state and a bounded ring buffer of the events it emitted, so a client
+ * whose SSE connection dropped can reconnect and replay only what it missed.
+ * Completed tasks expire after a TTL and can optionally be appended to a local file that is reloaded
+ * on startup. The file is only written from one dedicated thread, in order, so the threads that finish tasks
+ * (often Netty event loops) never wait for the disk.
+ * Generations nobody follows any more (all SSE clients gone for longer than the detach grace) are cancelled,
+ * which propagates down to the upstream OpenAI stream. Detached tasks (non-blocking message/send) run without any
+ * follower by design; their number is capped instead.
+ * Every task belongs to the subject that created it: lookups by another subject find nothing, exactly as for an
+ * unknown id, so task ids cannot be probed.
+ */
+@Component
+public class TaskStore {
+
+  private static final Logger log = LoggerFactory.getLogger(TaskStore.class);
+
+  /**
+   * One emitted event: either a JSON-RPC result (Task, status update or {@link ArtifactChunk}) or an error.
+   * Results other than chunks are serialized once here, so every follower reuses the same bytes.
+   */
+  public record Event(long seq, Object result, JsonRpc.Error error, byte[] json) {}
+
+  /** Text appended to the task's answer artifact; encoded as a TaskArtifactUpdateEvent by {@link SseFrameEncoder}. */
+  public record ArtifactChunk(String text, boolean append) {}
+
+  /**
+   * A finished task as kept in the spill file and reloaded after a restart, with the subject that owns it and when it
+   * finished (0 for lines written before that was recorded: their age is unknown, so they count as expired).
+   */
+  record Archived(String owner, A2aTypes.Task task, long finishedAt) {}
+
+  private final int maxTasks;
+  private final int eventsPerTask;
+  private final long ttlMillis;
+  private final ObjectMapper objectMapper;
+  private final Path spillFile;
+  // Single writer of the spill file, created only when there is one
+  private final Scheduler spillWriter;
+  private final long detachGraceMillis;
+  private final MeterRegistry meterRegistry;
+  // Running average of answer length per skill, used to estimate what a cancellation saved
+  private final Map<String, AtomicLong> typicalAnswerChars = new ConcurrentHashMap<>();
+  private final AtomicInteger activeStreams = new AtomicInteger();
+  private final int maxDetached;
+  private final AtomicInteger detachedRunning = new AtomicInteger();
+
+  // Insertion order doubles as age order for eviction
+  private final LinkedHashMap<String, TaskRecord> tasks = new LinkedHashMap<>();
+  // Completed tasks reloaded from the spill file after a restart
+  private final LinkedHashMap<String, Archived> archived = new LinkedHashMap<>();
+  private final Disposable sweeper;
+
+  public TaskStore(@Value("${app.tasks.max-tasks:1000}") int maxTasks,
+                   @Value("${app.tasks.events-per-task:512}") int eventsPerTask,
+                   @Value("${app.tasks.ttl:30m}") Duration ttl,
+                   @Value("${app.tasks.spill-file:}") String spillFile,
+                   @Value("${app.tasks.detach-grace:10s}") Duration detachGrace,
+                   @Value("${app.tasks.max-detached:256}") int maxDetached,
+                   ObjectMapper objectMapper,
+                   MeterRegistry meterRegistry) {
+    this.maxTasks = maxTasks;
+    this.eventsPerTask = eventsPerTask;
+    this.ttlMillis = ttl.toMillis();
+    this.objectMapper = objectMapper;
+    this.spillFile = spillFile.isBlank() ? null : Path.of(spillFile);
+    this.spillWriter = this.spillFile == null ? null : Schedulers.newSingle("task-spill");
+    this.detachGraceMillis = detachGrace.toMillis();
+    this.maxDetached = maxDetached;
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("agent.streams.active", activeStreams, AtomicInteger::get)
+        .description("SSE connections currently following a task")
+        .register(meterRegistry);
+    Gauge.builder("agent.tasks.running", this, TaskStore::runningTasks).register(meterRegistry);
+    Gauge.builder("agent.tasks.stored", this, TaskStore::storedTasks).register(meterRegistry);
+    Gauge.builder("agent.tasks.detached", detachedRunning, AtomicInteger::get)
+        .description("Non-blocking tasks queued or generating")
+        .register(meterRegistry);
+    loadSpillFile();
+    long sweepMillis = Math.max(1_000, Math.min(ttlMillis, 60_000));
+    this.sweeper = Schedulers.parallel().schedulePeriodically(this::evictExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public TaskRecord create(String taskId, String contextId, String skillId, A2aTypes.Message userMessage,
+                           String owner) {
+    var record = new TaskRecord(taskId, contextId, skillId, owner, userMessage, eventsPerTask, objectMapper);
+    synchronized (this) {
+      tasks.put(taskId, record);
+      evictOverflow();
+    }
+    return record;
+  }
+
+  /**
+   * Like {@link #create}, for a task that runs with nobody following it (results go to tasks/get and push
+   * notifications).
+   *
+   * @return null when {@code app.tasks.max-detached} tasks are already running
+   */
+  public TaskRecord createDetached(String taskId, String contextId, String skillId, A2aTypes.Message userMessage,
+                                   String owner) {
+    if (detachedRunning.incrementAndGet() > maxDetached) {
+      detachedRunning.decrementAndGet();
+      return null;
+    }
+    TaskRecord record = create(taskId, contextId, skillId, userMessage, owner);
+    record.detached = true;
+    return record;
+  }
+
+  /**
+   * Runs a task's event flux detached from any client connection, so the generation survives a dropped SSE stream.
+   */
+  public void start(TaskRecord record, Flux<Object> results) {
+    if (record.detached) {
+      results = results.doFinally(signal -> detachedRunning.decrementAndGet());
+    }
+    // subscribe() can run a long way before it returns; a cancel in the meantime (or before) disposes the swap,
+    // which then disposes the subscription as soon as it is set, and the results' doFinally still runs
+    record.generation.update(results.subscribe(
+        record::publish,
+        ex -> {
+          record.fail(ex);
+          spill(record);
+        },
+        () -> {
+          if (record.complete()) {
+            rememberAnswerLength(record);
+            spill(record);
+          }
+        }));
+  }
+
+  /**
+   * Follows a task's events after {@code afterSeq}. When the last follower of an unfinished task leaves and
+   * nobody resubscribes within the detach grace, the generation is cancelled.
+   */
+  public Flux<Event> follow(TaskRecord record, long afterSeq) {
+    return record.events(afterSeq)
+        .doOnSubscribe(subscription -> {
+          record.followers.incrementAndGet();
+          activeStreams.incrementAndGet();
+        })
+        .doFinally(signal -> {
+          activeStreams.decrementAndGet();
+          if (record.followers.decrementAndGet() == 0 && !record.isFinished() && !record.detached) {
+            Schedulers.parallel().schedule(() -> {
+              if (record.followers.get() == 0) {
+                cancel(record, "abandoned");
+              }
+            }, detachGraceMillis, TimeUnit.MILLISECONDS);
+          }
+        });
+  }
+
+  /**
+   * Ends a running task with a final canceled status and disposes its generation, which cancels the
+   * upstream LLM stream unless another coalesced caller still uses it.
+   *
+   * @return false when the task had already finished
+   */
+  public boolean cancel(TaskRecord record, String reason) {
+    if (!record.cancel()) {
+      return false;
+    }
+    record.generation.dispose();
+    Counter.builder("agent.tasks.canceled")
+        .tag("skill", AgentMetrics.skillTag(record.skillId))
+        .tag("reason", reason)
+        .register(meterRegistry)
+        .increment();
+    AtomicLong typical = typicalAnswerChars.get(AgentMetrics.skillTag(record.skillId));
+    if (typical != null) {
+      // Estimate at ~4 characters per token
+      long savedChars = Math.max(0, typical.get() - record.answerLength());
+      Counter.builder("agent.tokens.saved")
+          .description("Estimated output tokens not generated thanks to cancellation")
+          .tag("skill", AgentMetrics.skillTag(record.skillId))
+          .register(meterRegistry)
+          .increment(savedChars / 4.0);
+    }
+    log.info("[TASKS] Canceled task {} ({})", record.taskId, reason);
+    spill(record);
+    return true;
+  }
+
+  private void rememberAnswerLength(TaskRecord record) {
+    long chars = record.answerLength();
+    typicalAnswerChars.computeIfAbsent(AgentMetrics.skillTag(record.skillId), skill -> new AtomicLong(chars))
+        .updateAndGet(avg -> (avg * 7 + chars) / 8);
+  }
+
+  /**
+   * Registers a task that was answered in one go (message/send) so it can be fetched later.
+   */
+  public TaskRecord save(A2aTypes.Task task, String skillId, String owner) {
+    var record = new TaskRecord(task.id(), task.contextId(), skillId, owner, null, 1, objectMapper);
+    record.publish(task);
+    record.complete();
+    synchronized (this) {
+      tasks.put(task.id(), record);
+      evictOverflow();
+    }
+    spill(record);
+    return record;
+  }
+
+  public synchronized int runningTasks() {
+    return (int) tasks.values().stream().filter(record -> !record.isFinished()).count();
+  }
+
+  public synchronized int storedTasks() {
+    return tasks.size();
+  }
+
+  /**
+   * @return the task, or null when it is unknown or belongs to another subject
+   */
+  public synchronized TaskRecord get(String taskId, String subject) {
+    TaskRecord record = taskId == null ? null : tasks.get(taskId);
+    return record != null && ownedBy(record.owner, subject) ? record : null;
+  }
+
+  /**
+   * Snapshot of a task for tasks/get, including tasks reloaded from the spill file; null when it is unknown or
+   * belongs to another subject.
+   */
+  public synchronized A2aTypes.Task snapshot(String taskId, Integer historyLength, String subject) {
+    if (taskId == null) return null;
+    TaskRecord record = tasks.get(taskId);
+    Archived spilled = record == null ? archived.get(taskId) : null;
+    if (spilled != null && spilled.finishedAt() < expiryCutoff()) {
+      // Expired since the last sweep
+      spilled = null;
+    }
+    A2aTypes.Task task = null;
+    if (record != null && ownedBy(record.owner, subject)) {
+      task = record.toTask();
+    } else if (spilled != null && ownedBy(spilled.owner(), subject)) {
+      task = spilled.task();
+    }
+    if (task == null || historyLength == null || task.history() == null || task.history().size() <= historyLength) {
+      return task;
+    }
+    List<A2aTypes.Message> history = task.history();
+    return new A2aTypes.Task(task.id(), task.contextId(), task.status(), task.artifacts(),
+        history.subList(history.size() - Math.max(0, historyLength), history.size()), task.kind(), task.metadata());
+  }
+
+  // Tasks without an owner (spilled by an older version) are nobody's
+  private static boolean ownedBy(String owner, String subject) {
+    return owner != null && owner.equals(subject);
+  }
+
+  private void evictOverflow() {
+    // Only finished tasks are evicted for space; running ones are bounded by the LLM concurrency
+    Iterator<TaskRecord> it = tasks.values().iterator();
+    while (tasks.size() > maxTasks && it.hasNext()) {
+      if (it.next().isFinished()) {
+        it.remove();
+      }
+    }
+  }
+
+  private synchronized void evictExpired() {
+    long cutoff = expiryCutoff();
+    tasks.values().removeIf(record -> record.isFinished() && record.finishedAt < cutoff);
+    archived.values().removeIf(entry -> entry.finishedAt() < cutoff);
+  }
+
+  // Tasks that finished before this are expired, whether they are held in memory or were reloaded from the spill file
+  private long expiryCutoff() {
+    return System.currentTimeMillis() - ttlMillis;
+  }
+
+  // The task is captured now, in its final state; serializing and appending it happen on the writer thread
+  private void spill(TaskRecord record) {
+    if (spillFile == null) return;
+    Archived entry = new Archived(record.owner, record.toTask(), record.finishedAt);
+    spillWriter.schedule(() -> {
+      try {
+        String line = objectMapper.writeValueAsString(entry) + "\n";
+        Files.writeString(spillFile, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      } catch (IOException ex) {
+        log.warn("[TASKS] Could not append task {} to {}: {}", record.taskId, spillFile, ex.getMessage());
+      }
+    });
+  }
+
+  private void loadSpillFile() {
+    if (spillFile == null || !Files.exists(spillFile)) return;
+    long cutoff = expiryCutoff();
+    try (var lines = Files.lines(spillFile, StandardCharsets.UTF_8)) {
+      lines.filter(line -> !line.isBlank()).forEach(line -> {
+        try {
+          JsonNode node = objectMapper.readTree(line);
+          // Lines written before tasks had owners hold the bare task
+          Archived entry = node.has("task")
+              ? objectMapper.treeToValue(node, Archived.class)
+              : new Archived(null, objectMapper.treeToValue(node, A2aTypes.Task.class), 0);
+          // A later line for the same task supersedes the earlier ones, even when it has expired
+          archived.remove(entry.task().id());
+          if (entry.finishedAt() < cutoff) {
+            return;
+          }
+          archived.put(entry.task().id(), entry);
+          if (archived.size() > maxTasks) {
+            archived.remove(archived.keySet().iterator().next());
+          }
+        } catch (IOException ex) {
+          log.warn("[TASKS] Skipping unreadable line in {}: {}", spillFile, ex.getMessage());
+        }
+      });
+      log.info("[TASKS] Reloaded {} tasks from {}", archived.size(), spillFile);
+    } catch (IOException ex) {
+      log.warn("[TASKS] Could not read {}: {}", spillFile, ex.getMessage());
+      return;
+    }
+    // First job of the writer, so it runs before any append
+    List<Archived> retained = List.copyOf(archived.values());
+    spillWriter.schedule(() -> compactSpillFile(retained));
+  }
+
+  // Rewrite the append-only file with the retained tasks only, so it does not grow without bound across restarts
+  private void compactSpillFile(List<Archived> retained) {
+    Path tmp = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+    long cutoff = expiryCutoff();
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (Archived entry : retained) {
+          if (entry.finishedAt() < cutoff) {
+            continue;
+          }
+          writer.write(objectMapper.writeValueAsString(entry));
+          writer.newLine();
+        }
+      }
+      Files.move(tmp, spillFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      log.warn("[TASKS] Could not compact {}: {}", spillFile, ex.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    sweeper.dispose();
+    if (spillWriter != null) {
+      // Lets the queued appends reach the file
+      spillWriter.disposeGracefully().timeout(Duration.ofSeconds(5)).onErrorComplete().block();
+    }
+  }
+
+  public static final class TaskRecord {
+
+    private final String taskId;
+    private final String contextId;
+    private final String skillId;
+    private final String owner;
+    private final String artifactId = UUID.randomUUID().toString();
+    private final List<A2aTypes.Message> history = new ArrayList<>();
+    private final StringBuilder answer = new StringBuilder();
+    private final Sinks.Many<Event> events;
+    private final int capacity;
+    private final AtomicLong seq = new AtomicLong();
+    private final ObjectMapper objectMapper;
+
+    private String state = "submitted";
+    private A2aTypes.Task finalTask;
+    private volatile long finishedAt;
+    private final AtomicInteger followers = new AtomicInteger();
+    // The running generation; disposing it before the generation is set also disposes it once set
+    final Disposable.Swap generation = Disposables.swap();
+    volatile boolean detached;
+    // Push notification configs by id, each with its running delivery (see PushNotifier)
+    private final Map<String, A2aTypes.PushNotificationConfig> pushConfigs = new LinkedHashMap<>();
+    private final Map<String, Disposable> pushDeliveries = new HashMap<>();
+
+    private TaskRecord(String taskId, String contextId, String skillId, String owner, A2aTypes.Message userMessage,
+                       int capacity, ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+      this.taskId = taskId;
+      this.contextId = contextId;
+      this.skillId = skillId;
+      this.owner = owner;
+      if (userMessage != null) {
+        history.add(userMessage);
+      }
+      this.capacity = capacity;
+      this.events = Sinks.many().replay().limit(capacity);
+    }
+
+    public String taskId() {
+      return taskId;
+    }
+
+    public String contextId() {
+      return contextId;
+    }
+
+    public String artifactId() {
+      return artifactId;
+    }
+
+    /**
+     * Events with a sequence number above {@code afterSeq}: the buffered ones first, then live ones until the task ends.
+     * When some of those events have already left the ring buffer, the follower gets the whole task as it is now
+     * instead (with the current sequence number), then the events after it: never a silent gap.
+     */
+    public Flux<Event> events(long afterSeq) {
+      // Checked and subscribed under the lock publish() takes, so no event can leave the buffer in between
+      return Flux.from(subscriber -> {
+        synchronized (this) {
+          Event snapshot = null;
+          long after = afterSeq;
+          // The buffer holds the events numbered (seq - capacity, seq]
+          if (afterSeq < seq.get() - capacity) {
+            A2aTypes.Task task = toTask();
+            after = seq.get();
+            snapshot = new Event(after, task, null, toJson(task));
+          }
+          long from = after;
+          Flux<Event> buffered = events.asFlux().filter(event -> event.seq() > from);
+          // Unlike startWith, mergeSequential subscribes to the buffer right away, not once the snapshot is out
+          (snapshot == null ? buffered : Flux.mergeSequential(Flux.just(snapshot), buffered)).subscribe(subscriber);
+        }
+      });
+    }
+
+    /**
+     * Adds or replaces a push config; the replaced config's delivery is stopped.
+     *
+     * @return false when the task already has {@code max} other configs
+     */
+    synchronized boolean putPushConfig(A2aTypes.PushNotificationConfig config, Disposable delivery, int max) {
+      if (!pushConfigs.containsKey(config.id()) && pushConfigs.size() >= max) {
+        return false;
+      }
+      pushConfigs.put(config.id(), config);
+      Disposable previous = pushDeliveries.put(config.id(), delivery);
+      if (previous != null) {
+        previous.dispose();
+      }
+      return true;
+    }
+
+    synchronized List<A2aTypes.PushNotificationConfig> pushConfigs() {
+      return List.copyOf(pushConfigs.values());
+    }
+
+    synchronized boolean removePushConfig(String configId) {
+      Disposable delivery = pushDeliveries.remove(configId);
+      if (delivery != null) {
+        delivery.dispose();
+      }
+      return pushConfigs.remove(configId) != null;
+    }
+
+    public synchronized String state() {
+      return state;
+    }
+
+    public boolean isFinished() {
+      return finishedAt > 0;
+    }
+
+    synchronized int answerLength() {
+      return answer.length();
+    }
+
+    synchronized void publish(Object result) {
+      // Late signals from a generation that was just cancelled
+      if (isFinished()) return;
+      if (result instanceof A2aTypes.Task task) {
+        state = task.status().state();
+        if (task.status().state().equals("completed")) {
+          finalTask = task;
+        }
+      } else if (result instanceof A2aTypes.TaskStatusUpdateEvent update) {
+        state = update.status().state();
+      } else if (result instanceof ArtifactChunk chunk) {
+        answer.append(chunk.text());
+      }
+      events.tryEmitNext(new Event(seq.incrementAndGet(), result, null, toJson(result)));
+    }
+
+    synchronized void fail(Throwable ex) {
+      if (isFinished()) return;
+      state = "failed";
+      finishedAt = System.currentTimeMillis();
+      events.tryEmitNext(new Event(seq.incrementAndGet(), null, new JsonRpc.Error(-32000, "Streaming error: " + ex.getMessage(), null), null));
+      events.tryEmitComplete();
+    }
+
+    synchronized boolean complete() {
+      if (isFinished()) return false;
+      addAnswerToHistory();
+      finishedAt = System.currentTimeMillis();
+      events.tryEmitComplete();
+      return true;
+    }
+
+    synchronized boolean cancel() {
+      if (isFinished()) return false;
+      state = "canceled";
+      addAnswerToHistory();
+      var canceled = new A2aTypes.TaskStatusUpdateEvent(
+          taskId,
+          contextId,
+          new A2aTypes.TaskStatus("canceled"),
+          true
+      );
+      events.tryEmitNext(new Event(seq.incrementAndGet(), canceled, null, toJson(canceled)));
+      finishedAt = System.currentTimeMillis();
+      events.tryEmitComplete();
+      return true;
+    }
+
+    private void addAnswerToHistory() {
+      if (finalTask == null && !answer.isEmpty()) {
+        history.add(new A2aTypes.Message(
+            "agent",
+            List.of(new A2aTypes.TextPart("text", answer.toString())),
+            UUID.randomUUID().toString(),
+            taskId,
+            contextId
+        ));
+      }
+    }
+
+    private byte[] toJson(Object result) {
+      if (result instanceof ArtifactChunk) {
+        return null;
+      }
+      try {
+        return objectMapper.writeValueAsBytes(result);
+      } catch (JsonProcessingException ex) {
+        // The encoder serializes the result itself when there are no cached bytes
+        return null;
+      }
+    }
+
+    synchronized A2aTypes.Task toTask() {
+      if (finalTask != null) {
+        return finalTask;
+      }
+      List<A2aTypes.Artifact> artifacts = answer.isEmpty() ? null : List.of(new A2aTypes.Artifact(
+          artifactId,
+          "answer",
+          List.of(new A2aTypes.TextPart("text", answer.toString()))
+      ));
+      return new A2aTypes.Task(
+          taskId,
+          contextId,
+          new A2aTypes.TaskStatus(state),
+          artifacts,
+          List.copyOf(history),
+          A2aTypes.KIND_TASK,
+          Map.of("skillId", skillId)
+      );
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package fredlab.dev.samples.a2a;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection pool and timeouts of the HTTP client used for the upstream LLM (both the blocking RestClient and the
+ * streaming WebClient paths), see {@link RestClientConfiguration}.
+ *
+ * @param maxConnections         pooled connections per remote host
+ * @param maxPending             callers allowed to wait for a pooled connection
+ * @param pendingAcquireTimeout  longest wait for a pooled connection
+ * @param connectTimeout         TCP connect timeout
+ * @param readTimeout            longest silence between two reads of a response (also between streamed tokens)
+ * @param callTimeout            whole-exchange limit for blocking calls
+ * @param maxIdleTime            idle connections older than this are closed
+ * @param maxLifeTime            connections are recycled after this, idle or not
+ * @param protocols              HTTP11 and/or H2 (H2 is negotiated with ALPN over TLS)
+ * @param sslBundle              optional Spring Boot SSL bundle for the trust material (custom CA, local stub)
+ * @param warmupConnections      connections opened at startup, and kept warm afterwards
+ * @param keepWarmInterval       how often the warm connections are exercised; 0 disables it
+ */
+@ConfigurationProperties(prefix = "app.llm.http")
+public record UpstreamHttpProperties(Integer maxConnections, Integer maxPending, Duration pendingAcquireTimeout,
+                                     Duration connectTimeout, Duration readTimeout, Duration callTimeout,
+                                     Duration maxIdleTime, Duration maxLifeTime, List<String> protocols,
+                                     String sslBundle, Integer warmupConnections, Duration keepWarmInterval) {
+
+  public UpstreamHttpProperties {
+    maxConnections = maxConnections != null ? maxConnections : 64;
+    maxPending = maxPending != null ? maxPending : 512;
+    pendingAcquireTimeout = pendingAcquireTimeout != null ? pendingAcquireTimeout : Duration.ofSeconds(10);
+    connectTimeout = connectTimeout != null ? connectTimeout : Duration.ofSeconds(5);
+    readTimeout = readTimeout != null ? readTimeout : Duration.ofSeconds(60);
+    callTimeout = callTimeout != null ? callTimeout : Duration.ofSeconds(120);
+    maxIdleTime = maxIdleTime != null ? maxIdleTime : Duration.ofSeconds(90);
+    maxLifeTime = maxLifeTime != null ? maxLifeTime : Duration.ofMinutes(10);
+    protocols = protocols != null && !protocols.isEmpty() ? protocols : List.of("HTTP11");
+    warmupConnections = warmupConnections != null ? warmupConnections : 4;
+    keepWarmInterval = keepWarmInterval != null ? keepWarmInterval : Duration.ofSeconds(45);
+  }
+}
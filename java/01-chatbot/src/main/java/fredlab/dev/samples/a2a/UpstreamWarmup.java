@@ -0,0 +1,82 @@
+package fredlab.dev.samples.a2a;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Opens {@code app.llm.http.warmup-connections} pooled connections to each LLM endpoint (the default one and those
+ * of the per-skill routes and hedges) once the application is ready, so the first user requests do not pay DNS, TCP
+ * and TLS setup, and exercises them every
+ * {@code keep-warm-interval} (shorter than the pool's max idle time) so they are not evicted while traffic is low.
+ * The probe is a HEAD on /v1/models: any HTTP status, 401 included, means the connection is up.
+ */
+@Component
+public class UpstreamWarmup {
+
+  private static final Logger log = LoggerFactory.getLogger(UpstreamWarmup.class);
+
+  private final HttpClient upstreamHttpClient;
+  private final UpstreamHttpProperties properties;
+  private final List<String> probeUris;
+  private Disposable keepWarm;
+
+  public UpstreamWarmup(HttpClient upstreamHttpClient, UpstreamHttpProperties properties,
+                        ModelRoutingProperties routing,
+                        @Value("${spring.ai.openai.base-url:https://api.openai.com}") String baseUrl) {
+    this.upstreamHttpClient = upstreamHttpClient;
+    this.properties = properties;
+    this.probeUris = routing.baseUrls(baseUrl).stream().map(url -> url + "/v1/models").toList();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    int connections = properties.warmupConnections();
+    if (connections <= 0) return;
+    for (String probeUri : probeUris) {
+      long startNanos = System.nanoTime();
+      probe(probeUri, connections).subscribe(ok -> log.info("[UPSTREAM] Warmed {}/{} connections to {} in {} ms",
+          ok, connections, probeUri, (System.nanoTime() - startNanos) / 1_000_000));
+    }
+
+    Duration interval = properties.keepWarmInterval();
+    if (!interval.isZero() && !interval.isNegative()) {
+      int total = connections * probeUris.size();
+      keepWarm = Flux.interval(interval, interval)
+          .onBackpressureDrop()
+          .concatMap(tick -> Flux.fromIterable(probeUris)
+              .flatMap(probeUri -> probe(probeUri, connections))
+              .reduce(0L, Long::sum))
+          .subscribe(ok -> log.debug("[UPSTREAM] Kept {}/{} connections warm", ok, total));
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (keepWarm != null) keepWarm.dispose();
+  }
+
+  // Concurrent probes, so the endpoint's pool has to open (or reuse) that many distinct connections
+  private Mono<Long> probe(String probeUri, int connections) {
+    return Flux.range(0, connections)
+        .flatMap(i -> upstreamHttpClient.head()
+            .uri(probeUri)
+            .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+            .onErrorResume(ex -> {
+              log.warn("[UPSTREAM] Warm-up probe to {} failed: {}", probeUri, ex.toString());
+              return Mono.empty();
+            }), connections)
+        .count();
+  }
+}
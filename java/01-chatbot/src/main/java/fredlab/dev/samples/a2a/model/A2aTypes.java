@@ -2,6 +2,8 @@ package fredlab.dev.samples.a2a.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
 import java.util.List;
 import java.util.Map;
@@ -21,6 +23,7 @@ public final class A2aTypes {
       String description,
       String url,
       String preferredTransport,
+      List<AgentInterface> additionalInterfaces,
       Capabilities capabilities,
       List<String> defaultInputModes,
       List<String> defaultOutputModes,
@@ -28,6 +31,9 @@ public final class A2aTypes {
       Boolean supportsAuthenticatedExtendedCard
   ) {}
 
+  /** Another transport the agent is reachable on: JSONRPC, GRPC or HTTP+JSON. */
+  public record AgentInterface(String url, String transport) {}
+
   public record Capabilities(Boolean streaming, Boolean pushNotifications, Boolean stateTransitionHistory) {}
 
   public record Skill(
@@ -47,10 +53,36 @@ public final class A2aTypes {
     }
   }
 
+  // "kind" is already a record component, so it doubles as the type id when reading parts back.
+  // Parts of other kinds (file, data) read as a TextPart without text, so they do not fail the whole message.
+  @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXISTING_PROPERTY, property = "kind", visible = true,
+      defaultImpl = TextPart.class)
+  @JsonSubTypes(@JsonSubTypes.Type(value = TextPart.class, name = "text"))
   public sealed interface Part permits TextPart {}
   public record TextPart(String kind, String text) implements Part {}
 
-  public record MessageSendParams(Message message, Map<String, Object> metadata) {}
+  public record MessageSendParams(Message message, MessageSendConfiguration configuration, Map<String, Object> metadata) {}
+
+  public record MessageSendConfiguration(
+      List<String> acceptedOutputModes,
+      Integer historyLength,
+      PushNotificationConfig pushNotificationConfig,
+      Boolean blocking
+  ) {}
+
+  // ---- Push notifications ----
+  public record PushNotificationAuthenticationInfo(List<String> schemes, String credentials) {}
+
+  public record PushNotificationConfig(String id, String url, String token, PushNotificationAuthenticationInfo authentication) {}
+
+  public record TaskPushNotificationConfig(String taskId, PushNotificationConfig pushNotificationConfig) {}
+
+  /** Params of tasks/pushNotificationConfig/get, /list and /delete (list ignores the config id). */
+  public record TaskPushNotificationConfigParams(String id, String pushNotificationConfigId, Map<String, Object> metadata) {}
+
+  public record TaskIdParams(String id, Map<String, Object> metadata) {}
+
+  public record TaskQueryParams(String id, Integer historyLength, Map<String, Object> metadata) {}
 
   public record Task(
       String id,
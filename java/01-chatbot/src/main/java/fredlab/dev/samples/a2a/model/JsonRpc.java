@@ -1,12 +1,61 @@
 package fredlab.dev.samples.a2a.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.util.Map;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public final class JsonRpc {
 
-  public record Request(String jsonrpc, Object id, String method, Object params) {}
+  /**
+   * Params record per method. Params of other methods are skipped, not materialized.
+   */
+  private static final Map<String, Class<?>> PARAMS_TYPES = Map.of(
+      "message/send", A2aTypes.MessageSendParams.class,
+      "message/stream", A2aTypes.MessageSendParams.class,
+      "tasks/get", A2aTypes.TaskQueryParams.class,
+      "tasks/cancel", A2aTypes.TaskIdParams.class,
+      "tasks/resubscribe", A2aTypes.TaskIdParams.class,
+      "tasks/pushNotificationConfig/set", A2aTypes.TaskPushNotificationConfig.class,
+      "tasks/pushNotificationConfig/get", A2aTypes.TaskPushNotificationConfigParams.class,
+      "tasks/pushNotificationConfig/list", A2aTypes.TaskPushNotificationConfigParams.class,
+      "tasks/pushNotificationConfig/delete", A2aTypes.TaskPushNotificationConfigParams.class);
+
+  /**
+   * {@code params} holds the method's params record (see {@link RequestDeserializer}), an {@link InvalidParams}
+   * when they did not bind, or null. {@code hasId} tells an {@code "id": null} apart from no id at all.
+   */
+  @JsonDeserialize(using = RequestDeserializer.class)
+  public record Request(String jsonrpc, Object id, String method, Object params, boolean hasId) {
+
+    public Request(String jsonrpc, Object id, String method, Object params) {
+      this(jsonrpc, id, method, params, id != null);
+    }
+
+    /** The params as {@code type}, or null when absent or of another type. */
+    public <T> T params(Class<T> type) {
+      return type.isInstance(params) ? type.cast(params) : null;
+    }
+
+    /** A call without an id: the client expects no response (JSON-RPC 2.0, section 4.1). */
+    public boolean notification() {
+      return !hasId && method != null;
+    }
+  }
+
+  /** Params that did not match the method's params record; answered with -32602. */
+  public record InvalidParams(String message) {}
 
   public record Response(String jsonrpc, Object id, Object result, Error error) {
     @NonNull
@@ -17,7 +66,91 @@ public final class JsonRpc {
     public static Response err(Object id, int code, String message) {
       return new Response("2.0", id, null, new Error(code, message, null));
     }
+    @NonNull
+    public static Response err(Object id, int code, String message, Object data) {
+      return new Response("2.0", id, null, new Error(code, message, data));
+    }
   }
 
   public record Error(int code, String message, Object data) {}
+
+  /**
+   * Decodes a request in one pass over the tokens: once {@code method} is known, {@code params} bind straight to
+   * the method's record, with no intermediate Map tree. Params that come before the method are buffered as tokens.
+   * A params binding failure does not fail the request: the rest of the params is skipped and
+   * {@link InvalidParams} is kept instead, so the caller can still answer with the request id.
+   */
+  static final class RequestDeserializer extends StdDeserializer<Request> {
+
+    RequestDeserializer() {
+      super(Request.class);
+    }
+
+    @Override
+    public Request deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+      if (!parser.isExpectedStartObjectToken()) {
+        return (Request) ctxt.handleUnexpectedToken(Request.class, parser);
+      }
+      JsonStreamContext requestContext = parser.getParsingContext();
+      String jsonrpc = null;
+      Object id = null;
+      boolean hasId = false;
+      String method = null;
+      Object params = null;
+      TokenBuffer pendingParams = null;
+
+      for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+        JsonToken value = parser.nextToken();
+        switch (field) {
+          case "jsonrpc" -> jsonrpc = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+          case "method" -> method = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+          case "id" -> {
+            hasId = true;
+            id = value.isScalarValue() ? ctxt.readValue(parser, Object.class) : skip(parser);
+          }
+          case "params" -> {
+            if (value == JsonToken.VALUE_NULL) {
+              params = null;
+            } else if (method == null) {
+              pendingParams = ctxt.bufferAsCopyOfValue(parser);
+            } else {
+              params = bindParams(method, parser, ctxt, requestContext);
+            }
+          }
+          default -> parser.skipChildren();
+        }
+      }
+      if (pendingParams != null && method != null) {
+        try (JsonParser buffered = pendingParams.asParserOnFirstToken()) {
+          params = bindParams(method, buffered, ctxt, null);
+        }
+      }
+      return new Request(jsonrpc, id, method, params, hasId);
+    }
+
+    // requestContext is null for buffered params, whose parser is discarded after binding
+    private static Object bindParams(String method, JsonParser parser, DeserializationContext ctxt,
+                                     @Nullable JsonStreamContext requestContext) throws IOException {
+      Class<?> type = PARAMS_TYPES.get(method);
+      if (type == null) {
+        return skip(parser);
+      }
+      try {
+        return ctxt.readValue(parser, type);
+      } catch (DatabindException ex) {
+        // Leave the parser on the last token of the params value, where the request's next field follows
+        while (requestContext != null && parser.getParsingContext() != requestContext) {
+          if (parser.nextToken() == null) {
+            throw ex;
+          }
+        }
+        return new InvalidParams(ex.getOriginalMessage());
+      }
+    }
+
+    private static Object skip(JsonParser parser) throws IOException {
+      parser.skipChildren();
+      return null;
+    }
+  }
 }
@@ -0,0 +1,130 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveChunkerTest {
+
+  private static final int MAX_CHARS = 20;
+
+  private final AdaptiveChunker chunker = new AdaptiveChunker(
+      new ChunkingProperties(new ChunkingProperties.Limits(4, MAX_CHARS, Duration.ofSeconds(1)), null),
+      new SimpleMeterRegistry());
+
+  @Test
+  void theFirstTokenGoesOutAlone() {
+    StepVerifier.create(chunker.chunk(Flux.just("Hello", " world", " again"), "openai.brief"), 1)
+        .expectNext("Hello")
+        .thenRequest(Long.MAX_VALUE)
+        .expectNext(" world again")
+        .verifyComplete();
+  }
+
+  @Test
+  void aFirstTokenLongerThanMaxCharsIsCut() {
+    String token = "z".repeat(2 * MAX_CHARS + 10);
+
+    StepVerifier.create(chunker.chunk(Flux.just(token), "openai.brief"))
+        .recordWith(ArrayList::new)
+        .thenConsumeWhile(chunk -> true)
+        .consumeRecordedWith(chunks -> {
+          assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(MAX_CHARS));
+          assertThat(String.join("", chunks)).isEqualTo(token);
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void aBurstWithoutBoundariesJustBeforeCompletionIsCutAtMaxChars() {
+    String burst = "x".repeat(5 * MAX_CHARS + 7);
+
+    // Only the first chunk is requested: the burst is still pending when the tokens complete
+    StepVerifier.create(chunker.chunk(Flux.just("a", burst), "openai.brief"), 1)
+        .expectNext("a")
+        .thenRequest(Long.MAX_VALUE)
+        .recordWith(ArrayList::new)
+        .thenConsumeWhile(chunk -> true)
+        .consumeRecordedWith(chunks -> {
+          assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(MAX_CHARS));
+          assertThat(String.join("", chunks)).isEqualTo(burst);
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void aBurstJustBeforeCompletionIsCutOnWordBoundaries() {
+    String burst = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor incididunt";
+
+    StepVerifier.create(chunker.chunk(Flux.just("a", burst), "openai.brief"), 1)
+        .expectNext("a")
+        .thenRequest(Long.MAX_VALUE)
+        .recordWith(ArrayList::new)
+        .thenConsumeWhile(chunk -> true)
+        .consumeRecordedWith(chunks -> {
+          assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(MAX_CHARS));
+          // Every chunk but the last ends after a space
+          List<String> cut = new ArrayList<>(chunks).subList(0, chunks.size() - 1);
+          assertThat(cut).allSatisfy(chunk -> assertThat(chunk).endsWith(" "));
+          assertThat(String.join("", chunks)).isEqualTo(burst);
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void aHardCutDoesNotSplitASurrogatePair() {
+    // 2 chars per emoji: a cut at an odd MAX_CHARS + 1 would fall inside one
+    String burst = "\ud83d\ude00".repeat(MAX_CHARS) + "!";
+    var oddChunker = new AdaptiveChunker(
+        new ChunkingProperties(new ChunkingProperties.Limits(4, MAX_CHARS + 1, Duration.ofSeconds(1)), null),
+        new SimpleMeterRegistry());
+
+    StepVerifier.create(oddChunker.chunk(Flux.just("a", burst), "openai.brief"), 1)
+        .expectNext("a")
+        .thenRequest(Long.MAX_VALUE)
+        .recordWith(ArrayList::new)
+        .thenConsumeWhile(chunk -> true)
+        .consumeRecordedWith(chunks -> {
+          assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk).hasSizeLessThanOrEqualTo(MAX_CHARS + 1);
+            assertThat(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))).isFalse();
+          });
+          assertThat(String.join("", chunks)).isEqualTo(burst);
+        })
+        .verifyComplete();
+  }
+
+  @Test
+  void textHeldWhileTheClientLagsGoesOutInMaxCharsChunks() {
+    Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+    String backlog = "y".repeat(3 * MAX_CHARS);
+
+    StepVerifier.create(chunker.chunk(tokens.asFlux(), "openai.brief"), 1)
+        .then(() -> tokens.tryEmitNext("a"))
+        .expectNext("a")
+        // Nothing requested: the backlog stays pending
+        .then(() -> tokens.tryEmitNext(backlog))
+        .expectNoEvent(Duration.ofMillis(50))
+        .thenRequest(3)
+        .expectNextCount(3)
+        .then(tokens::tryEmitComplete)
+        .verifyComplete();
+  }
+
+  @Test
+  void upstreamErrorsArePassedOn() {
+    StepVerifier.create(chunker.chunk(Flux.concat(Flux.just("a"), Flux.error(new IllegalStateException("boom"))),
+            "openai.brief"))
+        .expectNext("a")
+        .expectErrorMessage("boom")
+        .verify();
+  }
+}
@@ -0,0 +1,199 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+  private static final Duration MAX_WAIT = Duration.ofSeconds(10);
+  private static final Duration BACKGROUND_MAX_WAIT = Duration.ofMinutes(30);
+
+  private static AdmissionControl admission(int globalCapacity, int perSubjectCapacity) {
+    return new AdmissionControl(new AdmissionControl.Properties(globalCapacity, perSubjectCapacity, 16, MAX_WAIT,
+        BACKGROUND_MAX_WAIT, Map.of("brief", 1, "research", 4)), new SimpleMeterRegistry());
+  }
+
+  private static AdmissionControl.Permit acquireNow(AdmissionControl admission, String subject, String skill) {
+    return admission.acquire(subject, skill).toFuture().getNow(null);
+  }
+
+  @Test
+  void aHeavySubjectCannotStarveAnother() {
+    var admission = admission(2, 2);
+    var heavy1 = acquireNow(admission, "heavy", "brief");
+    var heavy2 = acquireNow(admission, "heavy", "brief");
+    CompletableFuture<AdmissionControl.Permit> heavyQueued1 = admission.acquire("heavy", "brief").toFuture();
+    CompletableFuture<AdmissionControl.Permit> heavyQueued2 = admission.acquire("heavy", "brief").toFuture();
+    CompletableFuture<AdmissionControl.Permit> heavyQueued3 = admission.acquire("heavy", "brief").toFuture();
+
+    StepVerifier.create(admission.acquire("light", "brief"))
+        .expectSubscription()
+        .then(() -> assertThat(admission.queued()).isEqualTo(4))
+        // heavy was first in line: the first slot goes to it, and heavy moves behind light
+        .then(heavy1::release)
+        .then(() -> assertThat(heavyQueued1).isCompleted())
+        // light is served next, although heavy still has two calls waiting
+        .then(heavy2::release)
+        .assertNext(permit -> assertThat(permit).isNotNull())
+        .verifyComplete();
+
+    assertThat(heavyQueued2).isNotDone();
+    assertThat(heavyQueued3).isNotDone();
+    assertThat(admission.inUse()).isEqualTo(2);
+    assertThat(admission.queued()).isEqualTo(2);
+  }
+
+  @Test
+  void anotherSubjectIsAdmittedWhileOneIsAtItsCap() {
+    var admission = admission(4, 2);
+    acquireNow(admission, "heavy", "brief");
+    acquireNow(admission, "heavy", "brief");
+    CompletableFuture<AdmissionControl.Permit> heavyQueued = admission.acquire("heavy", "brief").toFuture();
+
+    StepVerifier.create(admission.acquire("light", "brief"))
+        .assertNext(permit -> assertThat(permit).isNotNull())
+        .verifyComplete();
+
+    assertThat(heavyQueued).isNotDone();
+    assertThat(admission.inUse()).isEqualTo(3);
+  }
+
+  @Test
+  void aTimedOutWaiterReleasesNothing() {
+    var admission = admission(1, 1);
+    var held = acquireNow(admission, "a", "brief");
+
+    StepVerifier.withVirtualTime(() -> admission.acquire("b", "brief"))
+        .expectSubscription()
+        .then(() -> assertThat(admission.queued()).isEqualTo(1))
+        .thenAwait(MAX_WAIT)
+        .expectErrorSatisfies(error -> assertThat(error)
+            .isInstanceOf(AdmissionControl.RejectedException.class)
+            .hasMessageContaining("Timed out"))
+        .verify();
+
+    // The held permit is untouched, and the failed waiter took no capacity
+    assertThat(admission.queued()).isZero();
+    assertThat(admission.inUse()).isEqualTo(1);
+    CompletableFuture<AdmissionControl.Permit> next = admission.acquire("c", "brief").toFuture();
+    assertThat(next).isNotDone();
+    held.release();
+    assertThat(next).isCompleted();
+    assertThat(admission.inUse()).isEqualTo(1);
+  }
+
+  @Test
+  void aCancelledWaiterIsRemovedFromTheQueue() {
+    var admission = admission(1, 1);
+    var held = acquireNow(admission, "a", "brief");
+
+    StepVerifier.create(admission.acquire("b", "brief"))
+        .expectSubscription()
+        .then(() -> assertThat(admission.queued()).isEqualTo(1))
+        .thenCancel()
+        .verify();
+
+    assertThat(admission.queued()).isZero();
+    held.release();
+    // Nobody was granted the freed capacity
+    assertThat(admission.inUse()).isZero();
+    StepVerifier.create(admission.acquire("b", "brief"))
+        .assertNext(permit -> assertThat(admission.inUse()).isEqualTo(1))
+        .verifyComplete();
+  }
+
+  @Test
+  void aCancelledHeadUnblocksTheLighterWaiterBehindIt() {
+    var admission = admission(4, 4);
+    acquireNow(admission, "a", "brief");
+    Disposable research = admission.acquire("a", "research").subscribe();
+
+    StepVerifier.create(admission.acquire("a", "brief"))
+        .expectSubscription()
+        .then(() -> assertThat(admission.queued()).isEqualTo(2))
+        .then(research::dispose)
+        .assertNext(permit -> assertThat(permit).isNotNull())
+        .verifyComplete();
+
+    assertThat(admission.queued()).isZero();
+    assertThat(admission.inUse()).isEqualTo(2);
+  }
+
+  @Test
+  void concurrentCallsFollowTheSkillWeight() {
+    var admission = admission(32, 8);
+
+    assertThat(admission.concurrentCalls("brief")).isEqualTo(8);
+    assertThat(admission.concurrentCalls("research")).isEqualTo(2);
+    assertThat(admission.concurrentCalls("unknown")).isEqualTo(8);
+    // A weight above the per-subject capacity is clamped to it: one call at a time, never zero
+    assertThat(admission(32, 2).concurrentCalls("research")).isEqualTo(1);
+  }
+
+  @Test
+  void aFullQueueRejectsWithARetryAfterHint() {
+    var admission = new AdmissionControl(new AdmissionControl.Properties(1, 1, 1, MAX_WAIT, BACKGROUND_MAX_WAIT,
+        Map.of()), new SimpleMeterRegistry());
+    acquireNow(admission, "a", "brief");
+    admission.acquire("a", "brief").toFuture();
+
+    StepVerifier.create(admission.acquire("b", "brief"))
+        .expectErrorSatisfies(error -> assertThat(error)
+            .isInstanceOfSatisfying(AdmissionControl.RejectedException.class,
+                rejected -> assertThat(rejected.retryAfter()).isEqualTo(MAX_WAIT)))
+        .verify();
+    assertThat(admission.queued()).isEqualTo(1);
+  }
+
+  @Test
+  void backgroundTasksOnlyGetWhatInteractiveCallersLeave() {
+    var admission = admission(1, 1);
+    var held = acquireNow(admission, "a", "brief");
+    CompletableFuture<AdmissionControl.Permit> background = admission.acquireBackground("b", "brief").toFuture();
+    CompletableFuture<AdmissionControl.Permit> interactive = admission.acquire("c", "brief").toFuture();
+
+    held.release();
+    assertThat(interactive).isCompleted();
+    assertThat(background).isNotDone();
+
+    interactive.join().release();
+    assertThat(background).isCompleted();
+  }
+
+  @Test
+  void aBackgroundTaskWaitsPastTheInteractiveLimit() {
+    var admission = admission(1, 1);
+    acquireNow(admission, "a", "brief");
+
+    StepVerifier.withVirtualTime(() -> admission.acquireBackground("a", "brief"))
+        .expectSubscription()
+        .thenAwait(MAX_WAIT.multipliedBy(2))
+        .then(() -> assertThat(admission.queued()).isEqualTo(1))
+        .thenAwait(BACKGROUND_MAX_WAIT)
+        .expectError(AdmissionControl.RejectedException.class)
+        .verify();
+    assertThat(admission.queued()).isZero();
+  }
+
+  @Test
+  void backgroundTasksDoNotFillTheInteractiveQueue() {
+    var admission = new AdmissionControl(new AdmissionControl.Properties(1, 1, 1, MAX_WAIT, BACKGROUND_MAX_WAIT,
+        Map.of()), new SimpleMeterRegistry());
+    acquireNow(admission, "a", "brief");
+    admission.acquireBackground("a", "brief").toFuture();
+    admission.acquireBackground("b", "brief").toFuture();
+
+    CompletableFuture<AdmissionControl.Permit> interactive = admission.acquire("c", "brief").toFuture();
+
+    assertThat(interactive).isNotDone();
+    assertThat(admission.queued()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,108 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingJwtDecoderTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  // Tokens the delegate was asked to validate, in order
+  private final List<String> validated = new ArrayList<>();
+
+  private CachingJwtDecoder decoder(int maxEntries, Duration maxTtl, Instant expiresAt) {
+    ReactiveJwtDecoder delegate = token -> Mono.fromSupplier(() -> {
+      validated.add(token);
+      if (token.startsWith("bad")) {
+        throw new BadJwtException("Invalid signature");
+      }
+      return Jwt.withTokenValue(token).header("alg", "RS256").subject("alice").expiresAt(expiresAt).build();
+    });
+    return new CachingJwtDecoder(delegate, maxEntries, maxTtl, meterRegistry);
+  }
+
+  private CachingJwtDecoder decoder(int maxEntries) {
+    return decoder(maxEntries, Duration.ofMinutes(5), Instant.now().plus(Duration.ofHours(1)));
+  }
+
+  @Test
+  void aTokenIsValidatedOnlyOnFirstUse() {
+    var decoder = decoder(16);
+
+    StepVerifier.create(decoder.decode("token-1"))
+        .assertNext(jwt -> assertThat(jwt.getSubject()).isEqualTo("alice"))
+        .verifyComplete();
+    StepVerifier.create(decoder.decode("token-1"))
+        .assertNext(jwt -> assertThat(jwt.getTokenValue()).isEqualTo("token-1"))
+        .verifyComplete();
+
+    assertThat(validated).containsExactly("token-1");
+    assertThat(meterRegistry.get("agent.jwt.cache.hits").functionCounter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("agent.jwt.cache.misses").functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void rejectedTokensAreNeverCached() {
+    var decoder = decoder(16);
+
+    StepVerifier.create(decoder.decode("bad-token")).expectError(BadJwtException.class).verify();
+    StepVerifier.create(decoder.decode("bad-token")).expectError(BadJwtException.class).verify();
+
+    assertThat(validated).containsExactly("bad-token", "bad-token");
+    assertThat(decoder.size()).isZero();
+  }
+
+  @Test
+  void anEntryExpiresWithItsToken() {
+    var decoder = decoder(16, Duration.ofMinutes(5), Instant.now().minusSeconds(1));
+
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+
+    assertThat(validated).containsExactly("token-1", "token-1");
+  }
+
+  @Test
+  void anEntryExpiresAfterTheMaxTtl() {
+    var decoder = decoder(16, Duration.ZERO, Instant.now().plus(Duration.ofHours(1)));
+
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+
+    assertThat(validated).containsExactly("token-1", "token-1");
+  }
+
+  @Test
+  void theLeastRecentlyUsedTokenIsDroppedFirst() {
+    var decoder = decoder(2);
+    for (String token : List.of("token-1", "token-2", "token-1", "token-3", "token-1", "token-2")) {
+      StepVerifier.create(decoder.decode(token)).expectNextCount(1).verifyComplete();
+    }
+
+    assertThat(decoder.size()).isEqualTo(2);
+    // token-2 was the least recently used when token-3 came in
+    assertThat(validated).containsExactly("token-1", "token-2", "token-3", "token-2");
+  }
+
+  @Test
+  void aZeroSizeCacheAlwaysValidates() {
+    var decoder = decoder(0);
+
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+    StepVerifier.create(decoder.decode("token-1")).expectNextCount(1).verifyComplete();
+
+    assertThat(validated).containsExactly("token-1", "token-1");
+    assertThat(decoder.size()).isZero();
+  }
+}
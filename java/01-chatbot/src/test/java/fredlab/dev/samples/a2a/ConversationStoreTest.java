@@ -0,0 +1,115 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationStoreTest {
+
+  // 16 chars: 4 estimated tokens
+  private static final String TURN = "0123456789abcdef";
+
+  private static ConversationStore store(int maxContexts, int maxTurns, int historyTokens, boolean summarize) {
+    return new ConversationStore(true, maxContexts, Duration.ofMinutes(30), maxTurns, 100, historyTokens, summarize,
+        historyTokens, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void theWindowHoldsTheNewestTurnsThatFitTheBudget() {
+    var store = store(10, 40, 10, false);
+    store.append("ctx", "q1" + TURN.substring(2), "a1" + TURN.substring(2));
+    store.append("ctx", "q2" + TURN.substring(2), "a2" + TURN.substring(2));
+
+    var window = store.window("ctx");
+
+    // 4 turns of 4 tokens against a budget of 10: the newest 2, oldest first
+    assertThat(window.summary()).isNull();
+    assertThat(window.turns()).extracting(ConversationStore.Turn::role).containsExactly("user", "assistant");
+    assertThat(window.turns()).extracting(ConversationStore.Turn::text)
+        .containsExactly("q2" + TURN.substring(2), "a2" + TURN.substring(2));
+  }
+
+  @Test
+  void turnsAreCappedInNumberAndLength() {
+    var store = store(10, 3, 1000, false);
+    store.append("ctx", "first question", "first answer");
+    store.append("ctx", "x".repeat(500), "second answer");
+
+    var turns = store.window("ctx").turns();
+
+    assertThat(turns).extracting(ConversationStore.Turn::seq).containsExactly(1L, 2L, 3L);
+    assertThat(turns.get(1).text()).hasSize(100);
+  }
+
+  @Test
+  void unknownOrMissingContextsHaveNoHistory() {
+    var store = store(10, 40, 1000, false);
+    store.append(null, "question", "answer");
+
+    assertThat(store.window("ctx").isEmpty()).isTrue();
+    assertThat(store.window(null).isEmpty()).isTrue();
+    assertThat(store.size()).isZero();
+  }
+
+  @Test
+  void theLeastRecentlyUsedConversationIsDroppedFirst() {
+    var store = store(2, 40, 1000, false);
+    store.append("a", "question", "answer");
+    store.append("b", "question", "answer");
+    store.window("a");
+
+    store.append("c", "question", "answer");
+
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.window("a").isEmpty()).isFalse();
+    assertThat(store.window("b").isEmpty()).isTrue();
+  }
+
+  @Test
+  void turnsThatNoLongerFitAreHandedOutOnceForSummarization() {
+    var store = store(10, 40, 10, true);
+    store.append("ctx", TURN, TURN);
+    store.append("ctx", TURN, TURN);
+
+    var overflow = store.takeOverflow("ctx");
+
+    assertThat(overflow).isNotNull();
+    assertThat(overflow.summary()).isNull();
+    assertThat(overflow.turns()).extracting(ConversationStore.Turn::seq).containsExactly(0L, 1L);
+    // Already being summarized
+    assertThat(store.takeOverflow("ctx")).isNull();
+
+    store.summarized("ctx", overflow, "  sum ");
+    var window = store.window("ctx");
+    assertThat(window.summary()).isEqualTo("sum");
+    assertThat(window.turns()).extracting(ConversationStore.Turn::seq).containsExactly(2L, 3L);
+    assertThat(store.takeOverflow("ctx")).isNull();
+  }
+
+  @Test
+  void aFailedSummaryKeepsTheTurns() {
+    var store = store(10, 40, 10, true);
+    store.append("ctx", TURN, TURN);
+    store.append("ctx", TURN, TURN);
+
+    store.summarized("ctx", store.takeOverflow("ctx"), null);
+
+    // Nothing was dropped, and the next call may try again
+    assertThat(store.takeOverflow("ctx")).isNotNull();
+  }
+
+  @Test
+  void fingerprintsFollowTheWindowContent() {
+    var store = store(10, 40, 1000, false);
+    store.append("a", "question", "answer");
+    store.append("b", "question", "answer");
+    store.append("c", "question", "other answer");
+
+    assertThat(store.window("a").fingerprint()).isEqualTo(store.window("b").fingerprint()).isNotEmpty();
+    assertThat(store.window("a").fingerprint()).isNotEqualTo(store.window("c").fingerprint());
+    assertThat(store.window("unknown").fingerprint()).isEmpty();
+  }
+}
@@ -0,0 +1,217 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Deliveries against a local webhook; loopback addresses are only allowed where a test says so.
+ */
+class PushNotifierTest {
+
+  /** One POST the webhook received. */
+  record Received(String token, String authorization, A2aTypes.Task task) {}
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Sinks.Many<Received> received = Sinks.many().replay().all();
+  // Status the webhook answers with, for each call in turn; 200 once they run out
+  private final List<Integer> statuses = new ArrayList<>();
+  private final AtomicInteger calls = new AtomicInteger();
+  private final List<PushNotifier> notifiers = new ArrayList<>();
+  private TaskStore taskStore;
+  private DisposableServer webhook;
+
+  @BeforeEach
+  void start() {
+    webhook = HttpServer.create()
+        .host("127.0.0.1")
+        .port(0)
+        .route(routes -> routes.post("/hook", (request, response) -> request.receive().aggregate().asString()
+            .flatMap(body -> {
+              int call = calls.getAndIncrement();
+              try {
+                received.tryEmitNext(new Received(request.requestHeaders().get("X-A2A-Notification-Token"),
+                    request.requestHeaders().get("Authorization"), objectMapper.readValue(body, A2aTypes.Task.class)));
+              } catch (Exception ex) {
+                return response.status(400).send().then();
+              }
+              return response.status(call < statuses.size() ? statuses.get(call) : 200).send().then();
+            })))
+        .bindNow();
+    taskStore = new TaskStore(100, 64, Duration.ofMinutes(30), "", Duration.ofSeconds(10), 8, objectMapper,
+        meterRegistry);
+  }
+
+  @AfterEach
+  void stop() {
+    notifiers.forEach(PushNotifier::shutdown);
+    taskStore.shutdown();
+    webhook.disposeNow();
+  }
+
+  private PushNotifier notifier(List<String> allowedHosts, boolean allowPrivateAddresses) {
+    var notifier = new PushNotifier(new PushNotifier.Properties(true, 4, Duration.ofSeconds(1), Duration.ofSeconds(2),
+        Duration.ofMillis(20), 16, 3, Duration.ofMillis(10), false, allowedHosts, 2, allowPrivateAddresses),
+        objectMapper, meterRegistry);
+    notifiers.add(notifier);
+    return notifier;
+  }
+
+  private String url() {
+    return "http://127.0.0.1:" + webhook.port() + "/hook";
+  }
+
+  private static A2aTypes.PushNotificationConfig config(String url) {
+    return new A2aTypes.PushNotificationConfig(null, url, "secret", null);
+  }
+
+  private TaskStore.TaskRecord task() {
+    return taskStore.create("task-1", "ctx", "openai.brief", null, "alice");
+  }
+
+  private static A2aTypes.TaskStatusUpdateEvent status(String state) {
+    return new A2aTypes.TaskStatusUpdateEvent("task-1", "ctx", new A2aTypes.TaskStatus(state), false);
+  }
+
+  private double deliveries(String result) {
+    return meterRegistry.counter("agent.push.deliveries", "result", result).count();
+  }
+
+  private static void await(BooleanSupplier condition) {
+    Flux.interval(Duration.ofMillis(10)).filter(tick -> condition.getAsBoolean()).blockFirst(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void onlyPublicWebUrlsOnAllowedHostsPassValidation() {
+    var notifier = notifier(List.of("127.0.0.1", "hooks.example.com"), false);
+
+    assertThatThrownBy(() -> notifier.validate(config(null)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> notifier.validate(config("ftp://hooks.example.com/a2a")))
+        .hasMessageContaining("http(s)");
+    assertThatThrownBy(() -> notifier.validate(config("https://other.example.com/a2a")))
+        .hasMessageContaining("not allowed");
+    // Allowed by name, but a loopback address
+    assertThatThrownBy(() -> notifier.validate(config(url())))
+        .hasMessageContaining("not allowed");
+
+    notifier(List.of("*"), true).validate(config(url()));
+  }
+
+  @Test
+  void statusChangesArePostedWithTheCurrentTask() {
+    var notifier = notifier(List.of("*"), true);
+    var task = task();
+    var stored = notifier.register(task, config(url()));
+
+    task.publish(status("working"));
+
+    StepVerifier.create(received.asFlux())
+        .assertNext(post -> {
+          assertThat(post.token()).isEqualTo("secret");
+          assertThat(post.task().id()).isEqualTo("task-1");
+          assertThat(post.task().status().state()).isEqualTo("working");
+        })
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+    assertThat(stored.id()).isNotBlank();
+    assertThat(notifier.configs(task)).containsExactly(stored);
+  }
+
+  @Test
+  void bearerCredentialsAreSentAsAuthorization() {
+    var notifier = notifier(List.of("*"), true);
+    var task = task();
+    notifier.register(task, new A2aTypes.PushNotificationConfig("cfg-1", url(), null,
+        new A2aTypes.PushNotificationAuthenticationInfo(List.of("bearer"), "webhook-token")));
+
+    task.publish(status("working"));
+
+    StepVerifier.create(received.asFlux())
+        .assertNext(post -> {
+          assertThat(post.token()).isNull();
+          assertThat(post.authorization()).isEqualTo("Bearer webhook-token");
+        })
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void serverErrorsAreRetried() {
+    statuses.addAll(List.of(503, 429));
+    var notifier = notifier(List.of("*"), true);
+    var task = task();
+    notifier.register(task, config(url()));
+
+    task.publish(status("working"));
+
+    await(() -> deliveries("ok") == 1);
+    assertThat(calls).hasValue(3);
+    assertThat(meterRegistry.counter("agent.push.retries").count()).isEqualTo(2);
+    assertThat(deliveries("failed")).isZero();
+  }
+
+  @Test
+  void clientErrorsAreNotRetried() {
+    statuses.add(404);
+    var notifier = notifier(List.of("*"), true);
+    var task = task();
+    notifier.register(task, config(url()));
+
+    task.publish(status("working"));
+
+    await(() -> deliveries("failed") == 1);
+    assertThat(calls).hasValue(1);
+    assertThat(meterRegistry.counter("agent.push.retries").count()).isZero();
+  }
+
+  @Test
+  void theResolvedAddressIsCheckedAgainOnConnect() {
+    // Registered without validate(), as if the host had resolved to a public address back then
+    var notifier = notifier(List.of("*"), false);
+    var task = task();
+    notifier.register(task, config(url()));
+
+    task.publish(status("working"));
+
+    await(() -> deliveries("failed") == 1);
+    assertThat(calls).hasValue(0);
+    assertThat(meterRegistry.counter("agent.push.retries").count()).isZero();
+  }
+
+  @Test
+  void configsPerTaskAreCappedUntilOneIsDeleted() {
+    var notifier = notifier(List.of("*"), true);
+    var task = task();
+    var first = notifier.register(task, config(url()));
+    notifier.register(task, config(url()));
+
+    assertThatThrownBy(() -> notifier.register(task, config(url())))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("At most 2");
+
+    assertThat(notifier.delete(task, first.id())).isTrue();
+    assertThat(notifier.delete(task, first.id())).isFalse();
+    notifier.register(task, config(url()));
+    assertThat(notifier.configs(task)).hasSize(2);
+  }
+}
@@ -0,0 +1,106 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ResponseCache cache(Duration ttl, int maxEntries, DataSize maxSize) {
+    return new ResponseCache(true, Set.of("openai.brief"), ttl, maxEntries, maxSize, meterRegistry);
+  }
+
+  private ResponseCache cache() {
+    return cache(Duration.ofMinutes(10), 100, DataSize.ofMegabytes(1));
+  }
+
+  @Test
+  void keysIgnoreSurroundingAndRepeatedWhitespace() {
+    var cache = cache();
+    cache.putAnswer(cache.key("send", "openai.brief", "system", "  what is\n\tsse?  "), "answer");
+
+    assertThat(cache.getAnswer(cache.key("send", "openai.brief", "system", "what is sse?"))).isEqualTo("answer");
+    assertThat(cache.getAnswer(cache.key("stream", "openai.brief", "system", "what is sse?"))).isNull();
+    assertThat(cache.getAnswer(cache.key("send", "openai.brief", "other system", "what is sse?"))).isNull();
+    assertThat(meterRegistry.get("agent.cache.hits").functionCounter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("agent.cache.misses").functionCounter().count()).isEqualTo(2);
+  }
+
+  @Test
+  void skillsOutsideTheListAreNotCached() {
+    var cache = cache();
+    var key = cache.key("send", "openai.research", "system", "question");
+
+    cache.putAnswer(key, "answer");
+
+    assertThat(cache.enabledFor("openai.research")).isFalse();
+    assertThat(cache.getAnswer(key)).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void theLeastRecentlyUsedEntryIsEvictedFirst() {
+    var cache = cache(Duration.ofMinutes(10), 2, DataSize.ofMegabytes(1));
+    var a = cache.key("send", "openai.brief", "", "a");
+    var b = cache.key("send", "openai.brief", "", "b");
+    cache.putAnswer(a, "A");
+    cache.putAnswer(b, "B");
+
+    cache.getAnswer(a);
+    cache.putAnswer(cache.key("send", "openai.brief", "", "c"), "C");
+
+    assertThat(cache.getAnswer(a)).isEqualTo("A");
+    assertThat(cache.getAnswer(b)).isNull();
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void theByteCapEvictsAndRejectsOversizedEntries() {
+    // 2 bytes per char plus a 128 byte overhead per entry: two 300 char answers fit in 2KB, a third does not
+    var cache = cache(Duration.ofMinutes(10), 100, DataSize.ofKilobytes(2));
+    for (String question : List.of("a", "b", "c")) {
+      cache.putAnswer(cache.key("send", "openai.brief", "", question), "x".repeat(300));
+    }
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.bytes()).isLessThanOrEqualTo(2048);
+
+    // Bigger than the whole cache: not stored, and nothing else is flushed for it
+    cache.putAnswer(cache.key("send", "openai.brief", "", "huge"), "x".repeat(2048));
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getAnswer(cache.key("send", "openai.brief", "", "huge"))).isNull();
+  }
+
+  @Test
+  void expiredEntriesAreMisses() throws InterruptedException {
+    var cache = cache(Duration.ofMillis(1), 100, DataSize.ofMegabytes(1));
+    var key = cache.key("send", "openai.brief", "", "question");
+    cache.putAnswer(key, "answer");
+
+    Thread.sleep(10);
+
+    assertThat(cache.getAnswer(key)).isNull();
+    assertThat(cache.size()).isZero();
+    assertThat(cache.bytes()).isZero();
+  }
+
+  @Test
+  void chunksAreCopiedWhenStored() {
+    var cache = cache();
+    var key = cache.key("stream", "openai.brief", "", "question");
+    List<String> chunks = new ArrayList<>(List.of("Hello", " world"));
+
+    cache.putChunks(key, chunks);
+    chunks.add(" again");
+
+    assertThat(cache.getChunks(key)).containsExactly("Hello", " world");
+  }
+}
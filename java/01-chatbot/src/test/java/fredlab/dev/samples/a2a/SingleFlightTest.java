@@ -0,0 +1,91 @@
+package fredlab.dev.samples.a2a;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+
+  @Test
+  void aLateJoinerSharesTheUpstreamAndGetsWhatItMissed() {
+    Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    AtomicInteger calls = new AtomicInteger();
+    Supplier<Flux<String>> call = () -> {
+      calls.incrementAndGet();
+      return upstream.asFlux();
+    };
+    CompletableFuture<List<String>> first = singleFlight.join("key", call).collectList().toFuture();
+    upstream.tryEmitNext("a");
+
+    StepVerifier.create(singleFlight.join("key", call))
+        .expectNext("a")
+        .then(() -> upstream.tryEmitNext("b"))
+        .expectNext("b")
+        .then(upstream::tryEmitComplete)
+        .verifyComplete();
+
+    assertThat(first).isCompletedWithValue(List.of("a", "b"));
+    assertThat(calls).hasValue(1);
+    assertThat(singleFlight.size()).isZero();
+    assertThat(meterRegistry.counter("agent.singleflight.started").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("agent.singleflight.joined").count()).isEqualTo(1);
+  }
+
+  @Test
+  void theUpstreamIsCancelledOnlyWhenTheLastCallerLeaves() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Supplier<Flux<String>> call = () -> Flux.<String>never().doOnCancel(() -> cancelled.set(true));
+
+    Disposable first = singleFlight.join("key", call).subscribe();
+    Disposable second = singleFlight.join("key", call).subscribe();
+    first.dispose();
+    assertThat(cancelled).isFalse();
+    assertThat(singleFlight.size()).isEqualTo(1);
+
+    second.dispose();
+    assertThat(cancelled).isTrue();
+    assertThat(singleFlight.size()).isZero();
+  }
+
+  @Test
+  void aFailedCallIsNotReusedByTheNextCaller() {
+    AtomicInteger calls = new AtomicInteger();
+    Supplier<Flux<String>> call = () -> calls.incrementAndGet() == 1
+        ? Flux.<String>error(new IllegalStateException("boom"))
+        : Flux.just("ok");
+
+    StepVerifier.create(singleFlight.join("key", call))
+        .expectErrorMessage("boom")
+        .verify();
+    StepVerifier.create(singleFlight.join("key", call))
+        .expectNext("ok")
+        .verifyComplete();
+
+    assertThat(calls).hasValue(2);
+  }
+
+  @Test
+  void differentKeysDoNotShare() {
+    AtomicInteger calls = new AtomicInteger();
+    Supplier<Flux<Integer>> call = () -> Flux.just(calls.incrementAndGet());
+
+    StepVerifier.create(Flux.merge(singleFlight.join("a", call), singleFlight.join("b", call)))
+        .expectNextCount(2)
+        .verifyComplete();
+    assertThat(calls).hasValue(2);
+  }
+}
@@ -0,0 +1,136 @@
+package fredlab.dev.samples.a2a;
+
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowConsumerGuardTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Sinks.Many<TaskStore.Event> events = Sinks.many().unicast().onBackpressureBuffer();
+
+  private SlowConsumerGuard guard(DataSize maxBufferedBytes, Duration stallTimeout) {
+    return new SlowConsumerGuard(new SlowConsumerGuard.Properties(maxBufferedBytes, stallTimeout), meterRegistry);
+  }
+
+  private SlowConsumerGuard guard() {
+    return guard(DataSize.ofKilobytes(64), Duration.ofSeconds(30));
+  }
+
+  private static TaskStore.Event chunk(long seq, String text) {
+    return new TaskStore.Event(seq, new TaskStore.ArtifactChunk(text, true), null, null);
+  }
+
+  private static TaskStore.Event status(long seq) {
+    var update = new A2aTypes.TaskStatusUpdateEvent("task-1", "ctx", new A2aTypes.TaskStatus("working"), false);
+    return new TaskStore.Event(seq, update, null, new byte[64]);
+  }
+
+  private double bufferedTotal() {
+    return meterRegistry.get("agent.stream.buffered.total").gauge().value();
+  }
+
+  @Test
+  void aClientThatKeepsUpGetsEveryEventAsItComes() {
+    StepVerifier.create(guard().guard(Flux.just(chunk(1, "a"), chunk(2, "b"), status(3))))
+        .assertNext(event -> assertThat(event.result()).isEqualTo(new TaskStore.ArtifactChunk("a", true)))
+        .assertNext(event -> assertThat(event.result()).isEqualTo(new TaskStore.ArtifactChunk("b", true)))
+        .assertNext(event -> assertThat(event.seq()).isEqualTo(3))
+        .verifyComplete();
+    assertThat(meterRegistry.counter("agent.stream.chunks.merged").count()).isZero();
+  }
+
+  @Test
+  void chunksThatQueueUpAreMergedUnderTheLastSequenceNumber() {
+    StepVerifier.create(guard().guard(events.asFlux()), 0)
+        .expectSubscription()
+        .then(() -> {
+          events.tryEmitNext(chunk(1, "a"));
+          events.tryEmitNext(chunk(2, "b"));
+          events.tryEmitNext(chunk(3, "c"));
+          events.tryEmitComplete();
+        })
+        .thenRequest(1)
+        .assertNext(event -> {
+          assertThat(event.seq()).isEqualTo(3);
+          assertThat(event.result()).isEqualTo(new TaskStore.ArtifactChunk("abc", true));
+        })
+        .verifyComplete();
+    assertThat(meterRegistry.counter("agent.stream.chunks.merged").count()).isEqualTo(2);
+    assertThat(bufferedTotal()).isZero();
+  }
+
+  @Test
+  void otherEventsKeepTheirPlaceBetweenChunks() {
+    StepVerifier.create(guard().guard(events.asFlux()), 0)
+        .expectSubscription()
+        .then(() -> {
+          events.tryEmitNext(chunk(1, "a"));
+          events.tryEmitNext(status(2));
+          events.tryEmitNext(chunk(3, "b"));
+          events.tryEmitComplete();
+        })
+        .thenRequest(3)
+        .assertNext(event -> assertThat(event.seq()).isEqualTo(1))
+        .assertNext(event -> assertThat(event.result()).isInstanceOf(A2aTypes.TaskStatusUpdateEvent.class))
+        .assertNext(event -> assertThat(event.seq()).isEqualTo(3))
+        .verifyComplete();
+  }
+
+  @Test
+  void aClientTooFarBehindIsDisconnected() {
+    StepVerifier.create(guard(DataSize.ofKilobytes(1), Duration.ofSeconds(30)).guard(events.asFlux()), 0)
+        .expectSubscription()
+        .then(() -> events.tryEmitNext(chunk(1, "x".repeat(1024))))
+        .expectErrorSatisfies(error -> assertThat(error)
+            .isInstanceOfSatisfying(SlowConsumerGuard.SlowConsumerException.class,
+                slow -> assertThat(slow.reason()).isEqualTo("overflow")))
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(meterRegistry.counter("agent.stream.slow-consumers", "reason", "overflow").count()).isEqualTo(1);
+    assertThat(bufferedTotal()).isZero();
+  }
+
+  @Test
+  void theBudgetCountsEscapedBytes() {
+    // 10 chars either way, but each control character is written as a six byte escape sequence
+    var guard = guard(DataSize.ofBytes(300), Duration.ofSeconds(30));
+
+    StepVerifier.create(guard.guard(events.asFlux()), 0)
+        .expectSubscription()
+        .then(() -> events.tryEmitNext(chunk(1, "0123456789")))
+        .thenRequest(1)
+        .expectNextCount(1)
+        .then(() -> events.tryEmitNext(chunk(2, "\u0001".repeat(10))))
+        .expectError(SlowConsumerGuard.SlowConsumerException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void aClientThatStopsReadingIsDisconnectedAfterTheStallTimeout() {
+    StepVerifier.create(guard(DataSize.ofKilobytes(64), Duration.ofMillis(200)).guard(events.asFlux()), 0)
+        .expectSubscription()
+        .then(() -> events.tryEmitNext(chunk(1, "a")))
+        .expectErrorSatisfies(error -> assertThat(error)
+            .isInstanceOfSatisfying(SlowConsumerGuard.SlowConsumerException.class,
+                slow -> assertThat(slow.reason()).isEqualTo("stalled")))
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void anIdleStreamIsNotAStall() {
+    StepVerifier.create(guard(DataSize.ofKilobytes(64), Duration.ofMillis(200)).guard(events.asFlux()))
+        .expectSubscription()
+        .expectNoEvent(Duration.ofMillis(600))
+        .then(events::tryEmitComplete)
+        .verifyComplete();
+  }
+}
@@ -0,0 +1,154 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import fredlab.dev.samples.a2a.model.JsonRpc;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hand-written frames must be byte for byte what Jackson would have written for the same event, for any text.
+ */
+class SseFrameEncoderTest {
+
+  private static final String TASK_ID = "7f6c1a2e-task";
+  private static final String CONTEXT_ID = "0b3d9e41-context";
+  private static final String ARTIFACT_ID = "5e8a7c10-artifact";
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final SseFrameEncoder encoder = new SseFrameEncoder(objectMapper);
+
+  static Stream<String> texts() {
+    StringBuilder controls = new StringBuilder();
+    IntStream.range(0, 0x20).forEach(c -> controls.append((char) c));
+    return Stream.of(
+        "",
+        "plain ascii token",
+        "say \"hi\"",
+        "C:\\path\\to\\file\\",
+        "\\\"",
+        controls.toString(),
+        "line\nbreak\r\n\ttab\bback\fform",
+        "\u007f delete",
+        "line\u2028separator\u2029paragraph",
+        "caf\u00e9 \u00fc\u00df",
+        "\u65e5\u672c\u8a9e",
+        // Supplementary characters: surrogate pairs
+        "emoji \ud83d\ude00!",
+        "flag \ud83c\uddeb\ud83c\uddf7",
+        "\ud834\udd1e clef at start",
+        // Lone and misordered surrogates
+        "lone high \ud83d",
+        "lone low \ude00 in the middle",
+        "\ude00\ud83d reversed",
+        "mix: \"\ud83d\ude00\"\\\u2028\u0001</script>",
+        // Longer than one scratch block, with escapes and multi-byte chars across its edges
+        "caf\u00e9 \"\u65e5\"\n\u0001\ud83d\ude00 ".repeat(100));
+  }
+
+  static Stream<Arguments> chunks() {
+    return texts().flatMap(text -> Stream.of(
+        Arguments.of(text, false, "req-1"),
+        Arguments.of(text, true, "req-1"),
+        Arguments.of(text, true, 42)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("chunks")
+  void chunkFrameMatchesJackson(String text, boolean append, Object requestId) throws Exception {
+    var event = new A2aTypes.TaskArtifactUpdateEvent(TASK_ID, CONTEXT_ID,
+        new A2aTypes.Artifact(ARTIFACT_ID, "answer", List.of(new A2aTypes.TextPart("text", text))),
+        append ? Boolean.TRUE : null, null, null);
+
+    byte[] frame = encode(requestId, new TaskStore.Event(17, new TaskStore.ArtifactChunk(text, append), null, null));
+
+    assertThat(frame).isEqualTo(expectedFrame(17, objectMapper.writeValueAsBytes(JsonRpc.Response.ok(requestId, event))));
+  }
+
+  @ParameterizedTest
+  @MethodSource("texts")
+  void chunkTextSurvivesARoundTrip(String text) throws Exception {
+    byte[] frame = encode("req-1", new TaskStore.Event(1, new TaskStore.ArtifactChunk(text, true), null, null));
+
+    String data = new String(frame, StandardCharsets.UTF_8);
+    JsonNode json = objectMapper.readTree(data.substring(data.indexOf("data:") + 5));
+    assertThat(json.at("/result/artifact/parts/0/text").textValue()).isEqualTo(text);
+  }
+
+  @ParameterizedTest
+  @MethodSource("texts")
+  void escapedLengthIsWhatIsWritten(String text) {
+    DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(6 * text.length() + 1);
+    try {
+      SseFrameEncoder.writeEscaped(buffer, text, new byte[SseFrameEncoder.SCRATCH_SIZE]);
+      assertThat(SseFrameEncoder.escapedLength(text)).isEqualTo(buffer.readableByteCount());
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  @Test
+  void resultFrameWrapsThePreSerializedEvent() throws Exception {
+    var update = new A2aTypes.TaskStatusUpdateEvent(TASK_ID, CONTEXT_ID, new A2aTypes.TaskStatus("working"), false);
+
+    byte[] frame = encode("req-1", new TaskStore.Event(3, update, null, objectMapper.writeValueAsBytes(update)));
+
+    assertThat(frame).isEqualTo(expectedFrame(3, objectMapper.writeValueAsBytes(JsonRpc.Response.ok("req-1", update))));
+  }
+
+  @Test
+  void resultFrameSerializesWhenNothingIsCached() throws Exception {
+    var update = new A2aTypes.TaskStatusUpdateEvent(TASK_ID, CONTEXT_ID, new A2aTypes.TaskStatus("completed"), true);
+
+    byte[] frame = encode(42, new TaskStore.Event(1234567890123L, update, null, null));
+
+    assertThat(frame).isEqualTo(expectedFrame(1234567890123L,
+        objectMapper.writeValueAsBytes(JsonRpc.Response.ok(42, update))));
+  }
+
+  @Test
+  void errorFrameMatchesJackson() throws Exception {
+    var error = new JsonRpc.Error(-32000, "Streaming error: \"upstream\" \ud83d\ude00", null);
+
+    byte[] frame = encode("req-1", new TaskStore.Event(9, null, error, null));
+
+    assertThat(frame).isEqualTo(expectedFrame(9,
+        objectMapper.writeValueAsBytes(new JsonRpc.Response("2.0", "req-1", null, error))));
+  }
+
+  private byte[] encode(Object requestId, TaskStore.Event event) {
+    DataBuffer buffer = encoder.frames(DefaultDataBufferFactory.sharedInstance, requestId, TASK_ID, CONTEXT_ID, ARTIFACT_ID)
+        .encode(event);
+    try {
+      byte[] bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      return bytes;
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private static byte[] expectedFrame(long seq, byte[] json) {
+    byte[] head = ("id:" + seq + "\ndata:").getBytes(StandardCharsets.UTF_8);
+    byte[] frame = new byte[head.length + json.length + 2];
+    System.arraycopy(head, 0, frame, 0, head.length);
+    System.arraycopy(json, 0, frame, head.length, json.length);
+    frame[frame.length - 2] = '\n';
+    frame[frame.length - 1] = '\n';
+    return frame;
+  }
+}
@@ -0,0 +1,81 @@
+package fredlab.dev.samples.a2a;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuredMarkdownStreamTest {
+
+  private static final String ANSWER = "Here you go:\n```json\n"
+      + "{\"title\": \"Caf\u00e9 \\\"SSE\\\"\", \"bulletPoints\": [\" one \", \"two\\nlines\"],"
+      + " \"extra\": [\"ignored\"]}"
+      + "\n```";
+
+  // Tokens as a model would stream them: a few characters at a time, cut anywhere
+  private static List<String> tokens(String text, int size) {
+    List<String> tokens = new ArrayList<>();
+    for (int i = 0; i < text.length(); i += size) {
+      tokens.add(text.substring(i, Math.min(text.length(), i + size)));
+    }
+    return tokens;
+  }
+
+  @Test
+  void theMarkdownMatchesTheCompleteAnswerWhereverTokensAreCut() {
+    List<String> pieces = List.of("## Caf\u00e9 \"SSE\"", "\n- one", "\n- two\nlines");
+    assertThat(String.join("", pieces)).isEqualTo(
+        new AgentService.AgentResponse("Caf\u00e9 \"SSE\"", List.of(" one ", "two\nlines")).toMarkdown());
+
+    for (int size = 1; size <= 12; size++) {
+      StepVerifier.create(StructuredMarkdownStream.toMarkdown(Flux.fromIterable(tokens(ANSWER, size))))
+          .expectNextSequence(pieces)
+          .verifyComplete();
+    }
+  }
+
+  @Test
+  void eachPieceGoesOutAsSoonAsItsStringIsClosed() {
+    Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+
+    StepVerifier.create(StructuredMarkdownStream.toMarkdown(tokens.asFlux()))
+        .expectSubscription()
+        .then(() -> tokens.tryEmitNext("{\"title\": \"Ti"))
+        .expectNoEvent(Duration.ofMillis(20))
+        .then(() -> tokens.tryEmitNext("tle\", \"bulletPoints\": [\"a"))
+        .expectNext("## Title")
+        .then(() -> tokens.tryEmitNext("\"]}"))
+        .expectNext("\n- a")
+        .then(tokens::tryEmitComplete)
+        .verifyComplete();
+  }
+
+  @Test
+  void anAnswerWithoutJsonIsPassedThroughAtTheEnd() {
+    StepVerifier.create(StructuredMarkdownStream.toMarkdown(Flux.just("## Plain", "\n- markdown\n")))
+        .expectNext("## Plain\n- markdown")
+        .verifyComplete();
+  }
+
+  @Test
+  void aTruncatedObjectFails() {
+    StepVerifier.create(StructuredMarkdownStream.toMarkdown(Flux.just("{\"title\": \"T\", \"bulletPoints\": [")))
+        .expectNext("## T")
+        .expectError(IllegalStateException.class)
+        .verify();
+  }
+
+  @Test
+  void malformedJsonFails() {
+    StepVerifier.create(StructuredMarkdownStream.toMarkdown(Flux.just("{\"title\": ]")))
+        .expectError(UncheckedIOException.class)
+        .verify();
+  }
+}
@@ -0,0 +1,154 @@
+package fredlab.dev.samples.a2a;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fredlab.dev.samples.a2a.model.A2aTypes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskStoreTest {
+
+  private static final Duration TTL = Duration.ofMinutes(30);
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final List<TaskStore> stores = new ArrayList<>();
+
+  @TempDir
+  Path dir;
+
+  private TaskStore store(int eventsPerTask, Duration ttl, Path spillFile) {
+    var store = new TaskStore(100, eventsPerTask, ttl, spillFile == null ? "" : spillFile.toString(),
+        Duration.ofSeconds(10), 8, objectMapper, new SimpleMeterRegistry());
+    stores.add(store);
+    return store;
+  }
+
+  @AfterEach
+  void shutdown() {
+    stores.forEach(TaskStore::shutdown);
+  }
+
+  private static A2aTypes.Task task(String id) {
+    return new A2aTypes.Task(id, "ctx", new A2aTypes.TaskStatus("completed"), null, List.of());
+  }
+
+  private String line(String owner, String taskId, long finishedAt) throws Exception {
+    return objectMapper.writeValueAsString(new TaskStore.Archived(owner, task(taskId), finishedAt));
+  }
+
+  @Test
+  void expiredTasksAreNeitherReloadedNorKept() throws Exception {
+    long now = System.currentTimeMillis();
+    Path spillFile = dir.resolve("tasks.jsonl");
+    Files.write(spillFile, List.of(
+        line("alice", "expired", now - TTL.toMillis() - 1_000),
+        line("alice", "fresh", now),
+        // Written before finishedAt was recorded: its age is unknown
+        objectMapper.writeValueAsString(new LegacyLine("alice", task("legacy"))),
+        // A later line for the same task wins, even when it has expired
+        line("alice", "superseded", now),
+        line("alice", "superseded", now - TTL.toMillis() - 1_000)), StandardCharsets.UTF_8);
+
+    var store = store(8, TTL, spillFile);
+
+    assertThat(store.snapshot("fresh", null, "alice")).isNotNull();
+    assertThat(store.snapshot("fresh", null, "bob")).isNull();
+    assertThat(store.snapshot("expired", null, "alice")).isNull();
+    assertThat(store.snapshot("legacy", null, "alice")).isNull();
+    assertThat(store.snapshot("superseded", null, "alice")).isNull();
+
+    // Compaction runs first on the spill writer, which shutdown drains
+    store.shutdown();
+    assertThat(Files.readAllLines(spillFile, StandardCharsets.UTF_8))
+        .singleElement()
+        .satisfies(kept -> assertThat(objectMapper.readValue(kept, TaskStore.Archived.class).task().id())
+            .isEqualTo("fresh"));
+  }
+
+  @Test
+  void aReloadedTaskExpiresAtItsTtl() throws Exception {
+    Duration ttl = Duration.ofSeconds(1);
+    Path spillFile = dir.resolve("tasks.jsonl");
+    Files.write(spillFile, List.of(line("alice", "fresh", System.currentTimeMillis() - 700)), StandardCharsets.UTF_8);
+
+    var store = store(8, ttl, spillFile);
+    assertThat(store.snapshot("fresh", null, "alice")).isNotNull();
+
+    Thread.sleep(500);
+    assertThat(store.snapshot("fresh", null, "alice")).isNull();
+  }
+
+  @Test
+  void finishedTasksAreSpilledWithTheirFinishTime() throws Exception {
+    Path spillFile = dir.resolve("tasks.jsonl");
+    var store = store(8, TTL, spillFile);
+    long before = System.currentTimeMillis();
+
+    store.save(task("saved"), "openai.brief", "alice");
+    store.shutdown();
+
+    TaskStore.Archived spilled = objectMapper.readValue(Files.readString(spillFile), TaskStore.Archived.class);
+    assertThat(spilled.owner()).isEqualTo("alice");
+    assertThat(spilled.finishedAt()).isGreaterThanOrEqualTo(before);
+    assertThat(store(8, TTL, spillFile).snapshot("saved", null, "alice")).isNotNull();
+  }
+
+  @Test
+  void aFollowerBehindTheBufferGetsTheTaskThenTheNextEvents() {
+    var store = store(2, TTL, null);
+    var record = store.create("task-1", "ctx", "openai.brief", null, "alice");
+    for (String text : List.of("a", "b", "c", "d")) {
+      record.publish(new TaskStore.ArtifactChunk(text, true));
+    }
+
+    StepVerifier.create(record.events(0))
+        .assertNext(event -> {
+          assertThat(event.seq()).isEqualTo(4);
+          assertThat(event.result()).isInstanceOfSatisfying(A2aTypes.Task.class, task -> assertThat(
+              task.artifacts().get(0).parts()).containsExactly(new A2aTypes.TextPart("text", "abcd")));
+        })
+        .then(() -> record.publish(new TaskStore.ArtifactChunk("e", true)))
+        .assertNext(event -> assertThat(event.seq()).isEqualTo(5))
+        .then(record::complete)
+        .verifyComplete();
+  }
+
+  @Test
+  void aFollowerWithinTheBufferReplaysOnlyWhatItMissed() {
+    var store = store(4, TTL, null);
+    var record = store.create("task-1", "ctx", "openai.brief", null, "alice");
+    for (String text : List.of("a", "b", "c")) {
+      record.publish(new TaskStore.ArtifactChunk(text, true));
+    }
+
+    StepVerifier.create(record.events(1))
+        .assertNext(event -> assertThat(event.result()).isEqualTo(new TaskStore.ArtifactChunk("b", true)))
+        .assertNext(event -> assertThat(event.result()).isEqualTo(new TaskStore.ArtifactChunk("c", true)))
+        .then(record::complete)
+        .verifyComplete();
+  }
+
+  @Test
+  void tasksBelongToTheirCreator() {
+    var store = store(8, TTL, null);
+    store.create("task-1", "ctx", "openai.brief", null, "alice");
+
+    assertThat(store.get("task-1", "alice")).isNotNull();
+    assertThat(store.get("task-1", "bob")).isNull();
+    assertThat(store.snapshot("task-1", null, "bob")).isNull();
+  }
+
+  private record LegacyLine(String owner, A2aTypes.Task task) {}
+}
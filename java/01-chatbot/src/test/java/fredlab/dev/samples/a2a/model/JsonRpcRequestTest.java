@@ -0,0 +1,213 @@
+package fredlab.dev.samples.a2a.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link JsonRpc.RequestDeserializer}: params bind to the method's record whatever the field order, and params that
+ * do not bind leave the rest of the request (and of a batch) readable.
+ */
+class JsonRpcRequestTest {
+
+  // Binds to every params record: each one ignores the fields it does not have
+  private static final String ANY_PARAMS = """
+      {"id":"task-1","taskId":"task-1","historyLength":2,"pushNotificationConfigId":"cfg-1",
+       "message":{"role":"user","parts":[{"kind":"text","text":"hello"}],"messageId":"m-1"},
+       "pushNotificationConfig":{"url":"https://hooks.example.com/a2a"},"metadata":{"skillId":"openai.brief"}}""";
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  static Stream<Arguments> methods() {
+    return Stream.of(
+        Arguments.of("message/send", A2aTypes.MessageSendParams.class),
+        Arguments.of("message/stream", A2aTypes.MessageSendParams.class),
+        Arguments.of("tasks/get", A2aTypes.TaskQueryParams.class),
+        Arguments.of("tasks/cancel", A2aTypes.TaskIdParams.class),
+        Arguments.of("tasks/resubscribe", A2aTypes.TaskIdParams.class),
+        Arguments.of("tasks/pushNotificationConfig/set", A2aTypes.TaskPushNotificationConfig.class),
+        Arguments.of("tasks/pushNotificationConfig/get", A2aTypes.TaskPushNotificationConfigParams.class),
+        Arguments.of("tasks/pushNotificationConfig/list", A2aTypes.TaskPushNotificationConfigParams.class),
+        Arguments.of("tasks/pushNotificationConfig/delete", A2aTypes.TaskPushNotificationConfigParams.class));
+  }
+
+  static Stream<Arguments> methodsInEachOrder() {
+    return methods().flatMap(arguments -> Stream.of(true, false)
+        .map(paramsFirst -> Arguments.of(arguments.get()[0], arguments.get()[1], paramsFirst)));
+  }
+
+  @ParameterizedTest(name = "{0}, params first: {2}")
+  @MethodSource("methodsInEachOrder")
+  void paramsBindToTheMethodsRecord(String method, Class<?> paramsType, boolean paramsFirst) throws Exception {
+    String json = paramsFirst
+        ? object("\"params\":" + ANY_PARAMS, "\"jsonrpc\":\"2.0\"", "\"id\":\"req-1\"", "\"method\":\"" + method + "\"")
+        : object("\"jsonrpc\":\"2.0\"", "\"id\":\"req-1\"", "\"method\":\"" + method + "\"", "\"params\":" + ANY_PARAMS);
+
+    JsonRpc.Request req = objectMapper.readValue(json, JsonRpc.Request.class);
+
+    assertThat(req.jsonrpc()).isEqualTo("2.0");
+    assertThat(req.id()).isEqualTo("req-1");
+    assertThat(req.method()).isEqualTo(method);
+    assertThat(req.params()).isInstanceOf(paramsType);
+    assertThat(req.params(paramsType)).isSameAs(req.params());
+  }
+
+  @ParameterizedTest(name = "params first: {0}")
+  @MethodSource("orders")
+  void messageSendParamsAreComplete(boolean paramsFirst) throws Exception {
+    String json = paramsFirst
+        ? object("\"params\":" + ANY_PARAMS, "\"method\":\"message/send\"", "\"id\":7")
+        : object("\"id\":7", "\"method\":\"message/send\"", "\"params\":" + ANY_PARAMS);
+
+    JsonRpc.Request req = objectMapper.readValue(json, JsonRpc.Request.class);
+    var params = req.params(A2aTypes.MessageSendParams.class);
+
+    assertThat(req.id()).isEqualTo(7);
+    assertThat(params).isNotNull();
+    assertThat(params.message().messageId()).isEqualTo("m-1");
+    assertThat(params.message().parts()).containsExactly(new A2aTypes.TextPart("text", "hello"));
+    assertThat(params.metadata()).containsEntry("skillId", "openai.brief");
+    assertThat(req.params(A2aTypes.TaskQueryParams.class)).isNull();
+  }
+
+  static Stream<Boolean> orders() {
+    return Stream.of(true, false);
+  }
+
+  /** Every placement of params, method and id around params that do not bind to TaskQueryParams. */
+  static Stream<List<String>> malformedOrders() {
+    String params = "\"params\":{\"id\":\"task-1\",\"historyLength\":{\"not\":[\"a\",\"number\"]},"
+        + "\"metadata\":{\"nested\":{\"deep\":[1,2,{\"x\":3}]}}}";
+    return permutations(List.of(params, "\"method\":\"tasks/get\"", "\"id\":\"req-9\"")).stream()
+        .map(fields -> {
+          List<String> withVersion = new ArrayList<>(fields);
+          withVersion.add("\"jsonrpc\":\"2.0\"");
+          return withVersion;
+        });
+  }
+
+  @ParameterizedTest
+  @MethodSource("malformedOrders")
+  void malformedParamsKeepTheRestOfTheRequest(List<String> fields) throws Exception {
+    JsonRpc.Request req = objectMapper.readValue(object(fields.toArray(String[]::new)), JsonRpc.Request.class);
+
+    assertThat(req.id()).isEqualTo("req-9");
+    assertThat(req.method()).isEqualTo("tasks/get");
+    assertThat(req.jsonrpc()).isEqualTo("2.0");
+    assertThat(req.params()).isInstanceOf(JsonRpc.InvalidParams.class);
+    assertThat(((JsonRpc.InvalidParams) req.params()).message()).isNotBlank();
+    assertThat(req.params(A2aTypes.TaskQueryParams.class)).isNull();
+  }
+
+  @ParameterizedTest
+  @MethodSource("malformedOrders")
+  void malformedParamsDoNotDesyncABatch(List<String> fields) throws Exception {
+    String batch = "[" + object(fields.toArray(String[]::new)) + ","
+        + object("\"jsonrpc\":\"2.0\"", "\"id\":10", "\"method\":\"tasks/cancel\"", "\"params\":{\"id\":\"task-2\"}") + "]";
+
+    List<JsonRpc.Request> requests = objectMapper.readValue(batch, new TypeReference<>() {});
+
+    assertThat(requests).hasSize(2);
+    assertThat(requests.get(0).id()).isEqualTo("req-9");
+    assertThat(requests.get(0).params()).isInstanceOf(JsonRpc.InvalidParams.class);
+    assertThat(requests.get(1).id()).isEqualTo(10);
+    assertThat(requests.get(1).params(A2aTypes.TaskIdParams.class)).isEqualTo(new A2aTypes.TaskIdParams("task-2", null));
+  }
+
+  @ParameterizedTest(name = "params first: {0}")
+  @MethodSource("orders")
+  void paramsOfTheWrongShapeAreInvalid(boolean paramsFirst) throws Exception {
+    String json = paramsFirst
+        ? object("\"params\":[1,[2,3],{\"a\":4}]", "\"method\":\"tasks/cancel\"", "\"id\":3")
+        : object("\"id\":3", "\"method\":\"tasks/cancel\"", "\"params\":[1,[2,3],{\"a\":4}]");
+
+    JsonRpc.Request req = objectMapper.readValue(json, JsonRpc.Request.class);
+
+    assertThat(req.id()).isEqualTo(3);
+    assertThat(req.params()).isInstanceOf(JsonRpc.InvalidParams.class);
+  }
+
+  @ParameterizedTest(name = "params first: {0}")
+  @MethodSource("orders")
+  void paramsOfOtherMethodsAreSkipped(boolean paramsFirst) throws Exception {
+    String json = paramsFirst
+        ? object("\"params\":" + ANY_PARAMS, "\"method\":\"agent/getAuthenticatedExtendedCard\"", "\"id\":\"req-2\"")
+        : object("\"id\":\"req-2\"", "\"method\":\"agent/getAuthenticatedExtendedCard\"", "\"params\":" + ANY_PARAMS);
+
+    JsonRpc.Request req = objectMapper.readValue(json, JsonRpc.Request.class);
+
+    assertThat(req.id()).isEqualTo("req-2");
+    assertThat(req.method()).isEqualTo("agent/getAuthenticatedExtendedCard");
+    assertThat(req.params()).isNull();
+  }
+
+  @Test
+  void aCallWithoutIdIsANotification() throws Exception {
+    JsonRpc.Request notification = objectMapper.readValue(
+        object("\"jsonrpc\":\"2.0\"", "\"method\":\"tasks/cancel\"", "\"params\":{\"id\":\"task-1\"}"),
+        JsonRpc.Request.class);
+    JsonRpc.Request nullId = objectMapper.readValue(
+        object("\"jsonrpc\":\"2.0\"", "\"id\":null", "\"method\":\"tasks/cancel\""), JsonRpc.Request.class);
+    JsonRpc.Request noMethod = objectMapper.readValue(object("\"jsonrpc\":\"2.0\""), JsonRpc.Request.class);
+
+    assertThat(notification.notification()).isTrue();
+    assertThat(notification.params(A2aTypes.TaskIdParams.class)).isNotNull();
+    // "id": null is a call with a null id, answered like any other
+    assertThat(nullId.id()).isNull();
+    assertThat(nullId.notification()).isFalse();
+    // Without a method it is not a valid call at all, and gets an Invalid Request error
+    assertThat(noMethod.notification()).isFalse();
+  }
+
+  @Test
+  void paramsWithoutMethodAreDropped() throws Exception {
+    JsonRpc.Request req = objectMapper.readValue(object("\"id\":1", "\"params\":" + ANY_PARAMS), JsonRpc.Request.class);
+
+    assertThat(req.method()).isNull();
+    assertThat(req.id()).isEqualTo(1);
+    assertThat(req.params()).isNull();
+  }
+
+  @Test
+  void nullParamsAndNonScalarIdsAreIgnored() throws Exception {
+    JsonRpc.Request req = objectMapper.readValue(
+        object("\"id\":{\"x\":[1]}", "\"method\":\"tasks/get\"", "\"params\":null", "\"extra\":[{\"y\":2}]"),
+        JsonRpc.Request.class);
+
+    assertThat(req.id()).isNull();
+    assertThat(req.method()).isEqualTo("tasks/get");
+    assertThat(req.params()).isNull();
+  }
+
+  private static String object(String... fields) {
+    return "{" + String.join(",", fields) + "}";
+  }
+
+  private static List<List<String>> permutations(List<String> items) {
+    if (items.isEmpty()) {
+      return List.of(List.of());
+    }
+    List<List<String>> result = new ArrayList<>();
+    for (String first : items) {
+      List<String> rest = new ArrayList<>(items);
+      rest.remove(first);
+      for (List<String> tail : permutations(rest)) {
+        List<String> permutation = new ArrayList<>();
+        permutation.add(first);
+        permutation.addAll(tail);
+        result.add(permutation);
+      }
+    }
+    return result;
+  }
+}